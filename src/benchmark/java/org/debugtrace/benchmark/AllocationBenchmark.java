@@ -0,0 +1,87 @@
+// AllocationBenchmark.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.debugtrace.DebugTrace;
+import org.debugtrace.LogOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the allocation per print of nested collections, objects output using reflection
+ * and an array of a primitive type.<br>
+ * Run with the GC profiler and see <code>gc.alloc.rate.norm</code> (bytes per print).
+ * <pre>
+ * gradle benchmark -Pjmh="AllocationBenchmark -prof gc"
+ * </pre>
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AllocationBenchmark {
+    public record Point(int x, int y) {}
+
+    public static class Contact {
+        private String firstName = "Akane";
+        private String lastName = "Apple";
+        private List<Point> points = List.of(new Point(1, 2), new Point(3, 4), new Point(5, 6));
+        private Map<String, Integer> scores = Map.of("math", 80, "music", 90);
+    }
+
+    private final List<List<Integer>> nestedList = IntStream.range(0, 10)
+        .mapToObj(index -> IntStream.range(0, 10).boxed().toList())
+        .toList();
+
+    private final Map<String, List<Contact>> contactMap = Map.of(
+        "family" , List.of(new Contact(), new Contact()),
+        "friends", List.of(new Contact(), new Contact(), new Contact()));
+
+    private final double[] doubles = IntStream.range(0, 1000).mapToDouble(index -> index / 7.0).toArray();
+
+    private final LogOptions logOptions = new LogOptions();
+
+    @Setup
+    public void setup() {
+        logOptions.collectionLimit = doubles.length;
+    }
+
+    @Benchmark
+    public List<List<Integer>> printNestedList() {
+        return DebugTrace.print("value", nestedList);
+    }
+
+    @Benchmark
+    public Contact printObject() {
+        return DebugTrace.print("value", contactMap.get("family").get(0));
+    }
+
+    @Benchmark
+    public Map<String, List<Contact>> printNestedObjects() {
+        return DebugTrace.print("value", contactMap);
+    }
+
+    @Benchmark
+    public double[] printDoubleArray() {
+        return DebugTrace.print("value", doubles, logOptions);
+    }
+}
@@ -0,0 +1,58 @@
+// CallerLookupBenchmark.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.debugtrace.DebugTrace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@code print} and {@code enter}/{@code leave} called at various stack depths,
+ * where the time to find the callers is dominant.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CallerLookupBenchmark {
+    @Param({"20", "200", "1000"})
+    public int depth;
+
+    @Benchmark
+    public int print() {
+        return printAt(depth);
+    }
+
+    @Benchmark
+    public int enterLeave() {
+        return enterLeaveAt(depth);
+    }
+
+    private int printAt(int remaining) {
+        return remaining > 0 ? printAt(remaining - 1) : DebugTrace.print("value", 12345);
+    }
+
+    private int enterLeaveAt(int remaining) {
+        if (remaining > 0)
+            return enterLeaveAt(remaining - 1);
+        DebugTrace.enter();
+        DebugTrace.leave();
+        return remaining;
+    }
+}
@@ -0,0 +1,75 @@
+// FileLoggerBenchmark.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.debugtrace.LineSeparator;
+import org.debugtrace.logger.File;
+import org.debugtrace.logger.FlushPolicy;
+import org.debugtrace.logger.Logger;
+import org.debugtrace.logger.MMap;
+import org.debugtrace.logger.RollPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of the File logger and the MMap logger.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileLoggerBenchmark {
+    @Param({"File-line", "File-bytes", "MMap"})
+    public String loggerType;
+
+    private final String message = "contact = (PrintBenchmark.Contact){firstName: \"Akane\", lastName: \"Apple\"} (Example.java:123)";
+    private java.io.File directory;
+    private Logger logger;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("debugtrace-benchmark").toFile();
+        var file = new java.io.File(directory, "benchmark.log");
+        logger = switch (loggerType) {
+            case "File-line"  -> new File(file, StandardCharsets.UTF_8, LineSeparator.LF, false, FlushPolicy.LINE);
+            case "File-bytes" -> new File(file, StandardCharsets.UTF_8, LineSeparator.LF, false, FlushPolicy.parse("bytes:65536"));
+            case "MMap"       -> new MMap(file, StandardCharsets.UTF_8, LineSeparator.LF, false, MMap.DEFAULT_CHUNK_SIZE, RollPolicy.NONE);
+            default -> throw new IllegalArgumentException(loggerType);
+        };
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        logger.close();
+        for (var file : directory.listFiles())
+            file.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public void log() {
+        logger.log(message);
+    }
+}
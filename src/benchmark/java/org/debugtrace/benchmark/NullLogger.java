@@ -0,0 +1,33 @@
+// NullLogger.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.benchmark;
+
+import org.debugtrace.logger.Logger;
+
+/**
+ * A logger that discards messages, so that benchmarks measure DebugTrace itself.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public class NullLogger implements Logger {
+    // The total length of discarded messages (prevents dead code elimination)
+    private long length;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void log(String message) {
+        length += message.length();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getClass().getName();
+    }
+}
@@ -0,0 +1,98 @@
+// PrintBenchmark.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.debugtrace.DebugTrace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the throughput of {@code DebugTrace.print(name, value)}.<br>
+ * Run {@link #main(String[])} to measure how the throughput scales as the number of threads increases.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PrintBenchmark {
+    public record Point(int x, int y) {}
+
+    public static class Contact {
+        private String firstName = "Akane";
+        private String lastName = "Apple";
+        private List<Point> points = List.of(new Point(1, 2), new Point(3, 4), new Point(5, 6));
+        private Map<String, Integer> scores = Map.of("math", 80, "music", 90);
+    }
+
+    private final Contact contact = new Contact();
+    private final List<Integer> list = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+
+    @Benchmark
+    public int printInt() {
+        return DebugTrace.print("value", 12345);
+    }
+
+    @Benchmark
+    public String printString() {
+        return DebugTrace.print("value", "Hello, DebugTrace!");
+    }
+
+    @Benchmark
+    public List<Integer> printList() {
+        return DebugTrace.print("value", list);
+    }
+
+    @Benchmark
+    public Contact printObject() {
+        return DebugTrace.print("value", contact);
+    }
+
+    @Benchmark
+    public void enterLeave() {
+        DebugTrace.enter();
+        DebugTrace.leave();
+    }
+
+    /**
+     * Measures the throughput of printObject with 1, 2, 4, ... threads up to the number of processors.
+     *
+     * @param args not used
+     * @throws RunnerException if JMH fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        var maxThreads = Runtime.getRuntime().availableProcessors();
+        var baseScore = 0.0;
+        for (var threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            var options = new OptionsBuilder()
+                .include(PrintBenchmark.class.getName() + ".printObject")
+                .threads(threads)
+                .build();
+            var score = new Runner(options).runSingle().getPrimaryResult().getScore();
+            if (threads == 1)
+                baseScore = score;
+            System.out.printf("threads: %3d, throughput: %,14.0f ops/s, scaling: %5.2f%n", threads, score, score / baseScore);
+            if (threads >= maxThreads)
+                break;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+// ReflectionBenchmark.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.debugtrace.DebugTrace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the print of objects output using reflection.<br>
+ * The bean has 20 private fields, half of which have getter methods,
+ * so that both the lookup of the getter methods and the access to the fields are measured.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReflectionBenchmark {
+    public static class Bean {
+        private int field01 = 1;
+        private int field02 = 2;
+        private long field03 = 3L;
+        private long field04 = 4L;
+        private double field05 = 5.0;
+        private double field06 = 6.0;
+        private boolean field07 = true;
+        private boolean field08 = false;
+        private String field09 = "nine";
+        private String field10 = "ten";
+        private int field11 = 11;
+        private int field12 = 12;
+        private long field13 = 13L;
+        private long field14 = 14L;
+        private double field15 = 15.0;
+        private double field16 = 16.0;
+        private boolean field17 = true;
+        private boolean field18 = false;
+        private String field19 = "nineteen";
+        private String field20 = "twenty";
+
+        public int getField01() {return field01;}
+        public long getField03() {return field03;}
+        public double getField05() {return field05;}
+        public boolean isField07() {return field07;}
+        public String getField09() {return field09;}
+        public int getField11() {return field11;}
+        public long getField13() {return field13;}
+        public double getField15() {return field15;}
+        public boolean isField17() {return field17;}
+        public String getField19() {return field19;}
+    }
+
+    public record ValueRecord(int field01, int field02, long field03, long field04, double field05,
+        double field06, boolean field07, boolean field08, String field09, String field10) {}
+
+    private final Bean bean = new Bean();
+    private final ValueRecord record = new ValueRecord(1, 2, 3L, 4L, 5.0, 6.0, true, false, "nine", "ten");
+
+    @Benchmark
+    public Bean printBean() {
+        return DebugTrace.print("value", bean);
+    }
+
+    @Benchmark
+    public ValueRecord printRecord() {
+        return DebugTrace.print("value", record);
+    }
+}
@@ -0,0 +1,98 @@
+// StateSoak.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.debugtrace.DebugTrace;
+
+/**
+ * A soak test that traces from a large number of short-lived threads
+ * and shows that the heap usage stays flat, that is, the trace states of terminated threads are released.<br>
+ * Uses a virtual thread for each task on Java 21 or later, a platform thread otherwise.
+ * <pre>
+ * usage: StateSoak [thread count (default: 10,000,000)] [report interval (default: 1,000,000)]
+ * </pre>
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public class StateSoak {
+    // The maximum number of threads running at the same time
+    private static final int MAX_RUNNING_THREADS = 1024;
+
+    /**
+     * Runs the soak test.
+     *
+     * @param args the thread count and the report interval
+     * @throws Exception if an error occurs
+     */
+    public static void main(String[] args) throws Exception {
+        var threadCount = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        var reportInterval = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000L;
+
+        Executor executor;
+        try {
+            // Java 21 or later
+            executor = (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            System.out.println("Uses virtual threads.");
+        }
+        catch (NoSuchMethodException e) {
+            executor = runnable -> new Thread(runnable).start();
+            System.out.println("Uses platform threads.");
+        }
+
+        var semaphore = new Semaphore(MAX_RUNNING_THREADS);
+        var firstUsedHeap = -1L;
+        var maxUsedHeap = 0L;
+        for (var count = 0L; count < threadCount; ) {
+            var batchSize = Math.min(reportInterval, threadCount - count);
+            var latch = new CountDownLatch((int)batchSize);
+            for (var batchIndex = 0L; batchIndex < batchSize; ++batchIndex, ++count) {
+                var index = count;
+                semaphore.acquire();
+                executor.execute(() -> {
+                    try {
+                        DebugTrace.enter();
+                        DebugTrace.print("index", index);
+                        DebugTrace.leave();
+                    }
+                    finally {
+                        semaphore.release();
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+
+            var usedHeap = usedHeapAfterGc();
+            if (firstUsedHeap < 0)
+                firstUsedHeap = usedHeap;
+            maxUsedHeap = Math.max(maxUsedHeap, usedHeap);
+            System.out.printf("threads: %,12d, used heap: %,9d KiB%n", count, usedHeap / 1024);
+        }
+
+        System.out.printf("first used heap: %,d KiB, maximum used heap: %,d KiB%n",
+            firstUsedHeap / 1024, maxUsedHeap / 1024);
+        System.exit(0);
+    }
+
+    /**
+     * Returns the used heap size after garbage collection.
+     *
+     * @return the used heap size
+     * @throws InterruptedException if interrupted
+     */
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (var count = 0; count < 3; ++count) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
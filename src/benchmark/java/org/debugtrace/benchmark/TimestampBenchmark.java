@@ -0,0 +1,50 @@
+// TimestampBenchmark.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.benchmark;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.debugtrace.DebugTrace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of adding the timestamp to a log line
+ * by formatting a ZonedDateTime for each line (before 4.2.0) and by {@code DebugTrace.appendTimestamp}.<br>
+ * Both should be well over 1M lines/sec, also with multiple threads (e.g. {@code -Pjmh="TimestampBenchmark -t 4"}).
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimestampBenchmark {
+    private final String message = "contact = (PrintBenchmark.Contact){firstName: \"Akane\", lastName: \"Apple\"} (Example.java:123)";
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSxxx");
+    private final ZoneId zoneId = ZoneId.systemDefault();
+
+    @Benchmark
+    public String formatEachLine() {
+        return ZonedDateTime.now(zoneId).format(formatter) + " " + message;
+    }
+
+    @Benchmark
+    public String appendTimestamp() {
+        return DebugTrace.appendTimestamp(message);
+    }
+}
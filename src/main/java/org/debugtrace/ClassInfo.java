@@ -0,0 +1,160 @@
+// ClassInfo.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+/**
+ * How the values of a class are output, decided once per class.<br>
+ * The instances are held by a ClassValue,
+ * so they are released with the class and do not retain the class loader.
+ * The decisions are immutable, and the reflection fields are resolved when first used.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+final class ClassInfo {
+    private final int generation;
+    private final NodeRenderer renderer;
+    private final String typeName;
+    private final String enclosedTypeName;
+    private final String arrayTypeNamePrefix;
+    private final String arrayTypeNameSuffix;
+    private final boolean outputTypeName;
+    private final boolean outputComponentTypeName;
+    private final boolean outputElementTypeName;
+    private final boolean containerRenderer;
+    private final boolean expensiveSize;
+
+    // Immutable and may be created by more than one thread at the same time
+    private volatile ReflectionClass reflectionClass;
+
+    /**
+     * Constructs a ClassInfo.
+     *
+     * @param generation the generation of the properties with which the decisions are made
+     * @param renderer the renderer of the values
+     * @param typeName the type name without the size, length and parentheses
+     * @param array true if the class is an array
+     * @param outputTypeName true if the type name is output
+     * @param outputComponentTypeName true if the type name is output as the component type of an array
+     * @param outputElementTypeName true if the type name is output as the element type of a collection or map
+     * @param containerRenderer true if the renderer is of the collections or maps and creates the type name
+     * @param expensiveSize true if the size method of the collection or map traverses or loads the elements
+     */
+    ClassInfo(int generation, NodeRenderer renderer, String typeName, boolean array,
+            boolean outputTypeName, boolean outputComponentTypeName, boolean outputElementTypeName,
+            boolean containerRenderer, boolean expensiveSize) {
+        this.generation = generation;
+        this.renderer = renderer;
+        this.typeName = typeName;
+        this.enclosedTypeName = '(' + typeName + ')';
+        if (array) {
+            // The length is output in the first brackets. e.g. (int[<length>][])
+            var braIndex = typeName.indexOf('[');
+            arrayTypeNamePrefix = '(' + typeName.substring(0, braIndex + 1);
+            arrayTypeNameSuffix = typeName.substring(braIndex + 1) + ')';
+        } else {
+            arrayTypeNamePrefix = null;
+            arrayTypeNameSuffix = null;
+        }
+        this.outputTypeName = outputTypeName;
+        this.outputComponentTypeName = outputComponentTypeName;
+        this.outputElementTypeName = outputElementTypeName;
+        this.containerRenderer = containerRenderer;
+        this.expensiveSize = expensiveSize;
+    }
+
+    /**
+     * Returns the generation of the properties with which the decisions are made.
+     *
+     * @return the generation of the properties
+     */
+    int generation() {
+        return generation;
+    }
+
+    /**
+     * Returns the renderer of the values.
+     *
+     * @return the renderer of the values
+     */
+    NodeRenderer renderer() {
+        return renderer;
+    }
+
+    /**
+     * Returns the type name without the size, length and parentheses.
+     *
+     * @return the type name
+     */
+    String typeName() {
+        return typeName;
+    }
+
+    /**
+     * Returns the type name enclosed in parentheses.
+     *
+     * @return the type name enclosed in parentheses
+     */
+    String enclosedTypeName() {
+        return enclosedTypeName;
+    }
+
+    /**
+     * Returns the type name of the array enclosed in parentheses with the length.
+     *
+     * @param length the length of the array
+     * @return the type name of the array
+     */
+    String arrayTypeName(int length) {
+        return arrayTypeNamePrefix + length + arrayTypeNameSuffix;
+    }
+
+    /**
+     * Returns true if the type name is output.
+     *
+     * @param isComponent true if the value is a component of an array
+     * @param isElement true if the value is an element of a collection or map
+     * @return true if the type name is output; false otherwise
+     */
+    boolean isOutputTypeName(boolean isComponent, boolean isElement) {
+        return isComponent ? outputComponentTypeName : isElement ? outputElementTypeName : outputTypeName;
+    }
+
+    /**
+     * Returns true if the renderer is of the collections or maps and creates the type name
+     * after the elements are counted.
+     *
+     * @return true if the renderer creates the type name; false otherwise
+     */
+    boolean containerRenderer() {
+        return containerRenderer;
+    }
+
+    /**
+     * Returns true if the size method of the collection or map traverses or loads the elements.
+     *
+     * @return true if the size method is expensive; false otherwise
+     */
+    boolean expensiveSize() {
+        return expensiveSize;
+    }
+
+    /**
+     * Returns the reflection fields of the class.
+     *
+     * @return the reflection fields (null if not resolved yet)
+     */
+    ReflectionClass reflectionClass() {
+        return reflectionClass;
+    }
+
+    /**
+     * Sets the reflection fields of the class.
+     *
+     * @param reflectionClass the reflection fields
+     */
+    void setReflectionClass(ReflectionClass reflectionClass) {
+        this.reflectionClass = reflectionClass;
+    }
+}
@@ -3,13 +3,20 @@
 
 package org.debugtrace;
 
+import static org.debugtrace.Template.Type.*;
+
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.sql.Blob;
 import java.sql.Clob;
@@ -28,18 +35,37 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.Temporal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.RandomAccess;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.IntStream;
 
 import org.debugtrace.helper.BooleanSupplier;
@@ -48,6 +74,10 @@ import org.debugtrace.helper.IntSupplier;
 import org.debugtrace.helper.LongSupplier;
 import org.debugtrace.helper.Resource;
 import org.debugtrace.helper.Supplier;
+import org.debugtrace.logger.Async;
+import org.debugtrace.logger.FlushPolicy;
+import org.debugtrace.logger.MMap;
+import org.debugtrace.logger.RollPolicy;
 import org.debugtrace.logger.Logger;
 import org.debugtrace.logger.Std;
 
@@ -63,7 +93,7 @@ public class DebugTrace {
      * 
      * @since 3.0.0
      */
-    public static final String VERSION = "4.1.0";
+    public static final String VERSION = "4.2.0";
 
     // A map for wrapper classes of primitive type to primitive type
     private static final Map<Class<?>, Class<?>> primitiveTypeMap = Map.ofEntries(
@@ -85,6 +115,10 @@ public class DebugTrace {
         Map.entry(Double   .class, double .class)
     );
 
+    // The escape sequences of the characters in strings and in character literals (null if not escaped) (since 4.2.0)
+    private static final String[] stringEscapes = createEscapes(true);
+    private static final String[] charEscapes = createEscapes(false);
+
     // A set of classes that dose not output the type name
     private static final Set<Class<?>> noOutputTypeSet = Set.of(
         boolean  .class,
@@ -150,6 +184,9 @@ public class DebugTrace {
         "org.spockframework."
     };
 
+    // Walks the stack frames to find the callers (since 4.2.0)
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+
     // Resources
     private static Resource resource;
 
@@ -166,9 +203,11 @@ public class DebugTrace {
     protected static String keyValueSeparator        ;
     protected static String printSuffixFormat        ;
     protected static String sizeFormat               ; // since 3.0.0
+    protected static String sizeAtLeastFormat        ; // since 4.2.0
     protected static int    minimumOutputSize        ; // since 3.0.0
     protected static String lengthFormat             ; // since 3.0.0
     protected static int    minimumOutputLength      ; // since 3.0.0
+    protected static String skippedFormat            ; // since 4.2.0
     protected static String utilDateFormat           ;
     protected static String sqlDateFormat            ;
     protected static String timeFormat               ;
@@ -184,6 +223,7 @@ public class DebugTrace {
     protected static String timeZone                 ; // since 4.1.0
     protected static int    maximumDataOutputWidth   ; // since 3.0.0
     protected static int    collectionLimit          ;
+    protected static int    collectionTailLimit      ; // since 4.2.0
     protected static int    byteArrayLimit           ;
     protected static int    stringLimit              ;
     protected static int    reflectionNestLimit      ; // since 3.0.0
@@ -191,9 +231,23 @@ public class DebugTrace {
     protected static String defaultPackage           ; // since 2.3.0
     protected static String defaultPackageString     ; // since 2.3.0
     protected static Set<String> reflectionClassPaths; // since 3.5.0
-    protected static Set<Class<?>> reflectionClasses    = new HashSet<>(); // since 2.4.0
-    protected static Set<Class<?>> nonReflectionClasses = new HashSet<>();; // since 3.5.0
+    protected static Set<String> expensiveSizeClassPaths; // since 4.2.0
     protected static Map<String, String> mapNameMap  ; // since 2.4.0
+    protected static boolean asyncLogging            ; // since 4.2.0
+    protected static int    asyncBufferSize          ; // since 4.2.0
+    protected static String asyncFullPolicy          ; // since 4.2.0
+    protected static String fileFlush                ; // since 4.2.0
+    protected static String fileRollSize             ; // since 4.2.0
+    protected static String fileRollInterval         ; // since 4.2.0
+    protected static int    fileRollCount            ; // since 4.2.0
+    protected static String mmapChunkSize            ; // since 4.2.0
+    protected static String binaryTraceFile          ; // since 4.2.0
+    protected static boolean streamingOutput         ; // since 4.2.0
+    protected static List<String> valueRendererClasses; // since 4.2.0
+    protected static boolean lobLengthOutput         ; // since 4.2.0
+    protected static Map<String, String> samplingRules; // since 4.2.0
+    protected static String samplingReportInterval   ; // since 4.2.0
+    protected static String suppressedFormat         ; // since 4.2.0
 
     // @since 2.5.0
     private static DateTimeFormatter utilDateFormatter      ;
@@ -209,6 +263,19 @@ public class DebugTrace {
     private static DateTimeFormatter instantFormatter       ;
     private static DateTimeFormatter logDateTimeFormatter   ;
     private static ZoneId            zoneId; // since 4.1.0
+    private static TimestampCache    logTimestampCache; // since 4.2.0
+
+    // Compiled format strings since 4.2.0
+    private static Template enterTemplate         ;
+    private static Template leaveTemplate         ;
+    private static Template threadBoundaryTemplate;
+    private static Template classBoundaryTemplate ;
+    private static Template printSuffixTemplate   ;
+    private static Template sizeTemplate          ;
+    private static Template sizeAtLeastTemplate   ; // since 4.2.0
+    private static Template lengthTemplate        ;
+    private static Template skippedTemplate       ; // since 4.2.0
+    private static Template suppressedTemplate    ; // since 4.2.0
 
     // Array of indent strings
     private static final String[] indentStrings = new String[32];
@@ -219,21 +286,143 @@ public class DebugTrace {
     // Logger
     private static Logger logger = null;
 
-    // Map of thread id to the indent state
-    private static final Map<Long,  State> stateMap = new HashMap<>();
+    // Binary trace writer (null if the trace is output to the logger) since 4.2.0
+    private static TraceWriter traceWriter = null;
+
+    // The indent state of each thread (thread-confined, so no lock is needed to access it)
+    // The state is held by the thread itself and is released when the thread terminates.
+    // Neither the Thread object nor a map keyed by the thread id is held, so it does not grow with short-lived threads.
+    private static final ThreadLocal<State> stateThreadLocal =
+        ThreadLocal.withInitial(() -> new State(Thread.currentThread().getId()));
+
+    // A lock to serialize the output of finished lines
+    private static final Object logLock = new Object();
+
+    // The streaming print passing its lines to the logger (null if none, guarded by logLock) since 4.2.0
+    private static PrintLines streamingLines = null;
+
+    // The lines of the prints held until the streaming print finishes (guarded by logLock) since 4.2.0
+    private static final ArrayDeque<PrintLines> heldLines = new ArrayDeque<>();
 
     // Before thread id
     private static long beforeThreadId;
 
-    // Reflected object list
-    private static final List<Object> reflectedObjects = new ArrayList<>();
+    private static final Map<String, Map<Integer, String>> convertMapMap = new ConcurrentHashMap<>();
+
+    // How the values of the classes are output (since 4.2.0)
+    // Held in the classes themselves, so that the class loaders are not retained.
+    private static final ClassValue<ClassInfo> classInfos = new ClassValue<>() {
+        @Override
+        protected ClassInfo computeValue(Class<?> type) {
+            return createClassInfo(type);
+        }
+    };
+
+    // Incremented by initClass to discard the ClassInfo decided with the previous properties (since 4.2.0)
+    private static volatile int classInfoGeneration;
+
+    // The sampling rules by the method name (class name + '.' + method name), class name or package name + '.' (since 4.2.0)
+    private static volatile Map<String, Sampler.Rule> samplingRuleMap = Map.of();
+
+    // The Samplers of the call sites that a rule matches (since 4.2.0)
+    // The other call sites are not held, so that it does not grow with all the call sites of the application.
+    private static final Map<StackTraceElement, Sampler> samplers = new ConcurrentHashMap<>();
+
+    // The timer to report the suppressed logs periodically (null if not reported) (since 4.2.0)
+    private static Timer samplingReportTimer = null;
+
+    // Reports the suppressed logs not reported yet at shutdown (since 4.2.0)
+    private static final Thread samplingReportHook = new Thread(DebugTrace::reportSuppressed, "DebugTrace-Sampling-Report");
+
+    // A renderer of the values of a type (since 4.2.0)
+    private record TypeRenderer(Class<?> type, NodeRenderer renderer) {}
+
+    // The renderers of ValueRenderer (since 4.2.0)
+    private static volatile List<TypeRenderer> valueRenderers = List.of();
+
+    // The renderers of the collections and maps (since 4.2.0)
+    private static final NodeRenderer collectionRenderer = DebugTrace::toNodeCollection;
+    private static final NodeRenderer mapRenderer = DebugTrace::toNodeMap;
+
+    // The renderers of the built-in types (since 4.2.0)
+    // The first renderer whose type accepts the class of a value is used, so the subtypes precede their super types.
+    private static final List<TypeRenderer> builtInRenderers = List.of(
+        new TypeRenderer(char[].class, (mapName, value, logOptions, typeName) ->
+            toNodeString(typeName, CharBuffer.wrap((char[])value), logOptions)),
+        new TypeRenderer(byte[].class, (mapName, value, logOptions, typeName) ->
+            toNodeBytes(null, ByteBuffer.wrap((byte[])value), logOptions)),
+        primitivesRenderer(boolean[].class, Boolean.class),
+        primitivesRenderer(short  [].class, Short  .class),
+        primitivesRenderer(int    [].class, Integer.class),
+        primitivesRenderer(long   [].class, Long   .class),
+        primitivesRenderer(float  [].class, Float  .class),
+        primitivesRenderer(double [].class, Double .class),
+        textRenderer(Boolean.class, DebugTrace::toText),
+        textRenderer(Character.class, character -> {
+            var builder = new StringBuilder().append('\'');
+            appendChar(builder, character.charValue(), false);
+            return builder.append('\'').toString();
+        }),
+        new TypeRenderer(BigDecimal.class, (mapName, value, logOptions, typeName) ->
+            new Node.Text(typeName, ((BigDecimal)value).toPlainString(), true)),
+        new TypeRenderer(Number.class, DebugTrace::toNodeNumber),
+        new TypeRenderer(CharSequence.class, (mapName, value, logOptions, typeName) ->
+            toNodeString(typeName, (CharSequence)value, logOptions)),
+        textRenderer(Date     .class, date -> toText(date, sqlDateFormatter  )), // java.sql.Date
+        textRenderer(Time     .class, date -> toText(date, timeFormatter     )),
+        textRenderer(Timestamp.class, date -> toText(date, timestampFormatter)),
+        textRenderer(java.util.Date.class, date -> toText(date, utilDateFormatter)),
+        textRenderer(LocalDate     .class, localDate      -> localDate     .format(localDateFormatter     )),
+        textRenderer(LocalTime     .class, localTime      -> localTime     .format(localTimeFormatter     )),
+        textRenderer(OffsetTime    .class, offsetTime     -> offsetTime    .format(offsetTimeFormatter    )),
+        textRenderer(LocalDateTime .class, localDateTime  -> localDateTime .format(localDateTimeFormatter )),
+        textRenderer(OffsetDateTime.class, offsetDateTime -> offsetDateTime.format(offsetDateTimeFormatter)),
+        textRenderer(ZonedDateTime .class, zonedDateTime  -> zonedDateTime .format(zonedDateTimeFormatter )),
+        textRenderer(Instant       .class, instant -> instant.atOffset(ZoneOffset.ofHours(0)).format(instantFormatter)),
+        textRenderer(Temporal      .class, DebugTrace::toText),
+        textRenderer(OptionalInt.class, optionalInt ->
+            optionalInt.isPresent() ? String.valueOf(optionalInt.getAsInt()) : "empty"),
+        textRenderer(OptionalLong.class, optionalLong ->
+            optionalLong.isPresent() ? String.valueOf(optionalLong.getAsLong()) : "empty"),
+        textRenderer(OptionalDouble.class, optionalDouble ->
+            optionalDouble.isPresent() ? String.valueOf(optionalDouble.getAsDouble()) : "empty"),
+        new TypeRenderer(Optional.class, (mapName, value, logOptions, typeName) -> {
+            var optional = (Optional<?>)value;
+            if (optional.isPresent())
+                return new Node.Present(typeName, toNode(mapName, optional.get(), logOptions, false, false, true));
+            return new Node.Text(typeName, "empty", false);
+        }),
+        new TypeRenderer(Collection.class, collectionRenderer),
+        new TypeRenderer(Map.class, mapRenderer),
+        new TypeRenderer(Clob.class, DebugTrace::toNodeClob),
+        new TypeRenderer(Blob.class, DebugTrace::toNodeBlob),
+        new TypeRenderer(ByteBuffer.class, (mapName, value, logOptions, typeName) ->
+            toNodeBytes(typeName, (ByteBuffer)value, logOptions))
+    );
 
-    private static final Map<String, Map<Integer, String>> convertMapMap = new HashMap<>();
-    private static String lastLog = "";
+    // The collections and maps whose size method traverses the elements (since 4.2.0)
+    private static final List<Class<?>> expensiveSizeTypes = List.of(
+        ConcurrentLinkedQueue.class, ConcurrentLinkedDeque.class, LinkedTransferQueue.class,
+        ConcurrentSkipListSet.class, ConcurrentSkipListMap.class);
+
+    // The renderer of the other arrays (since 4.2.0)
+    private static final NodeRenderer arrayRenderer = (mapName, value, logOptions, typeName) ->
+        toNodeArray(mapName, value, logOptions);
+
+    // The renderer of the objects output using reflection (since 4.2.0)
+    private static final NodeRenderer reflectionRenderer = DebugTrace::toNodeUsingReflection;
+
+    // The renderer of the objects output using toString method (since 4.2.0)
+    private static final NodeRenderer toStringRenderer = (mapName, value, logOptions, typeName) ->
+        new Node.Text(typeName, toText(value), false);
+    private static volatile String lastLog = "";
 
     // FileLogger keyword since 3.4.0
     private static final String FILE_LOGGER_KEYWORD = "File:";
 
+    // MMap logger keyword since 4.2.0
+    private static final String MMAP_LOGGER_KEYWORD = "MMap:";
+
 
     private static LogOptions defaultLogOptions;
 
@@ -272,9 +461,11 @@ public class DebugTrace {
         keyValueSeparator       = resource.getString("keyValueSeparator"     , ": ");
         printSuffixFormat       = resource.getString("printSuffixFormat"     , " (%3$s:%4$d)");
         sizeFormat              = resource.getString("sizeFormat"            , "size:%1d"); // since 3.0.0
+        sizeAtLeastFormat       = resource.getString("sizeAtLeastFormat"     , "size:>=%1d"); // since 4.2.0
         minimumOutputSize       = resource.getInt   ("minimumOutputSize"     , Integer.MAX_VALUE); // <- 16 <- 5 since 3.0.0
         lengthFormat            = resource.getString("lengthFormat"          , "length:%1d"); // since 3.0.0
         minimumOutputLength     = resource.getInt   ("minimumOutputLength"   , Integer.MAX_VALUE); // <- 16 <- 5 since 3.0.0
+        skippedFormat           = resource.getString("skippedFormat"         , "...(skipped:%1d)..."); // since 4.2.0
         utilDateFormat          = resource.getString("utilDateFormat"        , "yyyy-MM-dd HH:mm:ss.SSSxxx");
         sqlDateFormat           = resource.getString("sqlDateFormat"         , "yyyy-MM-ddxxx");
         timeFormat              = resource.getString("timeFormat"            , "HH:mm:ss.SSSxxx");
@@ -290,6 +481,7 @@ public class DebugTrace {
         timeZone                = resource.getString("timeZone"              , null); // since 4.1.0
         maximumDataOutputWidth  = resource.getInt   ("maximumDataOutputWidth", 70); // since 3.0.0
         collectionLimit         = resource.getInt   ("collectionLimit"       , 128); // <- 512 since 3.5.0
+        collectionTailLimit     = resource.getInt   ("collectionTailLimit"   , 0); // since 4.2.0
         byteArrayLimit          = resource.getInt   ("byteArrayLimit"        , 256); // <- 8192 since 3.5.0
         stringLimit             = resource.getInt   ("stringLimit"           , 256); // <- 8192 since 3.5.0
         reflectionNestLimit     = resource.getInt   ("reflectionNestLimit"   , 4); // since 3.0.0
@@ -297,12 +489,36 @@ public class DebugTrace {
         defaultPackage          = resource.getString("defaultPackage"        , ""); // since 2.3.0
         defaultPackageString    = resource.getString("defaultPackageString"  , "..."); // since 2.3.0
         reflectionClassPaths    = resource.getStringSet("reflectionClasses"  ); // since 3.5.0, 2.4.0
+        expensiveSizeClassPaths = resource.getStringSet("expensiveSizeClasses"); // since 4.2.0
         mapNameMap              = resource.getStringKeyMap("baseMapNameMap"  ); // since 3.6.0
         mapNameMap.putAll        (resource.getStringKeyMap("mapNameMap"     )); // since 2.4.0
+        asyncLogging            = resource.getBoolean("asyncLogging"        , false); // since 4.2.0
+        asyncBufferSize         = resource.getInt   ("asyncBufferSize"       , 8192); // since 4.2.0
+        asyncFullPolicy         = resource.getString("asyncFullPolicy"       , "wait"); // since 4.2.0
+        fileFlush               = resource.getString("fileFlush"             , "line"); // since 4.2.0
+        fileRollSize            = resource.getString("fileRollSize"          , null); // since 4.2.0
+        fileRollInterval        = resource.getString("fileRollInterval"      , null); // since 4.2.0
+        fileRollCount           = resource.getInt   ("fileRollCount"         , 10); // since 4.2.0
+        mmapChunkSize           = resource.getString("mmapChunkSize"         , null); // since 4.2.0
+        binaryTraceFile         = resource.getString("binaryTraceFile"       , null); // since 4.2.0
+        streamingOutput         = resource.getBoolean("streamingOutput"     , false); // since 4.2.0
+        valueRendererClasses    = resource.getStrings("valueRenderers"      ); // since 4.2.0
+        lobLengthOutput         = resource.getBoolean("lobLengthOutput"     , true); // since 4.2.0
+        samplingRules           = resource.getCaseSensitiveStringKeyMap("samplingRules"); // since 4.2.0
+        samplingReportInterval  = resource.getString("samplingReportInterval", "1m"); // since 4.2.0
+        suppressedFormat        = resource.getString("suppressedFormat"      , "(%1d logs suppressed)"); // since 4.2.0
         mapNameMap.keySet().forEach(key -> {
             String mapName = mapNameMap.get(key);
             convertMapMap.put(mapName, resource.getIntegerKeyMap(mapName));
         });
+        valueRenderers = loadValueRenderers(); // since 4.2.0
+        ++classInfoGeneration; // since 4.2.0
+
+        // since 4.2.0, reports the suppressed logs with the previous logger before it is closed
+        stopSamplingReport();
+        reportSuppressed();
+        samplers.clear();
+        samplingRuleMap = createSamplingRuleMap();
 
         utilDateFormatter       = createDateTimeFormatter(utilDateFormat      );
         sqlDateFormatter        = createDateTimeFormatter(sqlDateFormat       );
@@ -316,6 +532,18 @@ public class DebugTrace {
         zonedDateTimeFormatter  = createDateTimeFormatter(zonedDateTimeFormat );
         instantFormatter        = createDateTimeFormatter(instantFormat       );
         logDateTimeFormatter    = createDateTimeFormatter(logDateTimeFormat   );
+
+        // since 4.2.0
+        enterTemplate           = Template.compile(enterFormat         , STRING, STRING, STRING, INT, TIME, STRING, INT);
+        leaveTemplate           = Template.compile(leaveFormat         , STRING, STRING, STRING, INT, TIME, STRING, INT);
+        threadBoundaryTemplate  = Template.compile(threadBoundaryFormat, STRING, LONG);
+        classBoundaryTemplate   = Template.compile(classBoundaryFormat , STRING);
+        printSuffixTemplate     = Template.compile(printSuffixFormat   , STRING, STRING, STRING, INT, TIME, STRING, INT);
+        sizeTemplate            = Template.compile(sizeFormat          , INT);
+        sizeAtLeastTemplate     = Template.compile(sizeAtLeastFormat   , INT); // since 4.2.0
+        lengthTemplate          = Template.compile(lengthFormat        , LONG);
+        skippedTemplate         = Template.compile(skippedFormat       , LONG); // since 4.2.0
+        suppressedTemplate      = Template.compile(suppressedFormat    , LONG); // since 4.2.0
         try {
             if (timeZone != null)
                 zoneId = ZoneId.of(timeZone);
@@ -325,6 +553,7 @@ public class DebugTrace {
         }
         if (zoneId == null)
             zoneId = ZoneId.systemDefault();
+        logTimestampCache = new TimestampCache(logDateTimeFormatter, zoneId); // since 4.2.0
 
         indentStrings[0] = "";
         IntStream.iterate(1, index -> index + 1).limit(indentStrings.length - 1)
@@ -334,15 +563,19 @@ public class DebugTrace {
         IntStream.iterate(1, index -> index + 1).limit(dataIndentStrings.length - 1)
             .forEach(index -> dataIndentStrings[index] = dataIndentStrings[index - 1] + dataIndentString);
 
+        if (logger != null)
+            logger.close(); // since 4.2.0
         logger = null;
         String loggerName = null;
         try {
             loggerName = resource.getString("logger", null);
             if (loggerName != null) {
                 // FileLogger detection
-                if (loggerName.startsWith(FILE_LOGGER_KEYWORD)) {
-                    // File Logger
-                    var path = loggerName.substring(FILE_LOGGER_KEYWORD.length()).trim();
+                var isFileLogger = loggerName.startsWith(FILE_LOGGER_KEYWORD);
+                var isMMapLogger = loggerName.startsWith(MMAP_LOGGER_KEYWORD); // since 4.2.0
+                if (isFileLogger || isMMapLogger) {
+                    // File Logger or MMap Logger
+                    var path = loggerName.substring((isFileLogger ? FILE_LOGGER_KEYWORD : MMAP_LOGGER_KEYWORD).length()).trim();
                     var charset = Charset.forName("UTF-8");
                     var lineSeparator = LineSeparator.parse(System.getProperty("line.separator"));
                     var colonIndex = path.indexOf(':');
@@ -381,7 +614,34 @@ public class DebugTrace {
                         throw new RuntimeException(parentFile.getPath() + " dose not exist.");
                     if (file.exists() && !file.isFile())
                         throw new RuntimeException(file.getPath() + " is not a file.");
-                    logger = new org.debugtrace.logger.File(file, charset, lineSeparator, append);
+                    var rollPolicy = RollPolicy.NONE;
+                    try {
+                        rollPolicy = new RollPolicy(RollPolicy.parseSize(fileRollSize),
+                            RollPolicy.parseInterval(fileRollInterval), Math.max(fileRollCount, 0));
+                    }
+                    catch (Exception e) {
+                        System.err.println("DebugTrace: " + e.toString());
+                    }
+                    if (isFileLogger) {
+                        var flushPolicy = FlushPolicy.LINE;
+                        try {
+                            flushPolicy = FlushPolicy.parse(fileFlush);
+                        }
+                        catch (Exception e) {
+                            System.err.println("DebugTrace: " + e.toString());
+                        }
+                        logger = new org.debugtrace.logger.File(file, charset, lineSeparator, append, flushPolicy, rollPolicy);
+                    } else {
+                        var chunkSize = MMap.DEFAULT_CHUNK_SIZE;
+                        try {
+                            if (mmapChunkSize != null)
+                                chunkSize = Math.min(RollPolicy.parseSize(mmapChunkSize), Integer.MAX_VALUE);
+                        }
+                        catch (Exception e) {
+                            System.err.println("DebugTrace: " + e.toString());
+                        }
+                        logger = new MMap(file, charset, lineSeparator, append, chunkSize, rollPolicy);
+                    }
                 } else {
                     // not File Logger
                     if (loggerName.indexOf('.') == -1)
@@ -402,6 +662,39 @@ public class DebugTrace {
         if (logger == null)
             logger = new Std.Err();
 
+        // since 4.2.0
+        if (asyncLogging) {
+            try {
+                logger = new Async(logger, asyncBufferSize, Async.FullPolicy.parse(asyncFullPolicy));
+            }
+            catch (Exception e) {
+                System.err.println("DebugTrace: " + e.toString());
+            }
+        }
+
+        // since 4.2.0
+        if (traceWriter != null)
+            traceWriter.close();
+        traceWriter = null;
+        if (binaryTraceFile != null) {
+            try {
+                traceWriter = new TraceWriter(new File(binaryTraceFile).getAbsoluteFile());
+            }
+            catch (Exception e) {
+                System.err.println("DebugTrace: " + e.toString());
+            }
+        }
+
+        // since 4.2.0
+        if (!samplingRuleMap.isEmpty()) {
+            try {
+                startSamplingReport(RollPolicy.parseInterval(samplingReportInterval));
+            }
+            catch (Exception e) {
+                System.err.println("DebugTrace: " + e.toString());
+            }
+        }
+
         // Get the Java vendor and runtime version
         var javaVendor = System.getProperty("java.vendor");
         var javaRuntimeName = System.getProperty("java.runtime.name");
@@ -412,6 +705,8 @@ public class DebugTrace {
         logger.log("  property name: " + baseName + ".properties");
         logger.log("  logger: " + logger.toString());
         logger.log("  time zone: " + zoneId.toString());
+        if (traceWriter != null)
+            logger.log("  binary trace file: " + traceWriter.toString()); // since 4.2.0
 
         defaultLogOptions = new LogOptions();
     }
@@ -443,25 +738,44 @@ public class DebugTrace {
      * @return a string appended a timestamp string
      */
     public static String appendTimestamp(String string) {
-        return logDateTimeFormatter == null ? string : ZonedDateTime.now(zoneId).format(logDateTimeFormatter) + " " + string;
+        return logTimestampCache == null ? string : logTimestampCache.format(Instant.now()) + " " + string;
     }
 
     /**
-     * Returns indent state.
+     * Append the timestamp of an event to the head of the string.<br>
+     * <i>This method is used internally.</i>
+     *
+     * @param string a string
+     * @param instant the time of the event
+     * @return a string appended a timestamp string
+     * @since 4.2.0
      */
-    private static State getCurrentState() {
-        State state;
-        var threadId = Thread.currentThread().getId();
-
-        if (stateMap.containsKey(threadId)) {
-            state = stateMap.get(threadId);
-        } else {
-            state = new State(threadId);
-            stateMap.put(threadId, state);
-        }
+    public static String appendTimestamp(String string, Instant instant) {
+        return logTimestampCache == null ? string : logTimestampCache.format(instant) + " " + string;
+    }
 
+    /**
+     * Replaces the logger with the logger that outputs the lines rendered from a binary trace file.
+     *
+     * @param renderLogger the logger that outputs the rendered lines
+     * @since 4.2.0
+     */
+    static void startRendering(Logger renderLogger) {
+        reportSuppressed(); // since 4.2.0
+        if (traceWriter != null)
+            traceWriter.close();
+        traceWriter = null;
+        logger.close();
+        logger = renderLogger;
+        beforeThreadId = 0L;
+        lastLog = "";
+    }
 
-        return state;
+    /**
+     * Returns indent state.
+     */
+    private static State getCurrentState() {
+        return stateThreadLocal.get();
     }
 
     /**
@@ -492,67 +806,234 @@ public class DebugTrace {
     }
 
     /**
-     * Common start processing of output.
+     * Common start processing of output.<br>
+     * Call this method while holding the logLock.
+     *
+     * @param threadId the id of the thread
+     * @param threadName the name of the thread
      */
-    private static void printStart() {
-        var thread = Thread.currentThread();
-        var threadId = thread.getId();
+    private static void printStart(long threadId, String threadName) {
         if (threadId !=  beforeThreadId) {
             // Thread changing
             logger.log(""); // Line break
-            logger.log(threadBoundaryFormat.formatted(thread.getName(), threadId));
+            var threadBoundary = new StringBuilder();
+            threadBoundaryTemplate.appendTo(threadBoundary, threadName, threadId);
+            logger.log(threadBoundary.toString());
             logger.log(""); // Line break
 
             beforeThreadId = threadId;
         }
     }
 
+    /**
+     * The lines of a print output together.
+     *
+     * @since 4.2.0
+     */
+    private static class PrintLines {
+        private final long threadId;
+        private final String threadName;
+
+        // The lines held until another streaming print finishes
+        private final List<String> lines = new ArrayList<>();
+
+        // true if all the lines are laid out
+        private boolean finished;
+
+        /**
+         * Constructs a PrintLines.
+         *
+         * @param threadId the id of the thread
+         * @param threadName the name of the thread
+         */
+        PrintLines(long threadId, String threadName) {
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+    }
+
+    /**
+     * Outputs the finished lines of a print,
+     * or holds them until the streaming print finishes if another print is streaming its lines.<br>
+     * Call this method while holding the logLock.
+     *
+     * @param threadId the id of the thread
+     * @param threadName the name of the thread
+     * @param logs the lines to output
+     * @since 4.2.0
+     */
+    private static void outputLines(long threadId, String threadName, String... logs) {
+        if (streamingLines != null) {
+            var print = new PrintLines(threadId, threadName);
+            print.lines.addAll(Arrays.asList(logs));
+            print.finished = true;
+            heldLines.addLast(print);
+            return;
+        }
+
+        printStart(threadId, threadName); // Common start processing of output
+        for (var log : logs)
+            logger.log(log);
+    }
+
+    /**
+     * Starts a streaming print.<br>
+     * The lines of the print are passed to the logger as soon as they are laid out
+     * if no other print is streaming its lines, and are held until it finishes otherwise.<br>
+     * Call this method while holding the logLock.
+     *
+     * @param threadId the id of the thread
+     * @param threadName the name of the thread
+     * @return the lines of the print
+     * @since 4.2.0
+     */
+    private static PrintLines startStreaming(long threadId, String threadName) {
+        var print = new PrintLines(threadId, threadName);
+        if (streamingLines == null)
+            streamingLines = print;
+        else
+            heldLines.addLast(print);
+        return print;
+    }
+
+    /**
+     * Outputs or holds a line of a streaming print.<br>
+     * Call this method while holding the logLock.
+     *
+     * @param print the lines of the print
+     * @param log the line
+     * @since 4.2.0
+     */
+    private static void streamLine(PrintLines print, String log) {
+        if (print == streamingLines) {
+            printStart(print.threadId, print.threadName); // Common start processing of output
+            logger.log(log);
+        } else {
+            print.lines.add(log);
+        }
+    }
+
+    /**
+     * Finishes a streaming print and outputs the lines held while it was streaming.<br>
+     * If a held print has not finished yet, it becomes the streaming print after its held lines are output.<br>
+     * Call this method while holding the logLock.
+     *
+     * @param print the lines of the print
+     * @since 4.2.0
+     */
+    private static void finishStreaming(PrintLines print) {
+        print.finished = true;
+        if (print != streamingLines)
+            return;
+
+        streamingLines = null;
+        while (!heldLines.isEmpty()) {
+            var heldPrint = heldLines.removeFirst();
+            if (!heldPrint.lines.isEmpty()) {
+                printStart(heldPrint.threadId, heldPrint.threadName); // Common start processing of output
+                for (var log : heldPrint.lines)
+                    logger.log(log);
+                heldPrint.lines.clear();
+            }
+            if (!heldPrint.finished) {
+                streamingLines = heldPrint;
+                break;
+            }
+        }
+    }
+
     /**
      * Call this method at entrance of your methods.
      */
     public static void enter() {
         if (isEnabled()) {
-            synchronized(stateMap) {
-                State state = getCurrentState();
-    
-                printStart(); // Common start processing of output
-    
-                if (state.previousNestLevel() > state.nestLevel())
-                    logger.log(getIndentString(state.nestLevel(), 0)); // Line break
-    
-                lastLog = getIndentString(state.nestLevel(), 0) + createPrintString(enterFormat, null);
-                logger.log(lastLog);
-    
-                state.setPreviousLineCount(1);
-    
+            var state = getCurrentState();
+            var thread = Thread.currentThread();
+            var callSite = getStackTraceElements(2);
+
+            var writer = traceWriter;
+            if (writer != null) {
+                writer.enter(thread, callSite); // since 4.2.0
                 state.upNest();
+            } else {
+                logEnter(state, thread.getId(), thread.getName(), callSite);
             }
         }
     }
 
+    /**
+     * Outputs the log of entering a method and ups the nest level.
+     *
+     * @param state the state of the thread
+     * @param threadId the id of the thread
+     * @param threadName the name of the thread
+     * @param callSite the stack trace elements of the method and its caller
+     * @since 4.2.0
+     */
+    static void logEnter(State state, long threadId, String threadName, List<StackTraceElement> callSite) {
+        var indentString = getIndentString(state.nestLevel(), 0);
+        var log = indentString + createPrintString(enterTemplate, callSite, Template.NO_TIME);
+
+        synchronized(logLock) {
+            if (state.previousNestLevel() > state.nestLevel())
+                outputLines(threadId, threadName, indentString, log); // with a line break
+            else
+                outputLines(threadId, threadName, log);
+            lastLog = log;
+        }
+
+        state.setPreviousLineCount(1);
+
+        state.upNest();
+    }
+
     /**
      * Call this method at exit of your methods.
      */
     public static void leave() {
         if (isEnabled()) {
-            synchronized(stateMap) {
-                var state = getCurrentState();
-    
-                printStart(); // Common start processing of output
-    
-                if (state.previousLineCount() > 1)
-                    logger.log(getIndentString(state.nestLevel(), 0)); // Empty Line
-    
-                var timeSpan = System.nanoTime() - state.downNest();
-                Instant instant = Instant.ofEpochSecond(timeSpan / 1000_000_000, timeSpan % 1000_000_000);
-                OffsetDateTime dateTime = OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
-
-                lastLog = getIndentString(state.nestLevel(), 0) + createPrintString(leaveFormat, dateTime);
-                logger.log(lastLog);
+            var state = getCurrentState();
+            var thread = Thread.currentThread();
+            var callSite = getStackTraceElements(2);
+            var timeSpan = System.nanoTime() - state.enterTime();
+
+            var writer = traceWriter;
+            if (writer != null) {
+                writer.leave(thread, callSite, timeSpan); // since 4.2.0
+                state.downNest();
+            } else {
+                logLeave(state, thread.getId(), thread.getName(), callSite, timeSpan);
             }
         }
     }
 
+    /**
+     * Downs the nest level and outputs the log of leaving a method.
+     *
+     * @param state the state of the thread
+     * @param threadId the id of the thread
+     * @param threadName the name of the thread
+     * @param callSite the stack trace elements of the method and its caller
+     * @param timeSpan the time from method start to end in nanoseconds
+     * @since 4.2.0
+     */
+    static void logLeave(State state, long threadId, String threadName, List<StackTraceElement> callSite, long timeSpan) {
+        var emptyLine = state.previousLineCount() > 1 ? getIndentString(state.nestLevel(), 0) : null;
+
+        state.downNest();
+
+        var indentString = getIndentString(state.nestLevel(), 0);
+        var log = indentString + createPrintString(leaveTemplate, callSite, timeSpan);
+
+        synchronized(logLock) {
+            if (emptyLine != null)
+                outputLines(threadId, threadName, emptyLine, log); // with an empty Line
+            else
+                outputLines(threadId, threadName, log);
+            lastLog = log;
+        }
+    }
+
     /**
      * Outputs the message to the log.
      *
@@ -569,17 +1050,21 @@ public class DebugTrace {
      * Outputs a message to the log.
      *
      * @param messageSupplier a message supplier
-     * @return the message if isEnabled(), otherwise null
+     * @return the message if isEnabled() and the log is output by the sampling rule, otherwise null
      */
     public static String print(Supplier<String> messageSupplier) {
         if (isEnabled()) {
-            try {
-                String message = messageSupplier.get();
-                printSub(messageSupplier.get());
-                return message;
-            }
-            catch (Exception e) { 
-                printSub(e.toString());
+            // since 4.2.0, decided by the sampling rule of the call site before the message is got
+            var callSite = getStackTraceElements(2);
+            if (isSampled(callSite)) {
+                try {
+                    String message = messageSupplier.get();
+                    printMessage(message, callSite);
+                    return message;
+                }
+                catch (Exception e) { 
+                    printMessage(e.toString(), callSite);
+                }
             }
         }
         return null;
@@ -591,14 +1076,47 @@ public class DebugTrace {
      * @param message a message
      */
     private static void printSub(String message) {
-        synchronized(stateMap) {
-            printStart(); // Common start processing of output
+        var callSite = message.isEmpty() ? List.<StackTraceElement>of() : getStackTraceElements(2);
+        if (isSampled(callSite)) // since 4.2.0
+            printMessage(message, callSite);
+    }
 
-            if (!message.isEmpty()) {
-                lastLog = getIndentString(getCurrentState().nestLevel(), 0) +
-                    message + createPrintString(printSuffixFormat, null);
-            }
-            logger.log(lastLog);
+    /**
+     * Outputs the message with the call site to the log.
+     *
+     * @param message a message
+     * @param callSite the stack trace elements of the caller
+     * @since 4.2.0
+     */
+    private static void printMessage(String message, List<StackTraceElement> callSite) {
+        var thread = Thread.currentThread();
+
+        var writer = traceWriter;
+        if (writer != null)
+            writer.message(thread, callSite, message); // since 4.2.0
+        else
+            logMessage(getCurrentState(), thread.getId(), thread.getName(), callSite, message);
+    }
+
+    /**
+     * Outputs the message to the log.<br>
+     * If the message is empty, outputs the last log again.
+     *
+     * @param state the state of the thread
+     * @param threadId the id of the thread
+     * @param threadName the name of the thread
+     * @param callSite the stack trace elements of the caller
+     * @param message a message
+     * @since 4.2.0
+     */
+    static void logMessage(State state, long threadId, String threadName, List<StackTraceElement> callSite, String message) {
+        var log = message.isEmpty() ? null
+            : getIndentString(state.nestLevel(), 0) + message + createPrintString(printSuffixTemplate, callSite, Template.NO_TIME);
+
+        synchronized(logLock) {
+            if (log != null)
+                lastLog = log;
+            outputLines(threadId, threadName, lastLog);
         }
     }
 
@@ -611,70 +1129,222 @@ public class DebugTrace {
      * @param isPrimitive true if the value is primitive type, false otherwise
      */
     private static void printSub(String name, Object value, LogOptions logOptions, boolean isPrimitive) {
-        synchronized(stateMap) {
-            var state = getCurrentState();
- 
-            printStart(); // Common start processing of output
+        // since 4.2.0, decided by the sampling rule of the call site before the value is converted
+        var callSite = getStackTraceElements(2);
+        if (isSampled(callSite))
+            printValue(callSite, name, value, logOptions, isPrimitive);
+    }
 
-            reflectedObjects.clear();
+    /**
+     * Outputs the name and value with the call site to the log.
+     *
+     * @param callSite the stack trace elements of the caller
+     * @param name the name of the value
+     * @param value the value to output (accept null)
+     * @param logOptions LogOptions
+     * @param isPrimitive true if the value is primitive type, false otherwise
+     * @since 4.2.0
+     */
+    private static void printValue(List<StackTraceElement> callSite, String name, Object value, LogOptions logOptions, boolean isPrimitive) {
+        var state = getCurrentState();
+        var thread = Thread.currentThread();
+        var writer = traceWriter;
 
-            var buff = new LogBuffer();
+        // Converts the value to a Node outside the lock
+        // (since 4.2.0, the elements of the containers are converted while laid out if streaming)
+        state.reflectedObjects().clear();
+        state.setLazyConversion(writer == null && streamingOutput);
+        var node = toNode(getMapName(name), value, logOptions, isPrimitive, false, false);
 
-            buff.append(name);
-            var mapName = getMapName(name);
-            var valueBuff = toString(mapName, value, logOptions, isPrimitive, false, false);
-            buff.append(varNameValueSeparator, valueBuff);
-
-            buff.noBreakAppend(createPrintString(printSuffixFormat, null));
-
-            var lines = buff.lines();
-            if (state.previousLineCount() > 1 || lines.size() > 1)
-                logger.log(getIndentString(state.nestLevel(), 0)); // Empty Line
-
-            var lastLogBuff = new StringBuilder();
-            for (var dataNestLevelLine : lines) {
-                var dataNestLevel = dataNestLevelLine.value1();
-                var line = dataNestLevelLine.value2();
-                var log = getIndentString(state.nestLevel(), dataNestLevel) + line;
-                logger.log(log);
-                lastLogBuff.append(log).append('\n');
-            }
+        if (writer != null)
+            writer.print(thread, callSite, name, node); // since 4.2.0
+        else
+            logPrint(state, thread.getId(), thread.getName(), callSite, name, node);
+    }
+
+    /**
+     * Outputs the name and the Node of the value to the log.
+     *
+     * @param state the state of the thread
+     * @param threadId the id of the thread
+     * @param threadName the name of the thread
+     * @param callSite the stack trace elements of the caller
+     * @param name the name of the value
+     * @param node the Node of the value
+     * @since 4.2.0
+     */
+    static void logPrint(State state, long threadId, String threadName, List<StackTraceElement> callSite, String name, Node node) {
+        if (streamingOutput) {
+            streamPrint(state, threadId, threadName, callSite, name, node);
+            return;
+        }
+
+        var buff = new LogBuffer();
+
+        buff.append(name);
+        buff.appendNested(layout(buff.newNested(varNameValueSeparator, null), node), false);
+
+        buff.noBreakAppend(createPrintString(printSuffixTemplate, callSite, Template.NO_TIME));
+
+        var lineCount = buff.lineCount();
+        var emptyLineCount = state.previousLineCount() > 1 || lineCount > 1 ? 1 : 0;
+        var logs = new String[emptyLineCount + lineCount];
+        if (emptyLineCount > 0)
+            logs[0] = getIndentString(state.nestLevel(), 0); // Empty Line
+        var lastLogBuff = new StringBuilder();
+        var logBuff = new StringBuilder();
+        for (var index = 0; index < lineCount; ++index) {
+            logBuff.setLength(0);
+            logBuff.append(getIndentString(state.nestLevel(), buff.dataNestLevel(index)));
+            logs[emptyLineCount + index] = buff.appendLineTo(logBuff, index).toString();
+            lastLogBuff.append(logBuff).append('\n');
+        }
+
+        // Outputs the finished lines
+        synchronized(logLock) {
+            outputLines(threadId, threadName, logs);
             lastLog = lastLogBuff.toString();
+        }
+
+        state.setPreviousLineCount(lineCount);
+    }
+
+    /**
+     * Passes the lines of a print to the logger as soon as they are broken.<br>
+     * Holds the first line until the second line to output an empty line before multiple lines.
+     *
+     * @since 4.2.0
+     */
+    private static class StreamingSink implements LogBuffer.LineSink {
+        private final PrintLines print;
+        private final int nestLevel;
+        private final boolean afterMultiLines;
+        private final StringBuilder logBuff = new StringBuilder();
+        private String firstLog;
+        private int lineCount;
+
+        /**
+         * Constructs a StreamingSink.
+         *
+         * @param print the lines of the print
+         * @param nestLevel the nest level of the thread
+         * @param afterMultiLines true if the previous output was multiple lines
+         */
+        StreamingSink(PrintLines print, int nestLevel, boolean afterMultiLines) {
+            this.print = print;
+            this.nestLevel = nestLevel;
+            this.afterMultiLines = afterMultiLines;
+        }
+
+        @Override
+        public void accept(int dataNestLevel, char[] chars, int length) {
+            logBuff.setLength(0);
+            var log = logBuff.append(getIndentString(nestLevel, dataNestLevel)).append(chars, 0, length).toString();
+            if (++lineCount == 1) {
+                firstLog = log;
+                return;
+            }
+            synchronized(logLock) {
+                if (lineCount == 2) {
+                    streamLine(print, getIndentString(nestLevel, 0)); // Empty Line
+                    streamLine(print, firstLog);
+                    firstLog = null;
+                }
+                streamLine(print, log);
+            }
+            lastLog = log + '\n';
+        }
+
+        /**
+         * Outputs the first line if it is the only line.
+         */
+        void close() {
+            if (lineCount == 1) {
+                synchronized(logLock) {
+                    if (afterMultiLines)
+                        streamLine(print, getIndentString(nestLevel, 0)); // Empty Line
+                    streamLine(print, firstLog);
+                }
+                lastLog = firstLog + '\n';
+            }
+        }
+    }
+
+    /**
+     * Outputs the name and the Node of the value to the log passing each line to the logger as soon as it is laid out.<br>
+     * The value is laid out (and the elements of the containers are converted) without holding the lock of the log,
+     * and the lock is held only to pass each line.
+     * The lines of the other prints during the streaming are held and output after the lines of the value.
+     * Only the last line is kept as the last log.
+     *
+     * @param state the state of the thread
+     * @param threadId the id of the thread
+     * @param threadName the name of the thread
+     * @param callSite the stack trace elements of the caller
+     * @param name the name of the value
+     * @param node the Node of the value
+     * @since 4.2.0
+     */
+    private static void streamPrint(State state, long threadId, String threadName, List<StackTraceElement> callSite, String name, Node node) {
+        var suffix = createPrintString(printSuffixTemplate, callSite, Template.NO_TIME);
 
-            state.setPreviousLineCount(lines.size());
+        PrintLines print;
+        synchronized(logLock) {
+            print = startStreaming(threadId, threadName);
+        }
+
+        var lineCount = 0;
+        try {
+            var sink = new StreamingSink(print, state.nestLevel(), state.previousLineCount() > 1);
+            var buff = new LogBuffer(sink);
+            buff.append(name);
+            buff.appendNested(layout(buff.newNested(varNameValueSeparator, null), node), false);
+            buff.noBreakAppend(suffix);
+            buff.flush();
+            sink.close();
+            lineCount = buff.lineCount();
         }
+        finally {
+            synchronized(logLock) {
+                finishStreaming(print);
+            }
+        }
+
+        state.setPreviousLineCount(lineCount);
     }
 
     /**
      * Creates a print string.
      *
-     * @param formatString the format string
-     * @param dateTime the time from method start to end
+     * @param template the compiled format string (since 4.2.0)
+     * @param callSite the stack trace elements of the method and its caller
+     * @param timeSpan the time from method start to end in nanoseconds (Template.NO_TIME if none) (since 4.2.0)
      * @return a print string
      * @since 3.6.0
      */
-    private static String createPrintString(String formatString, OffsetDateTime dateTime) {
-        List<StackTraceElement> elements = getStackTraceElements(2);
-        StackTraceElement element = elements.size() > 0
-            ? elements.get(0)
+    private static String createPrintString(Template template, List<StackTraceElement> callSite, long timeSpan) {
+        StackTraceElement element = callSite.size() > 0
+            ? callSite.get(0)
             : new StackTraceElement("", "", "", 0);
-        StackTraceElement parentElement = elements.size() > 1
-            ? elements.get(1)
+        StackTraceElement parentElement = callSite.size() > 1
+            ? callSite.get(1)
             : new StackTraceElement("", "", "", 0);
 
-        String printString = String.format(formatString,
+        var printString = new StringBuilder();
+        template.appendTo(printString,
             replaceTypeName(element.getClassName()),
             element.getMethodName(),
             element.getFileName(),
             element.getLineNumber(),
-            dateTime,
+            timeSpan,
             parentElement.getFileName(),
             parentElement.getLineNumber());
-        return printString;
+        return printString.toString();
     }
 
     /**
-     * Returns stack trace elements.
+     * Returns stack trace elements.<br>
+     * Walks only the frames up to the callers to return instead of capturing the whole stack. (since 4.2.0)
      *
      * @param maxCount maximum number of stack trace elements to return
      * @return stack trace elements
@@ -682,83 +1352,237 @@ public class DebugTrace {
     private static List<StackTraceElement> getStackTraceElements(int maxCount) {
         var myClassName = DebugTrace.class.getName();
 
-        var elements = Thread.currentThread().getStackTrace();
-        var result = new ArrayList<StackTraceElement>();
-        outerLoop:
-        for (var index = 2; index < elements.length; ++index) {
-            var element = elements[index];
-            var className = element.getClassName();
-            if (className.indexOf(myClassName) >= 0) continue;
-            for (var skipPackage : skipPackages)
-               if (className.indexOf(skipPackage) >= 0) continue outerLoop;
-            result.add(element);
-            if (result.size() >= maxCount)
-                break;
-        }
-
-        return result;
+        return stackWalker.walk(frames -> {
+            var result = new ArrayList<StackTraceElement>();
+            var iterator = frames.iterator();
+            outerLoop:
+            while (iterator.hasNext()) {
+                var frame = iterator.next();
+                var className = frame.getClassName();
+                if (className.indexOf(myClassName) >= 0) continue;
+                for (var skipPackage : skipPackages)
+                   if (className.indexOf(skipPackage) >= 0) continue outerLoop;
+                result.add(frame.toStackTraceElement());
+                if (result.size() >= maxCount)
+                    break;
+            }
+            return result;
+        });
     }
 
     /**
-     * Outputs the name and the boolean value to the log.
+     * Creates the sampling rules from the samplingRules property.
      *
-     * @param name the name of the value
-     * @param value the boolean value to output
-     * @return the value
+     * @return the map of the patterns and the sampling rules
+     * @since 4.2.0
      */
-    public static boolean print(String name, boolean value) {
-        return print(name, value, defaultLogOptions);
+    private static Map<String, Sampler.Rule> createSamplingRuleMap() {
+        var ruleMap = new HashMap<String, Sampler.Rule>();
+        samplingRules.forEach((pattern, rule) -> {
+            try {
+                ruleMap.put(pattern, Sampler.Rule.parse(rule));
+            }
+            catch (Exception e) {
+                System.err.println("DebugTrace: " + e.toString());
+            }
+        });
+        return Map.copyOf(ruleMap);
     }
 
     /**
-     * Outputs the name and the boolean value to the log.
+     * Returns true if the log of the call site is output by the sampling rule.
      *
-     * @param name the name of the value
-     * @param value the boolean value to output
-     * @param logOptions LogOptions
-     * @return the value
-     * @since 3.7.0
+     * @param callSite the stack trace elements of the caller
+     * @return true if the log is output; false if suppressed
+     * @since 4.2.0
      */
-    public static boolean print(String name, boolean value, LogOptions logOptions) {
-        if (isEnabled())
-            printSub(name, value, logOptions, true);
-        return value;
+    private static boolean isSampled(List<StackTraceElement> callSite) {
+        if (samplingRuleMap.isEmpty() || callSite.isEmpty())
+            return true;
+
+        // Locks only when the call site is found first
+        var element = callSite.get(0);
+        var sampler = samplers.get(element);
+        if (sampler == null) {
+            var rule = getSamplingRule(element);
+            if (rule == null)
+                return true;
+            sampler = samplers.computeIfAbsent(element, key -> new Sampler(rule, key));
+        }
+        return sampler.sample(System.nanoTime());
     }
 
     /**
-     * Outputs the name and the char value to the log.
+     * Returns the sampling rule of the method, the class or the package of the call site.<br>
+     * The enclosing classes of a nested class and the parent packages are also matched in order,
+     * and a lambda expression is matched as the method that declares it.
      *
-     * @param name the name of the value
-     * @param value the char value to output
-     * @return the value
+     * @param callSite the stack trace element of the call site
+     * @return the sampling rule (null if no rule matches)
+     * @since 4.2.0
      */
-    public static char print(String name, char value) {
-        return print(name, value, defaultLogOptions);
+    private static Sampler.Rule getSamplingRule(StackTraceElement callSite) {
+        var className = callSite.getClassName();
+        var rule = samplingRuleMap.get(className + '.' + getDeclaringMethodName(callSite.getMethodName()));
+
+        // The class and the enclosing classes (Outer$Inner -> Outer)
+        var name = className;
+        while (rule == null) {
+            rule = samplingRuleMap.get(name);
+            var dollarIndex = name.lastIndexOf('$');
+            if (dollarIndex <= name.lastIndexOf('.') + 1)
+                break;
+            name = name.substring(0, dollarIndex);
+        }
+
+        // The package and the parent packages (a.b.c. -> a.b. -> a.)
+        for (var dotIndex = className.lastIndexOf('.'); rule == null && dotIndex >= 0;
+                dotIndex = className.lastIndexOf('.', dotIndex - 1))
+            rule = samplingRuleMap.get(className.substring(0, dotIndex + 1));
+
+        return rule;
     }
 
     /**
-     * Outputs the name and the char value to the log.
+     * Returns the name of the method that declares the lambda expression if the method is the body of it.
      *
-     * @param name the name of the value
-     * @param value the char value to output
-     * @param logOptions LogOptions
-     * @return the value
-     * @since 3.7.0
+     * @param methodName the method name of a stack trace element (e.g. <code>lambda$foo$0</code>)
+     * @return the name of the declaring method (e.g. <code>foo</code>), or the method name if not a lambda expression
+     * @since 4.2.0
      */
-    public static char print(String name, char value, LogOptions logOptions) {
-        if (isEnabled())
-            printSub(name, value, defaultLogOptions, true);
-        return value;
+    private static String getDeclaringMethodName(String methodName) {
+        if (methodName.startsWith("lambda$")) {
+            var endIndex = methodName.indexOf('$', "lambda$".length());
+            if (endIndex > "lambda$".length())
+                return methodName.substring("lambda$".length(), endIndex);
+        }
+        return methodName;
     }
 
     /**
-     * Outputs the name and the byte value to the log.
+     * Starts the timer that reports the suppressed logs every interval and at shutdown.
      *
-     * @param name the name of the value
-     * @param value the byte value to output
-     * @return the value
+     * @param interval the interval in milliseconds (not reported if 0)
+     * @since 4.2.0
      */
-    public static byte print(String name, byte value) {
+    private static void startSamplingReport(long interval) {
+        if (interval <= 0L)
+            return;
+
+        samplingReportTimer = new Timer("DebugTrace-Sampling-Report", true);
+        samplingReportTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                reportSuppressed();
+            }
+        }, interval, interval);
+        Runtime.getRuntime().addShutdownHook(samplingReportHook);
+    }
+
+    /**
+     * Stops the timer that reports the suppressed logs.
+     *
+     * @since 4.2.0
+     */
+    private static void stopSamplingReport() {
+        if (samplingReportTimer == null)
+            return;
+
+        samplingReportTimer.cancel();
+        samplingReportTimer = null;
+        try {
+            Runtime.getRuntime().removeShutdownHook(samplingReportHook);
+        }
+        catch (IllegalStateException e) {
+            // in shutdown
+        }
+    }
+
+    /**
+     * Outputs the number of the suppressed logs of each call site since the last report.<br>
+     * Called by the timer every samplingReportInterval, at shutdown and before the logger is closed.
+     * The logs are not indented with the nest level of the current thread.
+     *
+     * @since 4.2.0
+     */
+    private static void reportSuppressed() {
+        var thread = Thread.currentThread();
+        var state = new State(thread.getId());
+        samplers.values().forEach(sampler -> {
+            var count = sampler.takeSuppressedCount();
+            if (count > 0L) {
+                var message = new StringBuilder();
+                suppressedTemplate.appendTo(message, count);
+                var callSite = List.of(sampler.callSite());
+                var writer = traceWriter;
+                if (writer != null)
+                    writer.message(thread, callSite, message.toString());
+                else
+                    logMessage(state, thread.getId(), thread.getName(), callSite, message.toString());
+            }
+        });
+    }
+
+    /**
+     * Outputs the name and the boolean value to the log.
+     *
+     * @param name the name of the value
+     * @param value the boolean value to output
+     * @return the value
+     */
+    public static boolean print(String name, boolean value) {
+        return print(name, value, defaultLogOptions);
+    }
+
+    /**
+     * Outputs the name and the boolean value to the log.
+     *
+     * @param name the name of the value
+     * @param value the boolean value to output
+     * @param logOptions LogOptions
+     * @return the value
+     * @since 3.7.0
+     */
+    public static boolean print(String name, boolean value, LogOptions logOptions) {
+        if (isEnabled())
+            printSub(name, value, logOptions, true);
+        return value;
+    }
+
+    /**
+     * Outputs the name and the char value to the log.
+     *
+     * @param name the name of the value
+     * @param value the char value to output
+     * @return the value
+     */
+    public static char print(String name, char value) {
+        return print(name, value, defaultLogOptions);
+    }
+
+    /**
+     * Outputs the name and the char value to the log.
+     *
+     * @param name the name of the value
+     * @param value the char value to output
+     * @param logOptions LogOptions
+     * @return the value
+     * @since 3.7.0
+     */
+    public static char print(String name, char value, LogOptions logOptions) {
+        if (isEnabled())
+            printSub(name, value, defaultLogOptions, true);
+        return value;
+    }
+
+    /**
+     * Outputs the name and the byte value to the log.
+     *
+     * @param name the name of the value
+     * @param value the byte value to output
+     * @return the value
+     */
+    public static byte print(String name, byte value) {
         return print(name, value, defaultLogOptions);
     }
 
@@ -943,7 +1767,7 @@ public class DebugTrace {
      *
      * @param name the name of the value
      * @param valueSupplier the supplier of boolean value to output
-     * @return the value if isEnabled(), otherwise false
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise false
      */
     public static boolean print(String name, BooleanSupplier valueSupplier) {
         return print(name, valueSupplier, defaultLogOptions);
@@ -956,18 +1780,22 @@ public class DebugTrace {
      * @param name the name of the value
      * @param valueSupplier the supplier of boolean value to output
      * @param logOptions LogOptions
-     * @return the value if isEnabled(), otherwise false
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise false
      * @since 3.7.0
      */
     public static boolean print(String name, BooleanSupplier valueSupplier, LogOptions logOptions) {
         if (isEnabled()) {
-            try {
-                boolean value = valueSupplier.getAsBoolean();
-                printSub(name, value, defaultLogOptions, true);
-                return value;
-            }
-            catch (Exception e) { 
-                printSub(name, e.toString(), defaultLogOptions, false);
+            // since 4.2.0, decided by the sampling rule of the call site before the value is got
+            var callSite = getStackTraceElements(2);
+            if (isSampled(callSite)) {
+                try {
+                    boolean value = valueSupplier.getAsBoolean();
+                    printValue(callSite, name, value, defaultLogOptions, true);
+                    return value;
+                }
+                catch (Exception e) { 
+                    printValue(callSite, name, e.toString(), defaultLogOptions, false);
+                }
             }
         }
         return false;
@@ -978,7 +1806,7 @@ public class DebugTrace {
      *
      * @param name the name of the value
      * @param valueSupplier the supplier of int value to output
-     * @return the value if isEnabled(), otherwise 0
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise 0
      */
     public static int print(String name, IntSupplier valueSupplier) {
         return print(name, valueSupplier, defaultLogOptions);
@@ -990,18 +1818,22 @@ public class DebugTrace {
      * @param name the name of the value
      * @param valueSupplier the supplier of int value to output
      * @param logOptions LogOptions
-     * @return the value if isEnabled(), otherwise 0
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise 0
      * @since 3.7.0
      */
     public static int print(String name, IntSupplier valueSupplier, LogOptions logOptions) {
         if (isEnabled()) {
-            try {
-                int value = valueSupplier.getAsInt();
-                printSub(name, value, logOptions, true);
-                return value;
-            }
-            catch (Exception e) { 
-                printSub(name, e.toString(), logOptions, false);
+            // since 4.2.0, decided by the sampling rule of the call site before the value is got
+            var callSite = getStackTraceElements(2);
+            if (isSampled(callSite)) {
+                try {
+                    int value = valueSupplier.getAsInt();
+                    printValue(callSite, name, value, logOptions, true);
+                    return value;
+                }
+                catch (Exception e) { 
+                    printValue(callSite, name, e.toString(), logOptions, false);
+                }
             }
         }
         return 0;
@@ -1012,7 +1844,7 @@ public class DebugTrace {
      *
      * @param name the name of the value
      * @param valueSupplier the supplier of long value to output
-     * @return the value if isEnabled(), otherwise 0L
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise 0L
      */
     public static long print(String name, LongSupplier valueSupplier) {
         return print(name, valueSupplier, defaultLogOptions);
@@ -1024,18 +1856,22 @@ public class DebugTrace {
      * @param name the name of the value
      * @param valueSupplier the supplier of long value to output
      * @param logOptions LogOptions
-     * @return the value if isEnabled(), otherwise 0L
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise 0L
      * @since 3.7.0
      */
     public static long print(String name, LongSupplier valueSupplier, LogOptions logOptions) {
         if (isEnabled()) {
-            try {
-                long value = valueSupplier.getAsLong();
-                printSub(name, value, defaultLogOptions, true);
-                return value;
-            }
-            catch (Exception e) { 
-                printSub(name, e.toString(), defaultLogOptions, false);
+            // since 4.2.0, decided by the sampling rule of the call site before the value is got
+            var callSite = getStackTraceElements(2);
+            if (isSampled(callSite)) {
+                try {
+                    long value = valueSupplier.getAsLong();
+                    printValue(callSite, name, value, defaultLogOptions, true);
+                    return value;
+                }
+                catch (Exception e) { 
+                    printValue(callSite, name, e.toString(), defaultLogOptions, false);
+                }
             }
         }
         return 0L;
@@ -1046,7 +1882,7 @@ public class DebugTrace {
      *
      * @param name the name of the value
      * @param valueSupplier the supplier of double value to output
-     * @return the value if isEnabled(), otherwise 0.0
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise 0.0
      */
     public static double print(String name, DoubleSupplier valueSupplier) {
         return print(name, valueSupplier, defaultLogOptions);
@@ -1058,18 +1894,22 @@ public class DebugTrace {
      * @param name the name of the value
      * @param valueSupplier the supplier of double value to output
      * @param logOptions LogOptions
-     * @return the value if isEnabled(), otherwise 0.0
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise 0.0
      * @since 3.7.0
      */
     public static double print(String name, DoubleSupplier valueSupplier, LogOptions logOptions) {
         if (isEnabled()) {
-            try {
-                double value = valueSupplier.getAsDouble();
-                printSub(name, value, defaultLogOptions, true);
-                return value;
-            }
-            catch (Exception e) { 
-                printSub(name, e.toString(), defaultLogOptions, false);
+            // since 4.2.0, decided by the sampling rule of the call site before the value is got
+            var callSite = getStackTraceElements(2);
+            if (isSampled(callSite)) {
+                try {
+                    double value = valueSupplier.getAsDouble();
+                    printValue(callSite, name, value, defaultLogOptions, true);
+                    return value;
+                }
+                catch (Exception e) { 
+                    printValue(callSite, name, e.toString(), defaultLogOptions, false);
+                }
             }
         }
         return 0.0;
@@ -1081,7 +1921,7 @@ public class DebugTrace {
      * @param <T> the type of the value
      * @param name the name of the value
      * @param valueSupplier the supplier of value to output
-     * @return the value if isEnabled(), otherwise null
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise null
      */
     public static <T> T print(String name, Supplier<T> valueSupplier) {
         return print(name, valueSupplier, defaultLogOptions);
@@ -1095,18 +1935,22 @@ public class DebugTrace {
      * @param name the name of the value
      * @param valueSupplier the supplier of value to output
      * @param logOptions LogOptions
-     * @return the value if isEnabled(), otherwise null
+     * @return the value if isEnabled() and the log is output by the sampling rule, otherwise null
      * @since 3.7.0
      */
     public static <T> T print(String name, Supplier<T> valueSupplier, LogOptions logOptions) {
         if (isEnabled()) {
-            try {
-                T value = valueSupplier.get();
-                printSub(name, value, logOptions, false);
-                return value;
-            }
-            catch (Exception e) { 
-                printSub(name, e.toString(), logOptions, false);
+            // since 4.2.0, decided by the sampling rule of the call site before the value is got
+            var callSite = getStackTraceElements(2);
+            if (isSampled(callSite)) {
+                try {
+                    T value = valueSupplier.get();
+                    printValue(callSite, name, value, logOptions, false);
+                    return value;
+                }
+                catch (Exception e) { 
+                    printValue(callSite, name, e.toString(), logOptions, false);
+                }
             }
         }
         return null;
@@ -1123,7 +1967,7 @@ public class DebugTrace {
     }
 
     /**
-     * Returns a string representation of the value as a LogBuffer.
+     * Returns a Node of the value.
      *
      * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
      * @param value the value object
@@ -1131,16 +1975,14 @@ public class DebugTrace {
      * @param isPrimitive true if the value is primitive type, false otherwise
      * @param isComponent true if the value is component of an array, false otherwise
      * @param isElement true if the value is element of a container class, false otherwise
-     * @return a LogBuffer
+     * @return a Node
+     * @since 4.2.0
      */
-    private static LogBuffer toString(String mapName, Object value, LogOptions logOptions, boolean isPrimitive, boolean isComponent, boolean isElement) {
+    private static Node toNode(String mapName, Object value, LogOptions logOptions, boolean isPrimitive, boolean isComponent, boolean isElement) {
         logOptions.normalize();
-        var buff = new LogBuffer();
 
-        if (value == null) {
-            buff.append("null");
-            return buff;
-        }
+        if (value == null)
+            return new Node.Text("", "null", false);
 
         var type = value.getClass();
         if (isPrimitive) {
@@ -1149,612 +1991,1160 @@ public class DebugTrace {
                 type = value.getClass();
         }
 
-        var typeName = getTypeName(type, value, logOptions, isComponent, isElement, 0);
-
-        if (type.isArray()) {
-            // Array
-            if (type == char[].class) {
-                // sting
-                buff.noBreakAppend(typeName);
-                appendString(buff, new String((char[])value), logOptions);
-            } else if (type == byte[].class) {
-                // byte Array
-                var valueBuff = toStringBytes((byte[])value, logOptions);
-                buff.append(null, valueBuff);
-            } else {
-                // Other Array
-                var valueBuff = toStringArray(mapName, value, logOptions);
-                buff.append(null, valueBuff);
-            }
-
-        } else if (value instanceof Boolean) {
-            // Boolean
-            buff.noBreakAppend(typeName);
-            buff.noBreakAppend(value);
-
-        } else if (value instanceof Character character) {
-            // Character
-            buff.noBreakAppend(typeName);
-            buff.noBreakAppend('\'');
-            appendChar(buff, character.charValue(), false);
-            buff.noBreakAppend('\'');
-
-        } else if (value instanceof Number) {
-            // Number
-            buff.noBreakAppend(typeName);
-            if (value instanceof BigDecimal bigDecimal) buff.append(bigDecimal.toPlainString()); // BigDecimal
-            else buff.noBreakAppend(value); // Other Number
-
-        } else if (value instanceof CharSequence charSequence) {
-            // CharSequence
-            buff.noBreakAppend(typeName);
-            appendString(buff, charSequence, logOptions);
-
-        } else if (value instanceof java.util.Date date) {
-            // Date
-            buff.noBreakAppend(typeName);
-            var timestamp = date instanceof Timestamp ? (Timestamp)date : new Timestamp(date.getTime());
-        //  var zonedDateTime = timestamp.toLocalDateTime().atZone(ZoneId.systemDefault());
-            var zonedDateTime = timestamp.toLocalDateTime().atZone(zoneId);
-            if      (date instanceof Date     ) buff.noBreakAppend(zonedDateTime.format(sqlDateFormatter  )); // java.sql.Date
-            else if (date instanceof Time     ) buff.noBreakAppend(zonedDateTime.format(timeFormatter     )); // Time
-            else if (date instanceof Timestamp) buff.noBreakAppend(zonedDateTime.format(timestampFormatter)); // Timestamp
-            else                                buff.noBreakAppend(zonedDateTime.format(utilDateFormatter )); // java.util.Date
-
-        } else if (value instanceof Temporal) {
-            // Temporal
-            buff.noBreakAppend(typeName);
-            if      (value instanceof LocalDate      localDate     ) buff.noBreakAppend(localDate     .format(localDateFormatter     )); // LocalDate
-            else if (value instanceof LocalTime      localTime     ) buff.noBreakAppend(localTime     .format(localTimeFormatter     )); // LocalTime
-            else if (value instanceof OffsetTime     offsetTime    ) buff.noBreakAppend(offsetTime    .format(offsetTimeFormatter    )); // OffsetTime
-            else if (value instanceof LocalDateTime  localDateTime ) buff.noBreakAppend(localDateTime .format(localDateTimeFormatter )); // LocalDateTime
-            else if (value instanceof OffsetDateTime offsetDateTime) buff.noBreakAppend(offsetDateTime.format(offsetDateTimeFormatter)); // OffsetDateTime
-            else if (value instanceof ZonedDateTime  zonedDateTime ) buff.noBreakAppend(zonedDateTime .format(zonedDateTimeFormatter )); // ZonedDateTime
-            else if (value instanceof Instant        instant       ) buff.noBreakAppend(instant.atOffset(ZoneOffset.ofHours(0)).format(instantFormatter)); // Instant
-            else buff.noBreakAppend(value);
-
-        } else if (value instanceof OptionalInt optionalInt) {
-            // OptionalInt
-            buff.noBreakAppend(typeName);
-            if (optionalInt.isPresent())
-                buff.noBreakAppend(optionalInt.getAsInt());
-            else
-                buff.noBreakAppend("empty");
-
-        } else if (value instanceof OptionalLong optionalLong) {
-            // OptionalLong
-            buff.noBreakAppend(typeName);
-            if (optionalLong.isPresent())
-                buff.noBreakAppend(optionalLong.getAsLong());
-            else
-                buff.noBreakAppend("empty");
-
-        } else if (value instanceof OptionalDouble optionalDouble) {
-            // OptionalDouble
-            buff.noBreakAppend(typeName);
-            if (optionalDouble.isPresent())
-                buff.noBreakAppend(optionalDouble.getAsDouble());
-            else
-                buff.noBreakAppend("empty");
-
-        } else if (value instanceof Optional<?> optional) {
-            // Optional
-            buff.noBreakAppend(typeName);
-            if (optional.isPresent()) {
-                var valueBuff = toString(mapName, optional.get(), logOptions, false, false, true);
-                buff.append(null, valueBuff);
-            }else
-                buff.noBreakAppend("empty");
-
-        } else if (value instanceof Collection<?> collection) {
-            // Collection
-            var valueBuff = toStringCollection(mapName, collection, logOptions);
-            buff.append(null, valueBuff);
-
-        } else if (value instanceof Map<?, ?> map) {
-            // Map
-            var valueBuff = toStringMap(mapName, map, logOptions);
-            buff.append(null, valueBuff);
-
-        } else if (value instanceof Clob clob) {
-            // Clob
-            try {
-                var length = clob.length();
-                if (length > (long)stringLimit)
-                    length = (long)(stringLimit + 1);
-                buff.noBreakAppend(typeName);
-                appendString(buff, clob.getSubString(1L, (int)length), logOptions);
-            }
-            catch (SQLException e) {
-                buff.append(e);
-            }
+        // since 4.2.0, the renderer decided once per class
+        var classInfo = getClassInfo(value.getClass());
 
-        } else if (value instanceof Blob blob) {
-            // Blob
-            try {
-                var length = blob.length();
-                if (length > (long)byteArrayLimit)
-                    length = (long)(byteArrayLimit + 1);
-                LogBuffer valueBuff = toStringBytes(blob.getBytes(1L, (int)length), logOptions);
-                buff.append(typeName, valueBuff);
-            }
-            catch (SQLException e) {
-                buff.append(e);
-            }
+        // since 4.2.0, the type names of collections and maps are created after their elements are counted
+        var typeName = classInfo.containerRenderer() ? "" : getTypeName(type, value, logOptions, isComponent, isElement);
 
-        } else {
-            // Other
-            var className = type.getName();
-            var packageName = type.getPackage() == null ? "" : type.getPackage().getName() + '.';
-        // 4.0.0
-        //  var isReflection = reflectionClasses.contains(type);
-            var isReflection = type.isRecord() || reflectionClasses.contains(type);
-        ////
-            if (!isReflection) {
-                // not reflection class
-                if (!nonReflectionClasses.contains(type)) {
-                    // unknown
-                    isReflection = reflectionClassPaths.stream()
-                        .anyMatch(classPath ->
-                            classPath.endsWith(".")
-                                ? classPath.equals(packageName) // Specifies the package
-                                : classPath.equals(className) // Specifies the class
-                        );
-                    if (!isReflection && !hasToString(type))
-                        isReflection = true; // Dose not have a toString method
-                    (isReflection ? reflectionClasses : nonReflectionClasses).add(type);
-                }
-            }
+        return classInfo.renderer().toNode(mapName, value, logOptions, typeName);
+    }
 
-            if (isReflection) {
-                // Use Reflection
-                if (reflectedObjects.stream().anyMatch(object -> value == object))
-                    // Cyclic reference
-                    buff.append(cyclicReferenceString).append(value);
-
-                else if (reflectedObjects.size() >= logOptions.reflectionNestLimit)
-                    // Over reflection level limitation
-                    buff.append(limitString);
-
-                else {
-                    // Use Reflection
-                    reflectedObjects.add(value);
-                // 3.6.0
-                //  LogBuffer valueBuff = toStringReflection(value);
-                //  buff.append(null, valueBuff);
-                //  reflectedObjects.remove(reflectedObjects.size() - 1);
-                    try {
-                        LogBuffer valueBuff = toStringReflection(value, logOptions);
-                        buff.append(null, valueBuff);
-                    }
-                    finally {
-                        reflectedObjects.remove(reflectedObjects.size() - 1);
-                    }
-                ////
-                    return buff;
-                }
-            } else {
-                // Use toString method
-                buff.noBreakAppend(typeName);
-                buff.noBreakAppend(value);
-            }
-        }
-        var convertedValue =  getConvertedValue(mapName, value);
+    /**
+     * Returns a Node of the number.
+     *
+     * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
+     * @param value the number
+     * @param logOptions LogOptions
+     * @param typeName the type name to be output
+     * @return a Node
+     * @since 4.2.0
+     */
+    private static Node toNodeNumber(String mapName, Object value, LogOptions logOptions, String typeName) {
+        var text = toText(value);
+        var convertedValue = getConvertedValue(mapName, value);
         if (convertedValue != null)
-            buff.noBreakAppend('(').noBreakAppend(convertedValue).noBreakAppend(')');
-
-        return buff;
+            text += '(' + convertedValue + ')';
+        return new Node.Text(typeName, text, false);
     }
 
     /**
-     * Returns the type name to be output to the log.<br>
-     * If dose not output, returns null.
+     * Returns a Node of the Clob.<br>
+     * Reads only the characters to be output and one more to know if truncated,
+     * without getting the length of the Clob. (since 4.2.0)
      *
-     * @param type the type of the value
-     * @param value the value object
+     * @param mapName not used
+     * @param value the Clob
      * @param logOptions LogOptions
-     * @param isComponent true if the value is component of an array, false otherwise
-     * @param isElement true if the value is element of a container class, false otherwise
-     * @param nest current nest count
-     * @return the type name to be output to the log
+     * @param typeName the type name to be output
+     * @return a Node
+     * @since 4.2.0
      */
-    @SuppressWarnings("rawtypes")
-    private static String getTypeName(Class<?>type, Object value, LogOptions logOptions, boolean isComponent, boolean isElement, int nest) {
-        var typeName = "";
-        var length = -1L;
-        var size = -1;
-
-        if (type.isArray()) {
-            // Array
-            typeName = getTypeName(type.getComponentType(), null, logOptions, false, false, nest + 1);
-            if (!typeName.isEmpty()) {
-                var bracket = "[";
-                if (value != null)
-                    bracket += Array.getLength(value);
-                bracket += ']';
-                var braIndex = typeName.indexOf('[');
-                if (braIndex < 0)
-                    braIndex = typeName.length();
-                typeName = typeName.substring(0, braIndex) + bracket + typeName.substring(braIndex);
-            }
-        } else {
-            // Not Array
-            if (   nest > 0
-                || (isComponent
-                        ? !noOutputComponentTypeSet.contains(type)
-                    : isElement
-                        ? !noOutputElementTypeSet.contains(type)
-                        : !noOutputTypeSet.contains(type))
-                ) {
-                // Output the type name
-                typeName = type.getCanonicalName();
-                if (typeName == null)
-                    typeName = type.getName();
-                if (   typeName.startsWith("java.lang.")
-                    || typeName.startsWith("java.math.")
-                    || typeName.startsWith("java.sql.")
-                    || typeName.startsWith("java.time.")
-                    || typeName.startsWith("java.util.") && !typeName.equals("java.util.Date"))
-                    typeName = type.getSimpleName();
-                else
-                    typeName = replaceTypeName(typeName);
-
-            // 4.0.0
-                if (type.isRecord())
-                    typeName = "record " + typeName;
-            ////
-            }
-
-            if (value != null) {
-                try {
-                    if      (value instanceof CharSequence charSequence) length = charSequence.length();
-                    else if (value instanceof Blob         blob        ) length = blob        .length();
-                    else if (value instanceof Clob         clob        ) length = clob        .length();
-                    else if (value instanceof Collection   collection  ) size   = collection  .size  ();
-                    else if (value instanceof Map          map         ) size   = map         .size  ();
-                }
-                catch (SQLException e) {}
-            }
+    private static Node toNodeClob(String mapName, Object value, LogOptions logOptions, String typeName) {
+        Reader reader;
+        try {
+            reader = ((Clob)value).getCharacterStream();
+        }
+        catch (SQLException e) {
+            return new Node.Text("", e.toString(), true);
+        }
+        try (reader) {
+            return toNodeString(typeName, readChars(reader, readCount(logOptions.stringLimit)), logOptions);
+        }
+        catch (IOException e) {
+            return new Node.Text(typeName, e.toString(), true);
+        }
     }
 
-        if (length >= logOptions.minimumOutputLength) {
-            if (!typeName.isEmpty())
-                typeName += " ";
-            typeName += lengthFormat.formatted(length);
-
-        } else if (size >= logOptions.minimumOutputSize) {
-            if (!typeName.isEmpty())
-                typeName += " ";
-            typeName += sizeFormat.formatted(size);
+    /**
+     * Returns a Node of the Blob.<br>
+     * Reads only the bytes to be output and one more to know if truncated,
+     * without getting the length of the Blob. (since 4.2.0)
+     *
+     * @param mapName not used
+     * @param value the Blob
+     * @param logOptions LogOptions
+     * @param typeName the type name to be output
+     * @return a Node
+     * @since 4.2.0
+     */
+    private static Node toNodeBlob(String mapName, Object value, LogOptions logOptions, String typeName) {
+        InputStream stream;
+        try {
+            stream = ((Blob)value).getBinaryStream();
+        }
+        catch (SQLException e) {
+            return new Node.Text("", e.toString(), true);
+        }
+        try (stream) {
+            return toNodeBytes(typeName, readBytes(stream, readCount(logOptions.byteArrayLimit)), logOptions);
+        }
+        catch (IOException e) {
+            return new Node.Text("", e.toString(), true);
         }
-
-        if (!typeName.isEmpty() && nest == 0)
-            typeName = "(" + typeName + ")";
-
-        return typeName;
     }
 
     /**
-     * Replace a class name.
+     * Returns the number of the elements to read to know if truncated at the limit.
      *
-     * @param className a class name
-     * @return the replaced ckass name
-     * @since 2.3.0
+     * @param limit the limit of the elements to output
+     * @return the limit + 1 (Integer.MAX_VALUE if overflowed)
+     * @since 4.2.0
      */
-    private static String replaceTypeName(String typeName) {
-        if (!defaultPackage.isEmpty() && typeName.startsWith(defaultPackage))
-            typeName = defaultPackageString + typeName.substring(defaultPackage.length());
-        return typeName;
+    private static int readCount(int limit) {
+        return limit == Integer.MAX_VALUE ? limit : limit + 1;
     }
 
     /**
-     * Returns the map for converting.
+     * Reads the characters up to the maximum count into the buffer of the thread.
      *
-     * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
-     * @param value the value object
-     * @return a converted value (may be null)
-     * @since 2.4.0
+     * @param reader the Reader
+     * @param maxCount the maximum number of the characters to read
+     * @return the characters read (valid until the next read in the thread)
+     * @throws IOException if an I/O error occurs
+     * @since 4.2.0
      */
-    private static String getConvertedValue(String mapName, Object value) {
-        if (mapName == null || value == null)
-            return null;
-
-        Integer key = null;
-        if (value instanceof Byte)
-            key = (int)(byte)value;
-        else if (value instanceof Short)
-            key = (int)(short)value;
-        else if (value instanceof Integer)
-            key = (Integer)value;
-        else if (value instanceof Long) {
-            if ((long)value >= Integer.MIN_VALUE && (long)value <= Integer.MAX_VALUE)
-                key = (int)(long)value;
-        }
-        if (key == null)
-            return null;
-
-        var convertMap = convertMapMap.get(mapName);
-        if (convertMap == null) {
-            convertMap = resource.getIntegerKeyMap(mapName);
-            convertMapMap.put(mapName, convertMap);
+    private static CharBuffer readChars(Reader reader, int maxCount) throws IOException {
+        var state = getCurrentState();
+        var chars = state.lobChars();
+        var count = 0;
+        while (count < maxCount) {
+            if (count == chars.length) {
+                // Extends the buffer
+                chars = Arrays.copyOf(chars, (int)Math.min(maxCount, Math.max(chars.length * 2L, 256L)));
+                state.setLobChars(chars);
+            }
+            var readCount = reader.read(chars, count, Math.min(chars.length, maxCount) - count);
+            if (readCount < 0) break;
+            count += readCount;
         }
-
-        return convertMap.get(key);
+        return CharBuffer.wrap(chars, 0, count);
     }
 
     /**
-     * Appends a character representation for logging to the string buffer.
+     * Reads the bytes up to the maximum count.<br>
+     * The bytes are read into the buffer of the thread and then copied into an array of the number of bytes read.
      *
-     * @param buff a LogBuffer
-     * @param ch a character
-     * @param inString true if the character is included in the string, false otherwise
+     * @param stream the InputStream
+     * @param maxCount the maximum number of the bytes to read
+     * @return the bytes read
+     * @throws IOException if an I/O error occurs
+     * @since 4.2.0
      */
-    private static void appendChar(LogBuffer buff, char ch, boolean inString) {
-        switch (ch) {
-        case '\b': buff.noBreakAppend("\\b" ); break; // 08 BS
-        case '\t': buff.noBreakAppend("\\t" ); break; // 09 HT
-        case '\n': buff.noBreakAppend("\\n" ); break; // 0A LF
-        case '\f': buff.noBreakAppend("\\f" ); break; // 0C FF
-        case '\r': buff.noBreakAppend("\\r" ); break; // 0D CR
-        case '"' : buff.noBreakAppend(inString ? "\\\"" : "\""); break; // "
-        case '\'': buff.noBreakAppend(inString ? "'" : "\\'" ); break; // '
-        case '\\': buff.noBreakAppend("\\\\"); break; // \
-        default:
-            if (ch < ' ' || ch == '\u007F')
-                buff.noBreakAppend("\\u").noBreakAppend("%04X".formatted((short)ch));
-            else
-                buff.noBreakAppend(ch);
-            break;
+    private static ByteBuffer readBytes(InputStream stream, int maxCount) throws IOException {
+        var state = getCurrentState();
+        var bytes = state.lobBytes();
+        var count = 0;
+        while (count < maxCount) {
+            if (count == bytes.length) {
+                // Extends the buffer
+                bytes = Arrays.copyOf(bytes, (int)Math.min(maxCount, Math.max(bytes.length * 2L, 256L)));
+                state.setLobBytes(bytes);
+            }
+            var readCount = stream.read(bytes, count, Math.min(bytes.length, maxCount) - count);
+            if (readCount < 0) break;
+            count += readCount;
         }
+        return ByteBuffer.wrap(Arrays.copyOf(bytes, count));
     }
 
     /**
-     * Appends a CharSequence representation for logging to the string buffer.
+     * Returns a Node of the object output using reflection.
      *
-     * @param buff a LogBuffer
-     * @param charSequence a CharSequence
+     * @param mapName not used
+     * @param value the object
      * @param logOptions LogOptions
-     * @param charSequence a CharSequence object
+     * @param typeName not used
+     * @return a Node
+     * @since 4.2.0
      */
-    private static void appendString(LogBuffer buff, CharSequence charSequence, LogOptions logOptions) {
-        buff.noBreakAppend('"');
-        for (var index = 0; index < charSequence.length(); ++index) {
-            if (index >= logOptions.stringLimit) {
-                buff.noBreakAppend(limitString);
-                break;
-            }
-            appendChar(buff, charSequence.charAt(index), true);
+    private static Node toNodeUsingReflection(String mapName, Object value, LogOptions logOptions, String typeName) {
+        var reflectedObjects = getCurrentState().reflectedObjects();
+        if (reflectedObjects.stream().anyMatch(object -> value == object))
+            // Cyclic reference
+            return new Node.Cyclic(toText(value));
+
+        if (reflectedObjects.size() >= logOptions.reflectionNestLimit)
+            // Over reflection level limitation
+            return new Node.Limit();
+
+        // Use Reflection
+        reflectedObjects.add(value);
+        try {
+            return toNodeReflection(value, logOptions);
+        }
+        finally {
+            reflectedObjects.remove(reflectedObjects.size() - 1);
         }
-        buff.noBreakAppend('"');
     }
 
     /**
-     * Returns a string representation of the bytes as a LogBuffer.
+     * Returns the text of the date.
      *
-     * @param bytes a byte array
-     * @param logOptions LogOptions
-     * @return a LogBuffer
+     * @param date a java.util.Date or its subclass
+     * @param formatter the formatter of the date
+     * @return the text of the date
+     * @since 4.2.0
      */
-    private static LogBuffer toStringBytes(byte[] bytes, LogOptions logOptions) {
-        var buff = new LogBuffer();
-        var charBuff = new StringBuilder();
-
-        var isMultiLines = bytes.length > 16 && logOptions.byteArrayLimit > 16;
-
-        buff.append(getTypeName(bytes.getClass(), bytes, logOptions, false, false, 0));
-        buff.noBreakAppend('[');
-
-        if (isMultiLines) {
-            buff.lineFeed();
-            buff.upNest();
-        }
+    private static String toText(java.util.Date date, DateTimeFormatter formatter) {
+        var timestamp = date instanceof Timestamp ? (Timestamp)date : new Timestamp(date.getTime());
+    //  var zonedDateTime = timestamp.toLocalDateTime().atZone(ZoneId.systemDefault());
+        var zonedDateTime = timestamp.toLocalDateTime().atZone(zoneId);
+        return zonedDateTime.format(formatter);
+    }
 
-        var offset = 0;
-        for (var index = 0; index < bytes.length; ++index) {
-            if (isMultiLines && offset == 0)
-                // outputs hexadecimal address
-                buff.append(String.format("%04X ", index));
+    /**
+     * Returns a TypeRenderer that outputs the values as the texts.
+     *
+     * @param <T> the type of the values
+     * @param type the type of the values
+     * @param toText the function that returns the text of a value
+     * @return a TypeRenderer
+     * @since 4.2.0
+     */
+    private static <T> TypeRenderer textRenderer(Class<T> type, Function<T, String> toText) {
+        return new TypeRenderer(type, (mapName, value, logOptions, typeName) ->
+            new Node.Text(typeName, toText.apply(type.cast(value)), false));
+    }
 
-            if (offset > 0)
-                buff.append(" ");
+    /**
+     * Returns a TypeRenderer of the arrays of a primitive type.
+     *
+     * @param type the type of the arrays
+     * @param wrapperType the wrapper type of the components
+     * @return a TypeRenderer
+     * @since 4.2.0
+     */
+    private static TypeRenderer primitivesRenderer(Class<?> type, Class<?> wrapperType) {
+        return new TypeRenderer(type, (mapName, value, logOptions, typeName) ->
+            mapName != null || hasValueRenderer(wrapperType) || isSampled(Array.getLength(value), logOptions)
+                // The components are output with the constant names or the ValueRenderer, or sampled
+                ? toNodeArray(mapName, value, logOptions)
+                : toNodePrimitives(typeName, value, logOptions));
+    }
 
-            if (index >= logOptions.byteArrayLimit) {
-                buff.noBreakAppend(limitString);
-                break;
+    /**
+     * Returns a TypeRenderer that outputs the values with the ValueRenderer.
+     *
+     * @param <T> the type of the values
+     * @param valueRenderer a ValueRenderer
+     * @return a TypeRenderer
+     * @since 4.2.0
+     */
+    private static <T> TypeRenderer toTypeRenderer(ValueRenderer<T> valueRenderer) {
+        var type = valueRenderer.type();
+        return new TypeRenderer(type, (mapName, value, logOptions, typeName) -> {
+            var builder = new StringBuilder();
+            try {
+                valueRenderer.appendTo(builder, type.cast(value));
             }
+            catch (Exception e) {
+                return new Node.Text(typeName, e.toString(), false);
+            }
+            return new Node.Text(typeName, builder.toString(), false);
+        });
+    }
 
-            // outputs hexadecimal byte
-            var value = (int)bytes[index];
-            if (value < 0) value += 256;
-            var ch = (char)(value / 16 + '0');
-            if (ch > '9') ch += 'A' - '9' - 1;
-            buff.noBreakAppend(ch);
-            ch = (char)(value % 16 + '0');
-            if (ch > '9') ch += 'A' - '9' - 1;
-            buff.noBreakAppend(ch);
-
-            // outputs as character
-            charBuff.append((char)(value >= 0x20 && value <= 0x7E ? value : '.'));
+    /**
+     * Loads the ValueRenderers of the <code>valueRenderers</code> property and ServiceLoader.
+     *
+     * @return the TypeRenderers of the ValueRenderers
+     * @since 4.2.0
+     */
+    private static List<TypeRenderer> loadValueRenderers() {
+        var renderers = new ArrayList<TypeRenderer>();
+        for (var className : valueRendererClasses) {
+            try {
+                renderers.add(toTypeRenderer((ValueRenderer<?>)Class.forName(className).getConstructor().newInstance()));
+            }
+            catch (Exception e) {
+                System.err.println("DebugTrace: " + e.toString() + "(" + className + ")");
+            }
+        }
+        try {
+            for (ValueRenderer<?> valueRenderer : ServiceLoader.load(ValueRenderer.class))
+                renderers.add(toTypeRenderer(valueRenderer));
+        }
+        catch (ServiceConfigurationError e) {
+            System.err.println("DebugTrace: " + e.toString());
+        }
+        return List.copyOf(renderers);
+    }
 
-            ++offset;
+    /**
+     * Returns the renderer of the values of the class.
+     *
+     * @param type the class
+     * @return the renderer (null if output using toString method or reflection)
+     * @since 4.2.0
+     */
+    private static NodeRenderer getRenderer(Class<?> type) {
+        for (var typeRenderer : valueRenderers)
+            if (typeRenderer.type().isAssignableFrom(type))
+                return typeRenderer.renderer();
 
-            if (isMultiLines && offset == 16) {
-                buff.noBreakAppend("  ").noBreakAppend(charBuff);
-                buff.lineFeed();
-                offset = 0;
-                charBuff.setLength(0);
-            }
+        for (var typeRenderer : builtInRenderers)
+            if (typeRenderer.type().isAssignableFrom(type))
+                return typeRenderer.renderer();
+
+        if (type.isArray())
+            return arrayRenderer;
+
+        return null;
+    }
+
+    /**
+     * Returns true if a ValueRenderer outputs the values of the class.
+     *
+     * @param type the class
+     * @return true if a ValueRenderer outputs the values of the class; false otherwise
+     * @since 4.2.0
+     */
+    private static boolean hasValueRenderer(Class<?> type) {
+        for (var typeRenderer : valueRenderers)
+            if (typeRenderer.type().isAssignableFrom(type))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the result of the toString method of the value.
+     *
+     * @param value the value object
+     * @return the result of the toString method, or the string of the exception if thrown
+     * @since 4.2.0
+     */
+    private static String toText(Object value) {
+        try {
+            return String.valueOf(value.toString());
+        }
+        catch (Exception e) {
+            return e.toString();
         }
+    }
 
-        if (isMultiLines) {
-            if (buff.length() > 0) {
-                for (; offset < 16; ++offset)
-                    buff.noBreakAppend("   "); // padding
-                buff.noBreakAppend("  ").noBreakAppend(charBuff);
-                buff.lineFeed();
-            }
-            buff.downNest();
-        } else {
-            if (offset > 0)
-                buff.noBreakAppend("  ").noBreakAppend(charBuff);
+    /**
+     * Lays out the Node into a LogBuffer.
+     *
+     * @param buff the LogBuffer
+     * @param node a Node
+     * @return the LogBuffer
+     * @since 4.2.0
+     */
+    private static LogBuffer layout(LogBuffer buff, Node node) {
+        if (node instanceof Node.Text text) {
+            buff.noBreakAppend(text.typeName());
+            if (text.breakable())
+                buff.append(text.text());
+            else
+                buff.noBreakAppend(text.text());
+
+        } else if (node instanceof Node.Str str) {
+            buff.noBreakAppend(str.typeName());
+            var builder = new StringBuilder(str.string().length() + 2);
+            appendString(builder, str.string(), str.truncated());
+            buff.noBreakAppend(builder);
+
+        } else if (node instanceof Node.Bytes bytes) {
+            buff.appendNested(layoutBytes(buff.newNested(bytes.prefix(), null), bytes), false);
+
+        } else if (node instanceof Node.Primitives primitives) {
+            layoutPrimitives(buff, primitives);
+
+        } else if (node instanceof Node.Present present) {
+            buff.noBreakAppend(present.typeName());
+            buff.appendNested(layout(buff.newNested(null, null), present.value()), false);
+
+        } else if (node instanceof Node.Container container) {
+            layoutContainer(buff, container);
+
+        } else if (node instanceof Node.LazyContainer container) {
+            layoutLazyContainer(buff, container);
+
+        } else if (node instanceof Node.Reflection reflection) {
+            layoutReflection(buff, reflection);
+
+        } else if (node instanceof Node.Cyclic cyclic) {
+            buff.append(cyclicReferenceString).append(cyclic.text());
+
+        } else if (node instanceof Node.Limit) {
+            buff.append(limitString);
+
+        } else if (node instanceof Node.Skipped skipped) {
+            var builder = new StringBuilder();
+            skippedTemplate.appendTo(builder, skipped.count());
+            buff.append(builder);
         }
-        buff.noBreakAppend(']');
 
         return buff;
     }
 
     /**
-     * Returns a string representation of the array as a LogBuffer.
+     * Returns the type name to be output to the log.<br>
+     * If dose not output, returns an empty string.
+     *
+     * @param type the type of the value
+     * @param value the value object
+     * @param logOptions LogOptions
+     * @param isComponent true if the value is component of an array, false otherwise
+     * @param isElement true if the value is element of a container class, false otherwise
+     * @return the type name to be output to the log
+     */
+    @SuppressWarnings("rawtypes")
+    private static String getTypeName(Class<?>type, Object value, LogOptions logOptions, boolean isComponent, boolean isElement) {
+        var classInfo = getClassInfo(type);
+
+        if (type.isArray())
+            // Array
+            return classInfo.arrayTypeName(Array.getLength(value)); // since 4.2.0
+
+        // Not Array
+        var length = -1L;
+        var size = -1L;
+        try {
+            if      (value instanceof CharSequence charSequence) length = charSequence.length();
+            else if (value instanceof Blob         blob        ) length = isLobLengthOutput(logOptions) ? blob.length() : -1L; // since 4.2.0
+            else if (value instanceof Clob         clob        ) length = isLobLengthOutput(logOptions) ? clob.length() : -1L; // since 4.2.0
+            else if (value instanceof Collection   collection  ) size   = isSizeOutput(classInfo, logOptions) ? collection.size() : -1L; // since 4.2.0
+            else if (value instanceof Map          map         ) size   = isSizeOutput(classInfo, logOptions) ? map       .size() : -1L; // since 4.2.0
+        }
+        catch (SQLException e) {}
+
+        return getTypeName(classInfo, logOptions, isComponent, isElement, length, size, false);
+    }
+
+    /**
+     * Returns true if the length method of the Blob or Clob is called to output the length.
+     *
+     * @param logOptions LogOptions
+     * @return false if the length is not output or lobLengthOutput is false; true otherwise
+     * @since 4.2.0
+     */
+    private static boolean isLobLengthOutput(LogOptions logOptions) {
+        // minimumOutputLength of Integer.MAX_VALUE is the same as no output
+        return logOptions.minimumOutputLength < Integer.MAX_VALUE && lobLengthOutput;
+    }
+
+    /**
+     * Returns true if the size method of the collection or map is called to output the size.
+     *
+     * @param classInfo the ClassInfo of the collection or map
+     * @param logOptions LogOptions
+     * @return false if the size is not output or the size method traverses the elements; true otherwise
+     * @since 4.2.0
+     */
+    private static boolean isSizeOutput(ClassInfo classInfo, LogOptions logOptions) {
+        // minimumOutputSize of Integer.MAX_VALUE is the same as no output
+        return logOptions.minimumOutputSize < Integer.MAX_VALUE && !classInfo.expensiveSize();
+    }
+
+    /**
+     * Returns the type name of the collection or map to be output to the log.<br>
+     * The number of the elements counted while rendering is used as the size if all the elements are read,
+     * and the size method is called only if the elements are truncated and it does not traverse the elements.
+     *
+     * @param container the collection or map
+     * @param logOptions LogOptions
+     * @param count the number of the elements (the number read, collectionLimit + 1, if truncated)
+     * @param truncated true if the elements are truncated at the limit
+     * @return the type name to be output to the log
+     * @since 4.2.0
+     */
+    private static String getContainerTypeName(Object container, LogOptions logOptions, long count, boolean truncated) {
+        var classInfo = getClassInfo(container.getClass());
+        var size = -1L;
+        var sizeAtLeast = false;
+        if (logOptions.minimumOutputSize < Integer.MAX_VALUE) {
+            if (!truncated)
+                size = count;
+            else if (classInfo.expensiveSize()) {
+                size = count;
+                sizeAtLeast = true;
+            } else
+                size = container instanceof Map<?, ?> map ? map.size() : ((Collection<?>)container).size();
+        }
+        return getTypeName(classInfo, logOptions, false, false, -1L, size, sizeAtLeast);
+    }
+
+    /**
+     * Returns the type name to be output to the log with the length or size.<br>
+     * If dose not output, returns an empty string.
+     *
+     * @param classInfo the ClassInfo of the type
+     * @param logOptions LogOptions
+     * @param isComponent true if the value is component of an array, false otherwise
+     * @param isElement true if the value is element of a container class, false otherwise
+     * @param length the length of the string (-1 if not a string)
+     * @param size the size of the collection or map (-1 if not a collection nor map)
+     * @param sizeAtLeast true if the size is the minimum number of the elements
+     * @return the type name to be output to the log
+     * @since 4.2.0
+     */
+    private static String getTypeName(ClassInfo classInfo, LogOptions logOptions, boolean isComponent, boolean isElement,
+            long length, long size, boolean sizeAtLeast) {
+        if (length < logOptions.minimumOutputLength && size < logOptions.minimumOutputSize)
+            // since 4.2.0, only the type name of the class
+            return classInfo.isOutputTypeName(isComponent, isElement) ? classInfo.enclosedTypeName() : "";
+
+        var typeName = classInfo.isOutputTypeName(isComponent, isElement) ? classInfo.typeName() : "";
+        var typeNameBuilder = new StringBuilder(typeName.length() + 16).append('(').append(typeName);
+        if (!typeName.isEmpty())
+            typeNameBuilder.append(' ');
+        if (length >= logOptions.minimumOutputLength)
+            lengthTemplate.appendTo(typeNameBuilder, length);
+        else
+            (sizeAtLeast ? sizeAtLeastTemplate : sizeTemplate).appendTo(typeNameBuilder, size); // since 4.2.0
+
+        return typeNameBuilder.append(')').toString();
+    }
+
+    /**
+     * Returns the type name of the class without the size, length and parentheses.
+     *
+     * @param type the class
+     * @return the type name of the class
+     * @since 4.2.0
+     */
+    private static String createTypeName(Class<?> type) {
+        if (type.isArray()) {
+            // Array
+            var componentTypeName = getClassInfo(type.getComponentType()).typeName();
+            var braIndex = componentTypeName.indexOf('[');
+            if (braIndex < 0)
+                braIndex = componentTypeName.length();
+            return componentTypeName.substring(0, braIndex) + "[]" + componentTypeName.substring(braIndex);
+        }
+
+        // Not Array
+        var typeName = type.getCanonicalName();
+        if (typeName == null)
+            typeName = type.getName();
+        if (   typeName.startsWith("java.lang.")
+            || typeName.startsWith("java.math.")
+            || typeName.startsWith("java.sql.")
+            || typeName.startsWith("java.time.")
+            || typeName.startsWith("java.util.") && !typeName.equals("java.util.Date"))
+            typeName = type.getSimpleName();
+        else
+            typeName = replaceTypeName(typeName);
+
+    // 4.0.0
+        if (type.isRecord())
+            typeName = "record " + typeName;
+    ////
+        return typeName;
+    }
+
+    /**
+     * Replace a class name.
+     *
+     * @param className a class name
+     * @return the replaced ckass name
+     * @since 2.3.0
+     */
+    private static String replaceTypeName(String typeName) {
+        if (!defaultPackage.isEmpty() && typeName.startsWith(defaultPackage))
+            typeName = defaultPackageString + typeName.substring(defaultPackage.length());
+        return typeName;
+    }
+
+    /**
+     * Returns the map for converting.
      *
      * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
-     * @param array an array
+     * @param value the value object
+     * @return a converted value (may be null)
+     * @since 2.4.0
+     */
+    private static String getConvertedValue(String mapName, Object value) {
+        if (mapName == null || value == null)
+            return null;
+
+        Integer key = null;
+        if (value instanceof Byte)
+            key = (int)(byte)value;
+        else if (value instanceof Short)
+            key = (int)(short)value;
+        else if (value instanceof Integer)
+            key = (Integer)value;
+        else if (value instanceof Long) {
+            if ((long)value >= Integer.MIN_VALUE && (long)value <= Integer.MAX_VALUE)
+                key = (int)(long)value;
+        }
+        if (key == null)
+            return null;
+
+        var convertMap = convertMapMap.get(mapName);
+        if (convertMap == null) {
+            convertMap = resource.getIntegerKeyMap(mapName);
+            convertMapMap.put(mapName, convertMap);
+        }
+
+        return convertMap.get(key);
+    }
+
+    /**
+     * Returns the escape sequences of the ASCII characters.
+     *
+     * @param inString true if the characters are included in strings, false if in character literals
+     * @return the escape sequences indexed by the characters (null if not escaped)
+     * @since 4.2.0
+     */
+    private static String[] createEscapes(boolean inString) {
+        var escapes = new String[128];
+        for (var ch = 0; ch < ' '; ++ch)
+            escapes[ch] = "\\u" + "%04X".formatted(ch);
+        escapes['\u007F'] = "\\u007F";
+        escapes['\b'] = "\\b" ; // 08 BS
+        escapes['\t'] = "\\t" ; // 09 HT
+        escapes['\n'] = "\\n" ; // 0A LF
+        escapes['\f'] = "\\f" ; // 0C FF
+        escapes['\r'] = "\\r" ; // 0D CR
+        if (inString)
+            escapes['"' ] = "\\\""; // "
+        else
+            escapes['\''] = "\\'" ; // '
+        escapes['\\'] = "\\\\"; // \
+        return escapes;
+    }
+
+    /**
+     * Appends a character representation for logging to the string builder.
+     *
+     * @param builder a StringBuilder
+     * @param ch a character
+     * @param inString true if the character is included in the string, false otherwise
+     */
+    private static void appendChar(StringBuilder builder, char ch, boolean inString) {
+        // since 4.2.0, uses the escape table
+        var escapes = inString ? stringEscapes : charEscapes;
+        var escape = ch < escapes.length ? escapes[ch] : null;
+        if (escape != null)
+            builder.append(escape);
+        else
+            builder.append(ch);
+    }
+
+    /**
+     * Appends a string representation for logging to the string builder.<br>
+     * The runs of the characters without escape sequences are appended at once. (since 4.2.0)
+     *
+     * @param builder a StringBuilder
+     * @param string a string
+     * @param truncated true if the string is truncated at the limit
+     */
+    private static void appendString(StringBuilder builder, String string, boolean truncated) {
+        builder.append('"');
+        var length = string.length();
+        var start = 0; // the start of the run
+        for (var index = 0; index < length; ++index) {
+            var ch = string.charAt(index);
+            if (ch < stringEscapes.length && stringEscapes[ch] != null) {
+                builder.append(string, start, index).append(stringEscapes[ch]);
+                start = index + 1;
+            }
+        }
+        builder.append(string, start, length);
+        if (truncated)
+            builder.append(limitString);
+        builder.append('"');
+    }
+
+    /**
+     * Returns a Node of the string.
+     *
+     * @param typeName the type name
+     * @param charSequence a CharSequence
      * @param logOptions LogOptions
-     * @return a LogBuffer
+     * @return a Node
+     * @since 4.2.0
      */
-    private static LogBuffer toStringArray(String mapName, Object array, LogOptions logOptions) {
-        var buff = new LogBuffer();
+    private static Node toNodeString(String typeName, CharSequence charSequence, LogOptions logOptions) {
+        var length = charSequence.length();
+        var truncated = length > logOptions.stringLimit;
+        return new Node.Str(typeName,
+            charSequence.subSequence(0, truncated ? logOptions.stringLimit : length).toString(), truncated);
+    }
 
-        buff.append(getTypeName(array.getClass(), array, logOptions, false, false, 0));
-        buff.noBreakAppend('[');
+    /**
+     * Returns a Node of the bytes.
+     *
+     * @param prefix the type name of the Blob or ByteBuffer (null if a byte array)
+     * @param bytes the bytes from the position to the limit (since 4.2.0, ByteBuffer)
+     * @param logOptions LogOptions
+     * @return a Node
+     * @since 4.2.0
+     */
+    private static Node toNodeBytes(String prefix, ByteBuffer bytes, LogOptions logOptions) {
+        var length = bytes.remaining();
+        var typeName = getClassInfo(byte[].class).arrayTypeName(length);
+        var truncated = length > logOptions.byteArrayLimit;
+        var isMultiLines = length > 16 && logOptions.byteArrayLimit > 16;
+        // The bytes are not copied, and the position of the ByteBuffer is not changed
+        return new Node.Bytes(prefix, typeName,
+            bytes.slice(bytes.position(), truncated ? logOptions.byteArrayLimit : length), truncated, isMultiLines);
+    }
 
-        var bodyBuff = toStringArrayBody(mapName, array, logOptions);
+    /**
+     * Lays out the bytes into a LogBuffer.
+     *
+     * @param buff the LogBuffer (since 4.2.0)
+     * @param bytesNode a Node of bytes
+     * @return the LogBuffer
+     */
+    private static LogBuffer layoutBytes(LogBuffer buff, Node.Bytes bytesNode) {
+        var isMultiLines = bytesNode.multiLines();
 
-        var isMultiLines = bodyBuff.isMultiLines() || buff.length() + bodyBuff.length() > maximumDataOutputWidth;
+        buff.append(bytesNode.typeName());
+        buff.noBreakAppend('[');
 
         if (isMultiLines) {
             buff.lineFeed();
             buff.upNest();
         }
 
-        buff.append(null, bodyBuff);
+        // since 4.2.0, formats the rows from the lookup tables
+        HexDump.appendTo(buff, bytesNode.bytes(), bytesNode.truncated(), isMultiLines);
 
-        if (isMultiLines) {
-            buff.lineFeed();
+        if (isMultiLines)
             buff.downNest();
-        }
-
         buff.noBreakAppend(']');
 
         return buff;
     }
 
-    private static LogBuffer toStringArrayBody(String mapName, Object array, LogOptions logOptions) {
-        var buff = new LogBuffer();
+    /**
+     * Returns a Node of the array.
+     *
+     * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
+     * @param array an array
+     * @param logOptions LogOptions
+     * @return a Node
+     * @since 4.2.0
+     */
+    private static Node toNodeArray(String mapName, Object array, LogOptions logOptions) {
+        var typeName = getTypeName(array.getClass(), array, logOptions, false, false);
 
         var componentType = array.getClass().getComponentType();
 
-        int length = Array.getLength(array);
+        return toNodeElements(typeName, Array.getLength(array), logOptions,
+            index -> toNode(mapName, Array.get(array, index), logOptions, componentType.isPrimitive(), true, false));
+    }
 
-        var wasMultiLines = false;
-        for (var index = 0; index < length; ++index) {
-            if (index > 0)
-                buff.noBreakAppend(", "); // Append a delimiter
+    /**
+     * Returns true if the elements are sampled from the head and the tail.
+     *
+     * @param size the number of the elements
+     * @param logOptions LogOptions
+     * @return true if some elements are skipped between the head and the tail; false otherwise
+     * @since 4.2.0
+     */
+    private static boolean isSampled(long size, LogOptions logOptions) {
+        return logOptions.collectionTailLimit > 0
+            && size > (long)logOptions.collectionLimit + logOptions.collectionTailLimit;
+    }
 
-            if (index >= logOptions.collectionLimit) {
-                buff.append(limitString);
-                break;
+    /**
+     * Returns a Node of the elements read by index.<br>
+     * If sampled, only the elements of the head and the tail are read.
+     *
+     * @param typeName the type name
+     * @param size the number of the elements
+     * @param logOptions LogOptions
+     * @param toNode the function that returns a Node of the element at the index
+     * @return a Node
+     * @since 4.2.0
+     */
+    private static Node toNodeElements(String typeName, int size, LogOptions logOptions, IntFunction<Node> toNode) {
+        var sampled = isSampled(size, logOptions);
+        // All the elements if not over the head and the tail
+        var headCount = sampled ? logOptions.collectionLimit
+            : (int)Math.min(size, (long)logOptions.collectionLimit + logOptions.collectionTailLimit);
+        var tailStart = sampled ? size - logOptions.collectionTailLimit : size;
+        var truncated = !sampled && size > headCount;
+
+        var elements = new Iterator<Node>() {
+            private int index;
+            private boolean skippedRead;
+
+            @Override
+            public boolean hasNext() {
+                return index < headCount || sampled && index < size;
             }
 
-            var component = Array.get(array, index);
+            @Override
+            public Node next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                if (index == headCount && !skippedRead) {
+                    skippedRead = true;
+                    index = tailStart;
+                    return new Node.Skipped(tailStart - headCount);
+                }
+                return toNode.apply(index++);
+            }
+        };
 
-            LogBuffer elementBuff = toString(mapName, component, logOptions, componentType.isPrimitive(), true, false);
-            if (index > 0 && (wasMultiLines || elementBuff.isMultiLines()))
-                buff.lineFeed();
-            buff.append(null, elementBuff);
+        if (getCurrentState().lazyConversion())
+            return new Node.LazyContainer(typeName, convertLater(elements), () -> truncated);
 
-            wasMultiLines = elementBuff.isMultiLines();
-        }
-
-        return buff;
+        var nodes = new ArrayList<Node>(sampled ? headCount + 1 + logOptions.collectionTailLimit : headCount);
+        elements.forEachRemaining(nodes::add);
+        return new Node.Container(typeName, nodes, truncated);
     }
 
     /**
-     * Returns a string representation of the collection as a LogBuffer.
+     * Returns a Node of the elements read by the iterator.<br>
+     * The type name is created with the number of the elements read.
+     * If the elements are converted while laid out, the type name is created before reading the elements,
+     * unless the size is output and the size method of the container traverses the elements.
      *
-     * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
-     * @param collection a Collection
+     * @param container the collection or map
+     * @param iterator the Iterator of the elements
      * @param logOptions LogOptions
-     * @return a LogBuffer
+     * @param toNode the function that returns a Node of the element
+     * @return a Node
+     * @since 4.2.0
      */
-    private static <E> LogBuffer toStringCollection(String mapName, Collection<E> collection, LogOptions logOptions) {
-        var buff = new LogBuffer();
+    private static <E> Node toNodeElements(Object container, Iterator<E> iterator, LogOptions logOptions, Function<E, Node> toNode) {
+        var elements = new ElementIterator<>(iterator, logOptions, toNode);
+
+        if (getCurrentState().lazyConversion()) {
+            var classInfo = getClassInfo(container.getClass());
+            if (isSizeOutput(classInfo, logOptions)) {
+                var size = container instanceof Map<?, ?> map ? map.size() : ((Collection<?>)container).size();
+                return new Node.LazyContainer(getContainerTypeName(container, logOptions, size, false),
+                    convertLater(elements), elements::truncated);
+            }
+            if (logOptions.minimumOutputSize == Integer.MAX_VALUE) {
+                // The size is not output
+                return new Node.LazyContainer(getContainerTypeName(container, logOptions, 0L, false),
+                    convertLater(elements), elements::truncated);
+            }
+        }
 
-        buff.append(getTypeName(collection.getClass(), collection, logOptions, false, false, 0));
-        buff.noBreakAppend('[');
+        var nodes = new ArrayList<Node>();
+        elements.forEachRemaining(nodes::add);
+        return new Node.Container(getContainerTypeName(container, logOptions, elements.count(), elements.truncated()),
+            nodes, elements.truncated());
+    }
 
-        var bodyBuff = toStringCollectionBody(mapName, collection, logOptions);
+    /**
+     * An Iterator that converts the elements read by an Iterator into Nodes.<br>
+     * If the collectionTailLimit of the LogOptions is positive, the elements after the head are read in one pass
+     * and only the last ones are kept in a buffer not larger than the collectionTailLimit.
+     *
+     * @param <E> the type of the elements
+     * @since 4.2.0
+     */
+    private static class ElementIterator<E> implements Iterator<Node> {
+        private final Iterator<E> iterator;
+        private final LogOptions logOptions;
+        private final Function<E, Node> toNode;
+
+        // The number of the elements read (the minimum number if truncated)
+        private long count;
+
+        // true after the elements of the head are read
+        private boolean headRead;
+
+        // true if the elements are truncated at the limit
+        private boolean truncated;
+
+        // The last elements (null if the rest of the elements are not read)
+        private ArrayDeque<E> tail;
+
+        // The number of the elements skipped between the head and the tail
+        private long skipped;
+
+        /**
+         * Constructs an ElementIterator.
+         *
+         * @param iterator the Iterator of the elements
+         * @param logOptions LogOptions
+         * @param toNode the function that returns a Node of the element
+         */
+        ElementIterator(Iterator<E> iterator, LogOptions logOptions, Function<E, Node> toNode) {
+            this.iterator = iterator;
+            this.logOptions = logOptions;
+            this.toNode = toNode;
+        }
 
-        var isMultiLines = bodyBuff.isMultiLines() || buff.length() + bodyBuff.length() > maximumDataOutputWidth;
+        @Override
+        public boolean hasNext() {
+            if (!headRead) {
+                if (iterator.hasNext()) {
+                    if (count < logOptions.collectionLimit)
+                        return true;
+                    if (logOptions.collectionTailLimit <= 0) {
+                        // There is at least one more element
+                        truncated = true;
+                        ++count;
+                    } else {
+                        readTail();
+                    }
+                }
+                headRead = true;
+            }
+            return skipped > 0L || tail != null && !tail.isEmpty();
+        }
 
-        if (isMultiLines) {
-            buff.lineFeed();
-            buff.upNest();
+        @Override
+        public Node next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            if (!headRead) {
+                ++count;
+                return toNode.apply(iterator.next());
+            }
+            if (skipped > 0L) {
+                var skippedNode = new Node.Skipped(skipped);
+                skipped = 0L;
+                return skippedNode;
+            }
+            return toNode.apply(tail.removeFirst());
         }
 
-        buff.append(null, bodyBuff);
+        /**
+         * Reads the rest of the elements keeping the last elements.
+         */
+        private void readTail() {
+            tail = new ArrayDeque<>(Math.min(logOptions.collectionTailLimit, 64));
+            while (iterator.hasNext()) {
+                if (tail.size() >= logOptions.collectionTailLimit) {
+                    tail.removeFirst();
+                    ++skipped;
+                }
+                tail.addLast(iterator.next());
+                ++count;
+            }
+        }
 
-        if (isMultiLines) {
-            buff.lineFeed();
-            buff.downNest();
+        /**
+         * Returns the number of the elements.
+         *
+         * @return the number of the elements read (the minimum number if truncated)
+         */
+        long count() {
+            return count;
         }
 
-        buff.noBreakAppend(']');
+        /**
+         * Returns true if the elements are truncated at the limit.
+         *
+         * @return true if the elements are truncated at the limit; false otherwise
+         */
+        boolean truncated() {
+            return truncated;
+        }
+    }
 
-        return buff;
+    /**
+     * Returns an Iterator that converts the elements while laid out.<br>
+     * Each element is converted with the objects being output by reflection when the container is converted,
+     * so that the cyclic references and the reflection nest limit are detected the same as converting all at once.
+     *
+     * @param elements the Iterator of the Nodes of the elements
+     * @return an Iterator of the Nodes of the elements
+     * @since 4.2.0
+     */
+    private static Iterator<Node> convertLater(Iterator<Node> elements) {
+        var reflectedObjects = getCurrentState().reflectedObjects();
+        var outerObjects = reflectedObjects.toArray();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return elements.hasNext();
+            }
+
+            @Override
+            public Node next() {
+                // Laid out after the value is converted, so no other object is being output by reflection
+                reflectedObjects.clear();
+                Collections.addAll(reflectedObjects, outerObjects);
+                try {
+                    return elements.next();
+                }
+                finally {
+                    reflectedObjects.clear();
+                }
+            }
+        };
     }
 
-    private static <E> LogBuffer toStringCollectionBody(String mapName, Collection<E> collection, LogOptions logOptions) {
-        var buff = new LogBuffer();
-    
-        var iterator = collection.iterator();
+    /**
+     * Returns a Node of the array of a primitive type without boxing the components.
+     *
+     * @param typeName the type name
+     * @param array an array of boolean, short, int, long, float or double
+     * @param logOptions LogOptions
+     * @return a Node
+     * @since 4.2.0
+     */
+    private static Node toNodePrimitives(String typeName, Object array, LogOptions logOptions) {
+        var length = Array.getLength(array);
+        // All the components if not over the head and the tail (since 4.2.0)
+        var count = (int)Math.min(length, (long)logOptions.collectionLimit + logOptions.collectionTailLimit);
+        var truncated = length > count;
+        if (truncated) {
+            var elements = Array.newInstance(array.getClass().getComponentType(), count);
+            System.arraycopy(array, 0, elements, 0, count);
+            array = elements;
+        }
+        return new Node.Primitives(typeName, array, truncated);
+    }
 
-        var wasMultiLines = false;
-        for (var index = 0; iterator.hasNext(); ++index) {
+    /**
+     * Lays out the array of a primitive type into a LogBuffer.
+     *
+     * @param buff the LogBuffer
+     * @param primitives a Node of the array
+     * @return the LogBuffer
+     * @since 4.2.0
+     */
+    private static LogBuffer layoutPrimitives(LogBuffer buff, Node.Primitives primitives) {
+        return layoutBrackets(buff, primitives.typeName(), bodyBuff -> layoutPrimitivesBody(bodyBuff, primitives));
+    }
+
+    /**
+     * Lays out the components of the array of a primitive type into a LogBuffer.<br>
+     * The components are formatted into a line buffer and the line is appended at once,
+     * breaking the lines before the same components as when appending them one by one.
+     *
+     * @param buff the LogBuffer
+     * @param primitives a Node of the array
+     * @return the LogBuffer
+     * @since 4.2.0
+     */
+    private static LogBuffer layoutPrimitivesBody(LogBuffer buff, Node.Primitives primitives) {
+        var array = primitives.array();
+        var appender = primitiveAppender(array);
+        var length = Array.getLength(array);
+        var count = length + (primitives.truncated() ? 1 : 0);
+
+        var line = new StringBuilder();
+        for (var index = 0; index < count; ++index) {
             if (index > 0)
-                buff.noBreakAppend(", ");
+                line.append(", "); // Append a delimiter
 
-            if (index >= logOptions.collectionLimit) {
-                buff.append(limitString);
-                break;
+            var start = line.length();
+            if (index < length)
+                appender.accept(line, index);
+            else
+                line.append(limitString);
+
+            var lineLength = buff.length() + start;
+            if (lineLength > 0 && lineLength + line.length() - start > maximumDataOutputWidth) {
+                // Breaks before the component
+                buff.noBreakAppend(line.substring(0, start));
+                buff.lineFeed();
+                line.delete(0, start);
             }
+        }
+        if (!line.isEmpty())
+            buff.noBreakAppend(line.toString());
 
-            var element = iterator.next();
+        return buff;
+    }
 
-            var elementBuff = toString(mapName, element, logOptions, false, false, true);
-            if (index > 0 && (wasMultiLines || elementBuff.isMultiLines()))
-                buff.lineFeed();
-            buff.append(null, elementBuff);
+    /**
+     * Returns the function that appends a component of the array to a StringBuilder.
+     *
+     * @param array an array of boolean, short, int, long, float or double
+     * @return the function that appends the component at the index
+     * @since 4.2.0
+     */
+    private static ObjIntConsumer<StringBuilder> primitiveAppender(Object array) {
+        if (array instanceof boolean[] booleans) return (builder, index) -> builder.append(booleans[index]);
+        if (array instanceof short  [] shorts  ) return (builder, index) -> builder.append(shorts  [index]);
+        if (array instanceof int    [] ints    ) return (builder, index) -> builder.append(ints    [index]);
+        if (array instanceof long   [] longs   ) return (builder, index) -> builder.append(longs   [index]);
+        if (array instanceof float  [] floats  ) return (builder, index) -> builder.append(floats  [index]);
+        if (array instanceof double [] doubles ) return (builder, index) -> builder.append(doubles [index]);
+        throw new IllegalArgumentException(array.getClass().getName());
+    }
 
-            wasMultiLines = elementBuff.isMultiLines();
+    /**
+     * Returns a Node of the collection.
+     *
+     * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
+     * @param value a Collection
+     * @param logOptions LogOptions
+     * @param typeName not used (created after the elements are counted)
+     * @return a Node
+     * @since 4.2.0
+     */
+    private static Node toNodeCollection(String mapName, Object value, LogOptions logOptions, String typeName) {
+        var collection = (Collection<?>)value;
+
+        if (   (logOptions.collectionTailLimit > 0 || getCurrentState().lazyConversion())
+            && collection instanceof List<?> list && list instanceof RandomAccess) {
+            // Reads only the elements of the head and the tail by index
+            var size = list.size();
+            return toNodeElements(getContainerTypeName(list, logOptions, size, false), size, logOptions,
+                index -> toNode(mapName, list.get(index), logOptions, false, false, true));
         }
 
-        return buff;
+        return toNodeElements(collection, collection.iterator(), logOptions,
+            element -> toNode(mapName, element, logOptions, false, false, true));
     }
 
     /**
-     * Returns a string representation of the map as a LogBuffer.
+     * Returns a Node of the map.
      *
      * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
-     * @param map a Map
+     * @param value a Map
      * @param logOptions LogOptions
-     * @return a LogBuffer
+     * @param typeName not used (created after the elements are counted)
+     * @return a Node
+     * @since 4.2.0
      */
-    private static <K, V> LogBuffer toStringMap(String mapName, Map<K, V> map, LogOptions logOptions) {
-        var buff = new LogBuffer();
+    private static Node toNodeMap(String mapName, Object value, LogOptions logOptions, String typeName) {
+        var map = (Map<?, ?>)value;
 
-        buff.append(getTypeName(map.getClass(), map, logOptions, false, false, 0));
-        buff.noBreakAppend('[');
+        return toNodeElements(map, map.entrySet().iterator(), logOptions,
+            keyValue -> new Node.Entry(
+                toNode(mapName, keyValue.getKey(), logOptions, false, false, true),
+                toNode(mapName, keyValue.getValue(), logOptions, false, false, true)));
+    }
 
-        var bodyBuff = toStringMapBody(mapName, map, logOptions);
+    /**
+     * Lays out the array, Collection or Map into a LogBuffer.
+     *
+     * @param buff the LogBuffer
+     * @param container a Node of the array, Collection or Map
+     * @return the LogBuffer
+     * @since 4.2.0
+     */
+    private static LogBuffer layoutContainer(LogBuffer buff, Node.Container container) {
+        return layoutBrackets(buff, container.typeName(), bodyBuff ->
+            layoutContainerBody(bodyBuff, container.elements().iterator(), container::truncated));
+    }
 
-        var isMultiLines = bodyBuff.isMultiLines() || buff.length() + bodyBuff.length() > maximumDataOutputWidth;
+    /**
+     * Lays out the array, Collection or Map converting the elements into a LogBuffer.
+     *
+     * @param buff the LogBuffer
+     * @param container a Node of the array, Collection or Map
+     * @return the LogBuffer
+     * @since 4.2.0
+     */
+    private static LogBuffer layoutLazyContainer(LogBuffer buff, Node.LazyContainer container) {
+        return layoutBrackets(buff, container.typeName(), bodyBuff ->
+            layoutContainerBody(bodyBuff, container.elements(), container.truncated()));
+    }
 
-        if (isMultiLines) {
+    /**
+     * Lays out the type name and the elements enclosed in brackets into a LogBuffer.
+     *
+     * @param buff the LogBuffer
+     * @param typeName the type name
+     * @param layoutBody the function that lays out the elements into a nested LogBuffer
+     * @return the LogBuffer
+     * @since 4.2.0
+     */
+    private static LogBuffer layoutBrackets(LogBuffer buff, String typeName, UnaryOperator<LogBuffer> layoutBody) {
+        buff.append(typeName);
+        buff.noBreakAppend('[');
+
+        var bodyBuff = layoutBody.apply(buff.newNested(null, () -> {
             buff.lineFeed();
             buff.upNest();
-        }
+        }));
 
-        buff.append(null, bodyBuff);
+        var isMultiLines = bodyBuff.isMultiLines() || buff.length() + bodyBuff.length() > maximumDataOutputWidth;
+
+        buff.appendNested(bodyBuff, isMultiLines);
 
         if (isMultiLines) {
             buff.lineFeed();
@@ -1766,33 +3156,33 @@ public class DebugTrace {
         return buff;
     }
 
-    private static <K, V> LogBuffer toStringMapBody(String mapName, Map<K, V> map, LogOptions logOptions) {
-        var buff = new LogBuffer();
-    
-        var iterator = map.entrySet().iterator();
-
+    private static LogBuffer layoutContainerBody(LogBuffer buff, Iterator<Node> elements, java.util.function.BooleanSupplier truncated) {
+        var index = 0;
         var wasMultiLines = false;
-        for (var index = 0; iterator.hasNext(); ++index) {
+        for (; elements.hasNext(); ++index) {
             if (index > 0)
-                buff.noBreakAppend(", ");
+                buff.noBreakAppend(", "); // Append a delimiter
 
-            if (index >= logOptions.collectionLimit) {
-                buff.append(limitString);
-                break;
-            }
+            var element = elements.next();
 
-            var keyValue = iterator.next();
+            var elementBuff = buff.newNested(null, index > 0 ? buff::lineFeed : null);
+            if (element instanceof Node.Entry entry) {
+                // Map entry
+                elementBuff.appendNested(layout(elementBuff.newNested(null, null), entry.key()), false);
+                elementBuff.appendNested(layout(elementBuff.newNested(keyValueSeparator, null), entry.value()), false);
+            } else {
+                layout(elementBuff, element);
+            }
 
-            var entryBuff = new LogBuffer();
-            var keyBuff = toString(mapName, keyValue.getKey(), logOptions, false, false, true);
-            var valueBuff = toString(mapName, keyValue.getValue(), logOptions, false, false, true);
-            entryBuff.append(null, keyBuff).append(keyValueSeparator, valueBuff);
+            buff.appendNested(elementBuff, index > 0 && (wasMultiLines || elementBuff.isMultiLines()));
 
-            if (index > 0 && (wasMultiLines || entryBuff.isMultiLines()))
-                buff.lineFeed();
-            buff.append(null, entryBuff);
+            wasMultiLines = elementBuff.isMultiLines();
+        }
 
-            wasMultiLines = entryBuff.isMultiLines();
+        if (truncated.getAsBoolean()) {
+            if (index > 0)
+                buff.noBreakAppend(", "); // Append a delimiter
+            buff.append(limitString);
         }
 
         return buff;
@@ -1805,95 +3195,166 @@ public class DebugTrace {
      * @return true if this class or super classes without Object class has toString method; false otherwise
      */
     private static boolean hasToString(Class<?> clazz) {
-        var result = false;
+        try {
+            // since 4.2.0, toString method is always public, so it is found without exceptions
+            return clazz.getMethod("toString").getDeclaringClass() != Object.class;
+        }
+        catch (Exception e) {
+            return false;
+        }
+    }
 
-        while (clazz != null && clazz != Object.class) {
-            try {
-                clazz.getDeclaredMethod("toString");
-                result = true;
-                break;
-            }
-            catch (Exception e) {
-            }
-            clazz = clazz.getSuperclass();
+    /**
+     * Returns how the values of the class are output.<br>
+     * The result is decided again after <code>initClass</code> is called.
+     *
+     * @param type the class
+     * @return how the values of the class are output
+     * @since 4.2.0
+     */
+    private static ClassInfo getClassInfo(Class<?> type) {
+        var classInfo = classInfos.get(type);
+        if (classInfo.generation() != classInfoGeneration) {
+            // decided with the previous properties
+            classInfos.remove(type);
+            classInfo = classInfos.get(type);
+        }
+        return classInfo;
+    }
+
+    private static ClassInfo createClassInfo(Class<?> type) {
+        var generation = classInfoGeneration;
+        var renderer = getRenderer(type);
+        if (renderer == null && !type.isPrimitive()) {
+            var isReflection = type.isRecord(); // since 4.0.0
+            isReflection = isReflection || matchesClassPaths(type, reflectionClassPaths);
+            if (!isReflection && !hasToString(type))
+                isReflection = true; // Dose not have a toString method
+            if (isReflection)
+                renderer = reflectionRenderer;
         }
+        if (renderer == null)
+            renderer = toStringRenderer;
 
-        return result;
+        var containerRenderer = renderer == collectionRenderer || renderer == mapRenderer;
+        return new ClassInfo(generation, renderer, createTypeName(type), type.isArray(),
+            !noOutputTypeSet.contains(type),
+            !noOutputComponentTypeSet.contains(type),
+            !noOutputElementTypeSet.contains(type),
+            containerRenderer, containerRenderer && isExpensiveSize(type));
     }
 
     /**
-     * Returns a string representation of the object as a LogBuffer uses reflection.
+     * Returns true if any of the class paths specifies the class or its package.
+     *
+     * @param type the class
+     * @param classPaths the class names and the package names ending with '.'
+     * @return true if any of the class paths specifies the class or its package; false otherwise
+     * @since 4.2.0
+     */
+    private static boolean matchesClassPaths(Class<?> type, Set<String> classPaths) {
+        var className = type.getName();
+        var packageName = type.getPackage() == null ? "" : type.getPackage().getName() + '.';
+        return classPaths.stream()
+            .anyMatch(classPath ->
+                classPath.endsWith(".")
+                    ? classPath.equals(packageName) // Specifies the package
+                    : classPath.equals(className) // Specifies the class
+            );
+    }
+
+    /**
+     * Returns true if the size method of the collection or map class traverses the elements or loads them.
+     *
+     * @param type the class of the collection or map
+     * @return true if the size method is expensive; false otherwise
+     * @since 4.2.0
+     */
+    private static boolean isExpensiveSize(Class<?> type) {
+        return expensiveSizeTypes.stream()
+                .anyMatch(expensiveSizeType ->
+                    expensiveSizeType.isAssignableFrom(type) // including the subclasses
+                    || expensiveSizeType == type.getEnclosingClass() // the views (e.g. ConcurrentSkipListMap.keySet())
+                )
+            || matchesClassPaths(type, expensiveSizeClassPaths);
+    }
+
+    /**
+     * Returns a Node of the object uses reflection.
      *
      * @param object an object
      * @param logOptions LogOptions
-     * @return a LogBuffer
+     * @return a Node
+     * @since 4.2.0
      */
-    private static LogBuffer toStringReflection(Object object, LogOptions logOptions) {
-        var buff = new LogBuffer();
-
+    private static Node toNodeReflection(Object object, LogOptions logOptions) {
         var type = object.getClass();
-        buff.append(getTypeName(type, object, logOptions, false, false, 0));
-    // 4.0.0
-    //  var isExtended = type.getSuperclass() != null && type.getSuperclass() != Object.class;
-        var isExtended = type.getSuperclass() != null &&
-            type.getSuperclass() != Object.class && type.getSuperclass() != Record.class;
-    ////
+        var typeName = getTypeName(type, object, logOptions, false, false);
+        var reflectionClass = getReflectionClass(type);
 
-        var bodyBuff = toStringReflectionBody(object, logOptions, type, isExtended);
+        var classes = new ArrayList<Node.ClassFields>();
+        toNodeReflectionBody(object, logOptions, reflectionClass, classes);
 
-        var isMultiLines = bodyBuff.isMultiLines() || buff.length() + bodyBuff.length() > maximumDataOutputWidth;
+        return new Node.Reflection(typeName, reflectionClass.extended(), classes);
+    }
 
-        buff.noBreakAppend('{');
-        if (isMultiLines) {
-            buff.lineFeed();
-            buff.upNest();
+    private static void toNodeReflectionBody(Object object, LogOptions logOptions, ReflectionClass reflectionClass, List<Node.ClassFields> classes) {
+        if (reflectionClass.base() != null) {
+            // Call for the base type
+            toNodeReflectionBody(object, logOptions, reflectionClass.base(), classes);
         }
 
-        buff.append(null, bodyBuff);
-
-        if (isMultiLines) {
-            if (buff.length() > 0)
-                buff.lineFeed();
-            buff.downNest();
+        // fields
+        var fieldNodes = new ArrayList<Node.Field>(reflectionClass.fields().size());
+        for (var accessor : reflectionClass.fields()) {
+            var value = accessor.isHidden() ? null : accessor.get(object);
+            if (accessor.isHidden() || value != null && accessor.isNonOutput())
+                // the property is non-printing and the value is not null or Groovy's metaClass
+                fieldNodes.add(new Node.Field(accessor.name(), null));
+            else
+                fieldNodes.add(new Node.Field(accessor.name(),
+                    toNode(accessor.mapName(), value, logOptions, accessor.isPrimitive(), false, false)));
         }
-        buff.noBreakAppend('}');
 
-        return buff;
+        classes.add(new Node.ClassFields(reflectionClass.className(), fieldNodes));
     }
 
-    private static LogBuffer toStringReflectionBody(Object object, LogOptions logOptions, Class<?> type, boolean isExtended) {
-        var buff = new LogBuffer();
+    /**
+     * Returns the fields of the class output using reflection.<br>
+     * The result is resolved once per class and is resolved again after <code>initClass</code> is called.
+     *
+     * @param type the class
+     * @return the fields of the class
+     * @since 4.2.0
+     */
+    private static ReflectionClass getReflectionClass(Class<?> type) {
+        var classInfo = getClassInfo(type);
+        var reflectionClass = classInfo.reflectionClass();
+        if (reflectionClass == null) {
+            reflectionClass = createReflectionClass(type);
+            classInfo.setReflectionClass(reflectionClass);
+        }
+        return reflectionClass;
+    }
 
+    private static ReflectionClass createReflectionClass(Class<?> type) {
         var baseType = type.getSuperclass();
     // 4.0.0
     //  if (baseType != null && baseType != Object.class) {
-        if (baseType != null && baseType != Object.class && baseType != Record.class) {
+        var isExtended = baseType != null && baseType != Object.class && baseType != Record.class;
     ////
-            // Call for the base type
-            var baseBuff =  toStringReflectionBody(object, logOptions, baseType, isExtended);
-            buff.append(null, baseBuff);
-        }
+        var base = isExtended ? getReflectionClass(baseType) : null;
 
         var typeNamePrefix = type.getName() + "#";
 
-        if (isExtended) {
-            if (buff.length() > 0)
-                buff.lineFeed();
-            buff.append(classBoundaryFormat.formatted(replaceTypeName(type.getName())));
-            buff.lineFeed();
-        }
-
         // fields
-        var first = true;
-        var wasMultiLines = false;
-        var fields = type.getDeclaredFields();
-        for (var field : fields) {
+        var accessors = new ArrayList<ReflectionClass.Accessor>();
+        for (var field : type.getDeclaredFields()) {
             int modifiers = field.getModifiers();
             if (Modifier.isStatic(modifiers)) continue; // static
 
             var fieldName = field.getName();
 
-            Object value = null;
             Method method = null; // getter method
 
             if (!Modifier.isPublic(modifiers)) {
@@ -1916,43 +3377,79 @@ public class DebugTrace {
                 }
             }
 
-            try {
-                if (method != null) {
-                    // has a getter method
-                    if (!Modifier.isPublic(method.getModifiers()))
-                        // non public method
-                        method.setAccessible(true);
-                    value = method.invoke(object);
-                } else {
-                    // does not have a getter method
-                    if (!Modifier.isPublic(modifiers))
-                        // non public field
-                        field.setAccessible(true);
-                    value = field.get(object);
-                }
-            }
-            catch (Exception e) {
-                value = "<" + e + ">";
-            }
+            accessors.add(new ReflectionClass.Accessor(field, method, getMapName(fieldName),
+                nonOutputProperties.contains(typeNamePrefix + fieldName), fieldName.equals("metaClass")));
+        }
+
+        return new ReflectionClass(base, replaceTypeName(type.getName()), isExtended, List.copyOf(accessors));
+    }
+
+    /**
+     * Lays out the object output using reflection into a LogBuffer.
+     *
+     * @param buff the LogBuffer
+     * @param reflection a Node of the object
+     * @return the LogBuffer
+     * @since 4.2.0
+     */
+    private static LogBuffer layoutReflection(LogBuffer buff, Node.Reflection reflection) {
+        buff.append(reflection.typeName());
+        var typeNameLength = buff.length();
+        buff.noBreakAppend('{');
+
+        var bodyBuff = layoutReflectionBody(buff.newNested(null, () -> {
+            buff.lineFeed();
+            buff.upNest();
+        }), reflection, reflection.classes().size() - 1);
 
+        var isMultiLines = bodyBuff.isMultiLines() || typeNameLength + bodyBuff.length() > maximumDataOutputWidth;
+
+        buff.appendNested(bodyBuff, isMultiLines);
+
+        if (isMultiLines) {
+            if (buff.length() > 0)
+                buff.lineFeed();
+            buff.downNest();
+        }
+        buff.noBreakAppend('}');
+
+        return buff;
+    }
+
+    private static LogBuffer layoutReflectionBody(LogBuffer buff, Node.Reflection reflection, int classIndex) {
+        if (classIndex > 0) {
+            // Call for the base type
+            buff.appendNested(layoutReflectionBody(buff.newNested(null, null), reflection, classIndex - 1), false);
+        }
+
+        var classFields = reflection.classes().get(classIndex);
+
+        if (reflection.extended()) {
+            if (buff.length() > 0)
+                buff.lineFeed();
+            var classBoundary = new StringBuilder();
+            classBoundaryTemplate.appendTo(classBoundary, classFields.className());
+            buff.append(classBoundary.toString());
+            buff.lineFeed();
+        }
+
+        // fields
+        var first = true;
+        var wasMultiLines = false;
+        for (var field : classFields.fields()) {
             if (!first)
                 buff.noBreakAppend(", ");
 
-            var fieldBuff = new LogBuffer();
-            fieldBuff.append(fieldName);
+            var fieldBuff = buff.newNested(null, first ? null : buff::lineFeed);
+            fieldBuff.append(field.name());
 
-            if (value != null && nonOutputProperties.contains(typeNamePrefix + fieldName) || fieldName.equals("metaClass"))
-                // the property is non-printing and the value is not null or Groovy's metaClass
+            if (field.value() == null)
+                // the property is non-printing
                 fieldBuff.noBreakAppend(keyValueSeparator).noBreakAppend(nonOutputString);
-            else {
-                String mapName = getMapName(fieldName);
-                LogBuffer valueBuff = toString(mapName, value, logOptions, field.getType().isPrimitive(), false, false);
-                fieldBuff.append(keyValueSeparator, valueBuff);
-            }
+            else
+                fieldBuff.appendNested(layout(fieldBuff.newNested(keyValueSeparator, null), field.value()), false);
 
-            if (!first && (wasMultiLines || fieldBuff.isMultiLines()))
-                buff.lineFeed();
-            buff.append(null, fieldBuff);
+            buff.appendNested(fieldBuff, !first && (wasMultiLines || fieldBuff.isMultiLines()));
 
             first = false;
             wasMultiLines = fieldBuff.isMultiLines();
@@ -0,0 +1,181 @@
+// HexDump.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Lays out bytes as a hexadecimal dump.<br>
+ * The hexadecimal digits and the characters of the bytes are taken from lookup tables
+ * and a row of 16 bytes is formatted into a char buffer and appended to the LogBuffer at once.
+ * The lines are broken before the same bytes as when appending the bytes one by one.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+final class HexDump {
+    // The number of bytes in a row
+    private static final int ROW_SIZE = 16;
+
+    // The hexadecimal digits of the byte values (2 chars for each value)
+    private static final char[] HEX_DIGITS = new char[256 * 2];
+
+    // The characters of the byte values output at the right side (. if not printable)
+    private static final char[] CHARS = new char[256];
+
+    static {
+        var digits = "0123456789ABCDEF";
+        for (var value = 0; value < 256; ++value) {
+            HEX_DIGITS[value * 2    ] = digits.charAt(value >> 4);
+            HEX_DIGITS[value * 2 + 1] = digits.charAt(value & 0xF);
+            CHARS[value] = value >= 0x20 && value <= 0x7E ? (char)value : '.';
+        }
+    }
+
+    private final LogBuffer buff;
+
+    // The characters not appended to the LogBuffer yet
+    private final char[] line;
+    private int lineLength;
+
+    // The characters of the bytes in the current row
+    private final char[] rowChars = new char[ROW_SIZE];
+
+    private HexDump(LogBuffer buff) {
+        this.buff = buff;
+        // address (up to 8 digits) + bytes + padding + characters + limitString
+        line = new char[9 + ROW_SIZE * 3 + ROW_SIZE * 3 + 2 + ROW_SIZE + DebugTrace.limitString.length()];
+    }
+
+    /**
+     * Appends the hexadecimal dump of the bytes to the LogBuffer.<br>
+     * If multiple lines, each row begins with the address and the LogBuffer must be at the beginning of a line.
+     *
+     * @param buff the LogBuffer
+     * @param bytes the bytes from the position to the limit (the position is not changed)
+     * @param truncated true if the bytes are truncated at the limit
+     * @param multiLines true if output in multiple lines
+     */
+    static void appendTo(LogBuffer buff, ByteBuffer bytes, boolean truncated, boolean multiLines) {
+        new HexDump(buff).append(bytes, truncated, multiLines);
+    }
+
+    private void append(ByteBuffer bytes, boolean truncated, boolean multiLines) {
+        var position = bytes.position();
+        var length = bytes.remaining();
+        var count = length + (truncated ? 1 : 0);
+
+        var offset = 0;
+        for (var index = 0; index < count; ++index) {
+            if (multiLines && offset == 0)
+                appendAddress(index);
+
+            if (offset > 0)
+                append(' ');
+
+            if (index >= length) {
+                noBreakAppend(DebugTrace.limitString);
+                break;
+            }
+
+            var value = bytes.get(position + index) & 0xFF;
+            line[lineLength++] = HEX_DIGITS[value * 2    ];
+            line[lineLength++] = HEX_DIGITS[value * 2 + 1];
+            rowChars[offset++] = CHARS[value];
+
+            if (multiLines && offset == ROW_SIZE) {
+                appendRowChars(offset);
+                lineFeed();
+                offset = 0;
+            }
+        }
+
+        if (multiLines) {
+            if (buff.length() + lineLength > 0) {
+                var charCount = offset;
+                for (; offset < ROW_SIZE; ++offset)
+                    noBreakAppend("   "); // padding
+                appendRowChars(charCount);
+                lineFeed();
+            }
+        } else {
+            if (offset > 0)
+                appendRowChars(offset);
+        }
+        flush();
+    }
+
+    /**
+     * Appends the hexadecimal address of the row (at least 4 digits).
+     *
+     * @param address the address
+     */
+    private void appendAddress(int address) {
+        var digitCount = Math.max(4, (Integer.SIZE - Integer.numberOfLeadingZeros(address) + 3) / 4);
+        breakIfOver(digitCount + 1);
+        for (var shift = (digitCount - 1) * 4; shift >= 0; shift -= 4)
+            line[lineLength++] = HEX_DIGITS[(address >>> shift & 0xF) * 2 + 1];
+        line[lineLength++] = ' ';
+    }
+
+    /**
+     * Appends the characters of the bytes in the current row.
+     *
+     * @param charCount the number of the characters
+     */
+    private void appendRowChars(int charCount) {
+        noBreakAppend("  ");
+        System.arraycopy(rowChars, 0, line, lineLength, charCount);
+        lineLength += charCount;
+    }
+
+    /**
+     * Appends the character, breaking the line if the maximum width is exceeded.
+     *
+     * @param ch the character
+     */
+    private void append(char ch) {
+        breakIfOver(1);
+        line[lineLength++] = ch;
+    }
+
+    /**
+     * Appends the string without breaking the line.
+     *
+     * @param string the string
+     */
+    private void noBreakAppend(String string) {
+        string.getChars(0, string.length(), line, lineLength);
+        lineLength += string.length();
+    }
+
+    /**
+     * Breaks the line if appending the characters exceeds the maximum width.
+     *
+     * @param length the number of the characters to append
+     */
+    private void breakIfOver(int length) {
+        var width = buff.length() + lineLength;
+        if (width > 0 && width + length > DebugTrace.maximumDataOutputWidth)
+            lineFeed();
+    }
+
+    /**
+     * Appends the characters to the LogBuffer and breaks the line.
+     */
+    private void lineFeed() {
+        flush();
+        buff.lineFeed();
+    }
+
+    /**
+     * Appends the characters to the LogBuffer.
+     */
+    private void flush() {
+        if (lineLength > 0) {
+            buff.noBreakAppend(new String(line, 0, lineLength));
+            lineLength = 0;
+        }
+    }
+}
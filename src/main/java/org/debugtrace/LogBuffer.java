@@ -3,36 +3,340 @@
 
 package org.debugtrace;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import org.debugtrace.helper.Tuple;
+import java.util.Arrays;
 
 /**
- * Buffers logs.
+ * Buffers logs.<br>
+ * Appending another LogBuffer links its lines instead of copying them,
+ * so laying out nested values costs linear time in the output size.
+ * The lines are rendered into a char array when they are read. (since 4.2.0)<br>
+ * A nested LogBuffer appends its lines to the parent as soon as it becomes multiple lines,
+ * and a LogBuffer with a LineSink passes the lines to it as soon as they are broken. (since 4.2.0)
  *
  * @since 3.0.0
  * @author Masato Kokubo
  */
 class LogBuffer {
+    // The empty fragments shared until something is appended (since 4.2.0)
+    private static final Object[] NO_FRAGMENTS = {};
+
+    // The maximum number of fragments of a line to be copied instead of linked (since 4.2.0)
+    private static final int MAX_COPIED_FRAGMENTS = 4;
+
+    /**
+     * Receives the lines of a LogBuffer as soon as they are broken.
+     *
+     * @since 4.2.0
+     */
+    @FunctionalInterface
+    interface LineSink {
+        /**
+         * Receives a line.
+         *
+         * @param dataNestLevel the data indentation level of the line
+         * @param chars the characters of the line (valid only during this call)
+         * @param length the number of the characters
+         */
+        void accept(int dataNestLevel, char[] chars, int length);
+    }
+
+    /**
+     * A line of logs.<br>
+     * Consists of Strings and lines of the appended LogBuffers. (since 4.2.0)
+     */
+    private static final class Line {
+        private Object[] fragments = NO_FRAGMENTS; // String or Line
+        private int fragmentCount;
+
+        // the length and the length without the trailing spaces
+        private int length;
+        private int nonSpaceLength;
+        private boolean trimmed;
+
+        // the data indentation level in the owner LogBuffer (only if broken)
+        private int level;
+        private LogBuffer owner;
+
+        // the adjacent broken lines
+        private Line previous;
+        private Line next;
+
+        private void add(Object fragment) {
+            if (fragmentCount == fragments.length)
+                fragments = Arrays.copyOf(fragments, Math.max(fragmentCount * 2, 4));
+            fragments[fragmentCount++] = fragment;
+        }
+
+        private void append(String string) {
+            if (string.isEmpty())
+                return;
+            add(string);
+            var index = string.length() - 1;
+            while (index >= 0 && string.charAt(index) == ' ')
+                --index;
+            if (index >= 0)
+                nonSpaceLength = length + index + 1;
+            length += string.length();
+        }
+
+        private void append(Line line) {
+            if (line.length == 0)
+                return;
+            if (line.fragmentCount <= MAX_COPIED_FRAGMENTS && !line.trimmed) {
+                for (var index = 0; index < line.fragmentCount; ++index)
+                    add(line.fragments[index]);
+            } else {
+                add(line);
+            }
+            if (line.nonSpaceLength > 0)
+                nonSpaceLength = length + line.nonSpaceLength;
+            length += line.length;
+        }
+
+        // Renders the characters up to the limit and returns the number of them
+        private int render(char[] chars, int offset, int limit) {
+            var count = Math.min(length, limit);
+            var remaining = count;
+            for (var index = 0; index < fragmentCount && remaining > 0; ++index) {
+                var rendered = 0;
+                if (fragments[index] instanceof String string) {
+                    rendered = Math.min(string.length(), remaining);
+                    string.getChars(0, rendered, chars, offset);
+                } else {
+                    rendered = ((Line)fragments[index]).render(chars, offset, remaining);
+                }
+                offset += rendered;
+                remaining -= rendered;
+            }
+            return count;
+        }
+    }
+
     private int nestLevel = 0;
     private int appendNestLevel = 0;
 
-    // tuples of data indentation level and log string
-    private final List<Tuple._2<Integer, String>> lines = new ArrayList<>();
+    // the broken lines (may contain the lines of the appended LogBuffers) (since 4.2.0)
+    private Line firstBrokenLine;
+    private Line lastBrokenLine;
+    private int brokenLineCount;
 
     // buffer for a line of logs
-    private final StringBuilder lastLine = new StringBuilder();
+    private Line lastLine = new Line();
+
+    // the LogBuffer that this buffer was appended to and its nest level at that time (since 4.2.0)
+    private LogBuffer appendedBuffer;
+    private int appendedNestLevel;
+
+    // the data indentation level offset resolved when rendering (since 4.2.0)
+    private int levelOffset;
+    private boolean levelOffsetResolved;
+
+    // the rendered lines (since 4.2.0)
+    private char[] chars;
+    private int[] lineEnds;
+    private int[] lineLevels;
+
+    // the parent, the separator and the action before appending to it if nested (since 4.2.0)
+    private LogBuffer parent;
+    private String separator;
+    private Runnable beforeLines;
+
+    // true if the lines are being appended to the parent (since 4.2.0)
+    private boolean streaming;
+
+    // the LineSink to pass the broken lines and the buffer to render them (since 4.2.0)
+    private LineSink sink;
+    private char[] sinkChars;
+
+    /**
+     * Constructs a LogBuffer.
+     */
+    public LogBuffer() {
+    }
+
+    /**
+     * Constructs a LogBuffer that passes the lines to the LineSink as soon as they are broken
+     * instead of holding them.
+     *
+     * @param sink the LineSink
+     * @since 4.2.0
+     */
+    public LogBuffer(LineSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Creates a LogBuffer of a nested value to be appended to this by <code>appendNested</code>.<br>
+     * When it becomes multiple lines, the beforeLines action is run, the separator and the first line are appended to this,
+     * and then the following lines are appended to this while the nested value is laid out.
+     * This LogBuffer must not be changed otherwise until <code>appendNested</code> is called.
+     *
+     * @param separator the separator string to append before the lines if not null
+     * @param beforeLines the action to run before appending the lines if multiple lines (accept null)
+     * @return a new LogBuffer
+     * @since 4.2.0
+     */
+    public LogBuffer newNested(String separator, Runnable beforeLines) {
+        var nested = new LogBuffer();
+        nested.parent = this;
+        nested.separator = separator;
+        nested.beforeLines = beforeLines;
+        return nested;
+    }
+
+    /**
+     * Appends the rest of a LogBuffer created by <code>newNested</code>.
+     *
+     * @param nested the LogBuffer created by <code>newNested</code>
+     * @param beforeLines if true, runs the beforeLines action unless it has been run
+     * @return this object
+     * @since 4.2.0
+     */
+    public LogBuffer appendNested(LogBuffer nested, boolean beforeLines) {
+        if (nested.streaming) {
+            // The last line left in the nested LogBuffer
+            var brokenLine = nested.firstBrokenLine;
+            if (nested.length() > 0) {
+                if (brokenLine != null)
+                    linkBrokenLines(brokenLine, brokenLine, 1);
+                appendLine(nested.lastLine, nested.nestLevel, false);
+            } else {
+                appendLine(brokenLine, nested.levelOf(brokenLine), false);
+            }
+        } else {
+            if (beforeLines && nested.beforeLines != null)
+                nested.beforeLines.run();
+            append(nested.separator, nested);
+        }
+        nested.beforeLines = null;
+        return this;
+    }
+
+    /**
+     * Starts appending the lines to the parent.<br>
+     * The last broken line is held because it may be appended to the last line of the parent.
+     *
+     * @since 4.2.0
+     */
+    private void startStreaming() {
+        streaming = true;
+        if (beforeLines != null)
+            beforeLines.run();
+
+        if (separator != null)
+            parent.append(separator, 0, true);
+        var firstLine = firstBrokenLine;
+        parent.appendLine(firstLine, levelOf(firstLine), separator != null);
+        parent.lineFeed();
+
+        appendedBuffer = parent;
+        appendedNestLevel = parent.nestLevel;
+        var secondLine = firstLine.next;
+        var lastBrokenLine = this.lastBrokenLine;
+        firstBrokenLine = null;
+        this.lastBrokenLine = null;
+        if (secondLine != null) {
+            if (secondLine != lastBrokenLine)
+                parent.linkBrokenLines(secondLine, lastBrokenLine.previous, brokenLineCount - 2);
+            lastBrokenLine.previous = null;
+            firstBrokenLine = lastBrokenLine;
+            this.lastBrokenLine = lastBrokenLine;
+        }
+    }
+
+    /**
+     * Starts appending the lines to the parent if nested and multiple lines.
+     *
+     * @since 4.2.0
+     */
+    private void checkStreaming() {
+        if (parent != null && !streaming && isMultiLines())
+            startStreaming();
+    }
 
     /**
      * Breaks the current line.
      */
     public void lineFeed() {
-        while (lastLine.length() > 0 && lastLine.charAt(lastLine.length() - 1) == ' ')
-            lastLine.setLength(lastLine.length() - 1);
-        lines.add(Tuple.of(nestLevel + appendNestLevel, lastLine.toString()));
+        var line = lastLine;
+        line.trimmed = line.nonSpaceLength < line.length;
+        line.length = line.nonSpaceLength; // removes the trailing spaces
+        line.level = nestLevel + appendNestLevel;
+        line.owner = this;
         appendNestLevel = 0;
-        lastLine.setLength(0);
+        lastLine = new Line();
+        linkBrokenLines(line, line, 1);
+    }
+
+    /**
+     * Links the broken lines to the end.
+     *
+     * @param first the first line to link
+     * @param last the last line to link
+     * @param count the number of lines to link
+     * @since 4.2.0
+     */
+    private void linkBrokenLines(Line first, Line last, int count) {
+        brokenLineCount += count;
+        chars = null;
+
+        if (sink != null) {
+            // Passes the lines to the LineSink
+            for (var line = first; ; line = line.next) {
+                passLine(line.level + levelOffset(line.owner), line);
+                if (line == last) break;
+            }
+            return;
+        }
+
+        if (streaming) {
+            // Appends the lines to the parent except the last one
+            if (lastBrokenLine != null) {
+                lastBrokenLine.next = first;
+                first.previous = lastBrokenLine;
+                first = lastBrokenLine;
+                ++count;
+            }
+            if (first != last)
+                parent.linkBrokenLines(first, last.previous, count - 1);
+            last.previous = null;
+            firstBrokenLine = last;
+            lastBrokenLine = last;
+            return;
+        }
+
+        first.previous = lastBrokenLine;
+        last.next = null;
+        if (lastBrokenLine == null)
+            firstBrokenLine = first;
+        else
+            lastBrokenLine.next = first;
+        lastBrokenLine = last;
+        checkStreaming();
+    }
+
+    /**
+     * Renders the line and passes it to the LineSink.
+     *
+     * @param dataNestLevel the data indentation level of the line
+     * @param line the line
+     * @since 4.2.0
+     */
+    private void passLine(int dataNestLevel, Line line) {
+        if (sinkChars == null || sinkChars.length < line.length)
+            sinkChars = new char[Math.max(line.length, 256)];
+        var length = line.render(sinkChars, 0, line.length);
+        sink.accept(dataNestLevel, sinkChars, length);
+    }
+
+    /**
+     * Passes the last line to the LineSink if it is not empty.
+     *
+     * @since 4.2.0
+     */
+    public void flush() {
+        if (length() > 0)
+            passLine(nestLevel, lastLine);
     }
 
     /**
@@ -59,16 +363,22 @@ class LogBuffer {
      */
     public LogBuffer append(Object value, int nestLevel, boolean noBreak) {
         String str = null;
-        try {
-            str = value.toString();
-        }
-        catch (Exception e) {
-            str = e.toString();
+        if (value instanceof String string) {
+            str = string;
+        } else {
+            try {
+                str = value.toString();
+            }
+            catch (Exception e) {
+                str = e.toString();
+            }
         }
         if (!noBreak && length() > 0 && length() + str.length() > DebugTrace.maximumDataOutputWidth)
             lineFeed();
         appendNestLevel = nestLevel;
         lastLine.append(str);
+        chars = null;
+        checkStreaming();
         return this;
     }
 
@@ -105,7 +415,9 @@ class LogBuffer {
     }
 
     /**
-     * Appends lines of another LogBuffer.
+     * Appends lines of another LogBuffer.<br>
+     * The lines between the first and the last are linked without copying,
+     * and the other LogBuffer must not be appended to after this. (since 4.2.0)
      *
      * @param separator the separator string to append if not null
      * @param buff another LogBuffer
@@ -114,23 +426,76 @@ class LogBuffer {
     public LogBuffer append(String separator, LogBuffer buff) {
         if (separator != null)
             append(separator, 0, true);
-        var index = 0;
-        for (var line : buff.lines()) {
-            if (index > 0)
-                lineFeed();
-            append(line.value2(), line.value1(), index == 0 && separator != null);
-            ++index;
+
+        var lineCount = buff.lineCount();
+        if (lineCount == 0)
+            return this;
+
+        // the first line
+        var firstLine = buff.brokenLineCount > 0 ? buff.firstBrokenLine : buff.lastLine;
+        appendLine(firstLine, buff.levelOf(firstLine), separator != null);
+        if (lineCount == 1)
+            return this;
+
+        // the last line
+        var lastLineBroken = buff.lastLine.length == 0;
+        var lastLine = lastLineBroken ? buff.lastBrokenLine : buff.lastLine;
+        var lastLevel = buff.levelOf(lastLine);
+
+        lineFeed();
+
+        // the lines between the first and the last
+        if (lineCount > 2) {
+            buff.appendedBuffer = this;
+            buff.appendedNestLevel = nestLevel;
+            linkBrokenLines(buff.firstBrokenLine.next,
+                lastLineBroken ? buff.lastBrokenLine.previous : buff.lastBrokenLine, lineCount - 2);
         }
+
+        appendLine(lastLine, lastLevel, false);
         return this;
     }
 
+    /**
+     * Appends a line of another LogBuffer.
+     *
+     * @param line the line
+     * @param level the data indentation level of the line
+     * @param noBreak if true, does not break even if the maximum width is exceeded
+     * @since 4.2.0
+     */
+    private void appendLine(Line line, int level, boolean noBreak) {
+        if (!noBreak && length() > 0 && length() + line.length > DebugTrace.maximumDataOutputWidth)
+            lineFeed();
+        appendNestLevel = level;
+        lastLine.append(line);
+        chars = null;
+        checkStreaming();
+    }
+
+    /**
+     * Returns the data indentation level of the line in this LogBuffer.
+     *
+     * @param line a line of this LogBuffer
+     * @return the data indentation level
+     * @since 4.2.0
+     */
+    private int levelOf(Line line) {
+        if (line == lastLine)
+            return nestLevel;
+        var level = line.level;
+        for (var owner = line.owner; owner != this; owner = owner.appendedBuffer)
+            level += owner.appendedNestLevel;
+        return level;
+    }
+
     /**
      * Returns log length of the last line.
      *
      * @return log length of the last line
      */
     public int length() {
-        return lastLine.length();
+        return lastLine.length;
     }
 
     /**
@@ -139,18 +504,90 @@ class LogBuffer {
      * @return true if multiple line, false otherwise
      */
     public boolean isMultiLines() {
-        return lines.size() > 1 || lines.size() == 1 && length() > 0;
+        return brokenLineCount > 1 || brokenLineCount == 1 && length() > 0;
+    }
+
+    /**
+     * Returns the number of lines including the last line if it is not empty.
+     *
+     * @return the number of lines
+     * @since 4.2.0
+     */
+    public int lineCount() {
+        return length() > 0 ? brokenLineCount + 1 : brokenLineCount;
+    }
+
+    /**
+     * Returns the data indentation level of the line.
+     *
+     * @param index the index of the line
+     * @return the data indentation level
+     * @since 4.2.0
+     */
+    public int dataNestLevel(int index) {
+        render();
+        return lineLevels[index];
     }
 
     /**
-     * Returns tuples of data indentation level and log string.
+     * Appends the line to the StringBuilder.
      *
-     * @return tuples of data indentation level and log string
+     * @param builder the StringBuilder
+     * @param index the index of the line
+     * @return the StringBuilder
+     * @since 4.2.0
      */
-    public List<Tuple._2<Integer, String>> lines() {
-        var lines = new ArrayList<>(this.lines);
-        if (lastLine.length() > 0)
-            lines.add(Tuple.of(nestLevel, lastLine.toString()));
-        return lines;
+    public StringBuilder appendLineTo(StringBuilder builder, int index) {
+        render();
+        var lineStart = index > 0 ? lineEnds[index - 1] : 0;
+        return builder.append(chars, lineStart, lineEnds[index] - lineStart);
+    }
+
+    /**
+     * Renders the lines into the char array.
+     *
+     * @since 4.2.0
+     */
+    private void render() {
+        if (chars != null)
+            return;
+
+        var lineCount = lineCount();
+        var charCount = lastLine.length;
+        for (var line = firstBrokenLine; line != null; line = line.next)
+            charCount += line.length;
+
+        chars = new char[charCount];
+        lineEnds = new int[lineCount];
+        lineLevels = new int[lineCount];
+        var offset = 0;
+        var index = 0;
+        for (var line = firstBrokenLine; line != null; line = line.next, ++index) {
+            offset += line.render(chars, offset, line.length);
+            lineEnds[index] = offset;
+            lineLevels[index] = line.level + levelOffset(line.owner);
+        }
+        if (index < lineCount) {
+            offset += lastLine.render(chars, offset, lastLine.length);
+            lineEnds[index] = offset;
+            lineLevels[index] = nestLevel;
+        }
+    }
+
+    /**
+     * Returns the data indentation level offset of the LogBuffer appended to this.
+     *
+     * @param buff this or a LogBuffer appended to this
+     * @return the data indentation level offset
+     * @since 4.2.0
+     */
+    private int levelOffset(LogBuffer buff) {
+        if (buff == this)
+            return 0;
+        if (!buff.levelOffsetResolved) {
+            buff.levelOffset = buff.appendedNestLevel + levelOffset(buff.appendedBuffer);
+            buff.levelOffsetResolved = true;
+        }
+        return buff.levelOffset;
     }
 }
@@ -19,7 +19,15 @@ public class LogOptions {
     /** The limit value of elements for collection and map to output */
     public int collectionLimit;
 
-    /** The limit value of elements for byte array (byte[]) to output */
+    /**
+     * The number of the last elements of array, collection and map to output after the skipped elements
+     * (if 0, the elements over collectionLimit are not output)
+     *
+     * @since 4.2.0
+     */
+    public int collectionTailLimit;
+
+    /** The limit value of elements for byte array (byte[]), ByteBuffer and Blob to output */
     public int byteArrayLimit;
 
     /** The limit value of characters for string to output */
@@ -47,6 +55,7 @@ public class LogOptions {
         minimumOutputSize   = DebugTrace.minimumOutputSize;
         minimumOutputLength = DebugTrace.minimumOutputLength;
         collectionLimit     = DebugTrace.collectionLimit;
+        collectionTailLimit = DebugTrace.collectionTailLimit; // since 4.2.0
         byteArrayLimit      = DebugTrace.byteArrayLimit;
         stringLimit         = DebugTrace.stringLimit;
         reflectionNestLimit = DebugTrace.reflectionNestLimit;
@@ -62,6 +71,8 @@ public class LogOptions {
             minimumOutputLength = 0;
         if (collectionLimit < 0)
             collectionLimit = 0;
+        if (collectionTailLimit < 0) // since 4.2.0
+            collectionTailLimit = 0;
         if (byteArrayLimit < 0)
             byteArrayLimit = 0;
         if (stringLimit < 0)
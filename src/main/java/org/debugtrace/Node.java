@@ -0,0 +1,136 @@
+// Node.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A structural representation of a value to output.<br>
+ * DebugTrace converts a value into a tree of Nodes and then lays out the Nodes into lines.
+ * The binary trace output holds the Nodes instead of the lines.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+sealed interface Node {
+    /**
+     * A value output as a text.
+     *
+     * @param typeName the type name (empty if not output)
+     * @param text the text of the value
+     * @param breakable true if the line can be broken before the text
+     */
+    record Text(String typeName, String text, boolean breakable) implements Node {}
+
+    /**
+     * A string (CharSequence, char[] or Clob).
+     *
+     * @param typeName the type name (empty if not output)
+     * @param string the string (not longer than the limit)
+     * @param truncated true if the string is truncated at the limit
+     */
+    record Str(String typeName, String string, boolean truncated) implements Node {}
+
+    /**
+     * A byte array, Blob or ByteBuffer.
+     *
+     * @param prefix the type name of the Blob or ByteBuffer (null if a byte array)
+     * @param typeName the type name of the byte array
+     * @param bytes the bytes from the position to the limit (not longer than the limit)
+     * @param truncated true if the bytes are truncated at the limit
+     * @param multiLines true if output in multiple lines
+     */
+    record Bytes(String prefix, String typeName, ByteBuffer bytes, boolean truncated, boolean multiLines) implements Node {}
+
+    /**
+     * An array of boolean, short, int, long, float or double.
+     *
+     * @param typeName the type name
+     * @param array the array (not longer than the limit)
+     * @param truncated true if the elements are truncated at the limit
+     */
+    record Primitives(String typeName, Object array, boolean truncated) implements Node {}
+
+    /**
+     * A present Optional.
+     *
+     * @param typeName the type name (empty if not output)
+     * @param value the Node of the value
+     */
+    record Present(String typeName, Node value) implements Node {}
+
+    /**
+     * An array, Collection or Map.
+     *
+     * @param typeName the type name (empty if not output)
+     * @param elements the Nodes of the elements (Entry if a Map)
+     * @param truncated true if the elements are truncated at the limit
+     */
+    record Container(String typeName, List<Node> elements, boolean truncated) implements Node {}
+
+    /**
+     * An array, Collection or Map whose elements are converted while laid out.<br>
+     * Used only for the streaming output, so that all the Nodes of the elements are not held at the same time.
+     *
+     * @param typeName the type name (empty if not output)
+     * @param elements the Iterator that converts the elements into Nodes (Entry if a Map)
+     * @param truncated returns true if the elements are truncated at the limit after all the elements are read
+     */
+    record LazyContainer(String typeName, Iterator<Node> elements, BooleanSupplier truncated) implements Node {}
+
+    /**
+     * An entry of a Map.
+     *
+     * @param key the Node of the key
+     * @param value the Node of the value
+     */
+    record Entry(Node key, Node value) implements Node {}
+
+    /**
+     * An object output using reflection.
+     *
+     * @param typeName the type name (empty if not output)
+     * @param extended true if the class extends another class
+     * @param classes the classes from the base class to the class of the object
+     */
+    record Reflection(String typeName, boolean extended, List<ClassFields> classes) implements Node {}
+
+    /**
+     * The fields declared in a class.
+     *
+     * @param className the class name
+     * @param fields the fields
+     */
+    record ClassFields(String className, List<Field> fields) {}
+
+    /**
+     * A field of an object.
+     *
+     * @param name the field name
+     * @param value the Node of the value (null if not output)
+     */
+    record Field(String name, Node value) {}
+
+    /**
+     * A cyclic reference.
+     *
+     * @param text the text of the object
+     */
+    record Cyclic(String text) implements Node {}
+
+    /**
+     * An object over the reflection nest limit.
+     */
+    record Limit() implements Node {}
+
+    /**
+     * The elements skipped between the head and the tail of an array, Collection or Map.
+     *
+     * @param count the number of the skipped elements
+     */
+    record Skipped(long count) implements Node {}
+}
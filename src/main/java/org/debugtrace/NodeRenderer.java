@@ -0,0 +1,26 @@
+// NodeRenderer.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+/**
+ * Converts the values of a type into Nodes.<br>
+ * DebugTrace decides the NodeRenderer once per class
+ * and converts the values with it instead of examining the type of each value.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@FunctionalInterface
+interface NodeRenderer {
+    /**
+     * Returns a Node of the value.
+     *
+     * @param mapName the name of the map for get a constant name corresponding to the value (accept null)
+     * @param value the value (not null)
+     * @param logOptions LogOptions
+     * @param typeName the type name to be output
+     * @return a Node
+     */
+    Node toNode(String mapName, Object value, LogOptions logOptions, String typeName);
+}
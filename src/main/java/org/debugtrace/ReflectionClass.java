@@ -0,0 +1,176 @@
+// ReflectionClass.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * The fields of a class output using reflection.<br>
+ * The fields, their getter methods, whether they are output and their map names are resolved once per class,
+ * and the values are read through the method handles of the getter methods or the fields.
+ * Instances are immutable and are shared by all threads.
+ *
+ * @param base the base class (null if the base class is not output)
+ * @param className the class name output at the class boundary
+ * @param extended true if the class has a base class without Object and Record class
+ * @param fields the non-static fields
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+record ReflectionClass(ReflectionClass base, String className, boolean extended, List<Accessor> fields) {
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    // The type of the method handles: (Object)Object
+    private static final MethodType accessorType = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * The accessor of a field.
+     */
+    static final class Accessor {
+        private final String name;
+        private final String mapName;
+        private final boolean primitive;
+        private final boolean nonOutput;
+        private final boolean hidden;
+        private final Field field;
+        private final Method method;
+        private final MethodHandle handle;
+
+        /**
+         * Constructs an Accessor.
+         *
+         * @param field the field
+         * @param method the getter method (null if the field is read directly)
+         * @param mapName the map name of the field (null if there is no map)
+         * @param nonOutput true if the value is not output unless null
+         * @param hidden true if the value is never output (Groovy's metaClass)
+         */
+        Accessor(Field field, Method method, String mapName, boolean nonOutput, boolean hidden) {
+            this.name = field.getName();
+            this.mapName = mapName;
+            this.primitive = field.getType().isPrimitive();
+            this.nonOutput = nonOutput;
+            this.hidden = hidden;
+            this.field = field;
+            this.method = method;
+            this.handle = hidden ? null : createHandle(field, method);
+        }
+
+        /**
+         * Returns the name of the field.
+         *
+         * @return the name of the field
+         */
+        String name() {
+            return name;
+        }
+
+        /**
+         * Returns the map name of the field.
+         *
+         * @return the map name of the field (null if there is no map)
+         */
+        String mapName() {
+            return mapName;
+        }
+
+        /**
+         * Returns true if the type of the field is primitive.
+         *
+         * @return true if the type of the field is primitive; false otherwise
+         */
+        boolean isPrimitive() {
+            return primitive;
+        }
+
+        /**
+         * Returns true if the value is not output unless null.
+         *
+         * @return true if the value is not output unless null; false otherwise
+         */
+        boolean isNonOutput() {
+            return nonOutput;
+        }
+
+        /**
+         * Returns true if the value is never output.
+         *
+         * @return true if the value is never output; false otherwise
+         */
+        boolean isHidden() {
+            return hidden;
+        }
+
+        /**
+         * Returns the value of the field of the object.<br>
+         * If the value cannot be read, returns the string of the exception enclosed in <code>&lt;&gt;</code>.
+         *
+         * @param object the object
+         * @return the value of the field
+         */
+        Object get(Object object) {
+            if (handle != null) {
+                try {
+                    return (Object)handle.invokeExact(object);
+                }
+                catch (Throwable e) {
+                    // The same string as when Method.invoke throws it
+                    return "<" + new InvocationTargetException(e) + ">";
+                }
+            }
+
+            // The method handle could not be created, so tries the access reporting the exception
+            try {
+                if (method != null) {
+                    // has a getter method
+                    if (!Modifier.isPublic(method.getModifiers()))
+                        // non public method
+                        method.setAccessible(true);
+                    return method.invoke(object);
+                } else {
+                    // does not have a getter method
+                    if (!Modifier.isPublic(field.getModifiers()))
+                        // non public field
+                        field.setAccessible(true);
+                    return field.get(object);
+                }
+            }
+            catch (Exception e) {
+                return "<" + e + ">";
+            }
+        }
+
+        /**
+         * Creates the method handle to read the field.<br>
+         * The accessible flag is also set for the public members,
+         * so that the members of the non-public classes can be read.
+         *
+         * @param field the field
+         * @param method the getter method (null if the field is read directly)
+         * @return the method handle (null if the field cannot be accessed)
+         */
+        private static MethodHandle createHandle(Field field, Method method) {
+            try {
+                if (method != null) {
+                    method.trySetAccessible();
+                    return lookup.unreflect(method).asType(accessorType);
+                } else {
+                    field.trySetAccessible();
+                    return lookup.unreflectGetter(field).asType(accessorType);
+                }
+            }
+            catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
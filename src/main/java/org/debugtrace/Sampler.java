@@ -0,0 +1,154 @@
+// Sampler.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.debugtrace.logger.RollPolicy;
+
+/**
+ * Decides whether the logs of a call site are output and counts the suppressed logs.<br>
+ * A Sampler is created for each call site that a sampling rule (<code>samplingRules</code> property) matches.
+ * The decision is lock-free: the state is updated only with atomic operations.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+final class Sampler {
+    /**
+     * The kinds of the sampling rules.
+     */
+    enum Kind {
+        /** Outputs 1 in every count logs */
+        EVERY,
+        /** Outputs count logs per period at most (token bucket) */
+        RATE,
+        /** Outputs the first count logs and then suppresses all */
+        FIRST
+    }
+
+    /**
+     * A sampling rule.
+     *
+     * @param kind the kind of the rule
+     * @param count the number of the logs
+     * @param period the period in nanoseconds (RATE only, otherwise 0)
+     */
+    record Rule(Kind kind, long count, long period) {
+        /**
+         * Parses a sampling rule.<br>
+         * <code>every &lt;N&gt;</code>, <code>rate &lt;N&gt;/&lt;interval&gt;</code> (e.g. <code>rate 10/1s</code>)
+         * or <code>first &lt;N&gt;</code>
+         *
+         * @param string the string to parse
+         * @return a Rule
+         * @throws IllegalArgumentException if the string is invalid
+         */
+        static Rule parse(String string) {
+            var words = string.trim().split("\\s+");
+            if (words.length == 2) {
+                try {
+                    var kind = Kind.valueOf(words[0].toUpperCase(Locale.ROOT));
+                    var count = words[1];
+                    var period = 0L;
+                    if (kind == Kind.RATE) {
+                        var slashIndex = count.indexOf('/');
+                        if (slashIndex < 0)
+                            throw new IllegalArgumentException();
+                        period = TimeUnit.MILLISECONDS.toNanos(RollPolicy.parseInterval(count.substring(slashIndex + 1)));
+                        count = count.substring(0, slashIndex);
+                    }
+                    var rule = new Rule(kind, Long.parseLong(count.trim()), period);
+                    if (rule.count() > 0 && (kind != Kind.RATE || rule.period() > 0))
+                        return rule;
+                }
+                catch (IllegalArgumentException e) {}
+            }
+            throw new IllegalArgumentException("'" + string + "' is invalid sampling rule.");
+        }
+    }
+
+    private final Rule rule;
+    private final StackTraceElement callSite;
+
+    // EVERY and FIRST: the number of the calls
+    // RATE: the time when the bucket becomes full again (Long.MIN_VALUE if not used yet)
+    private final AtomicLong state;
+
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * Constructs a Sampler.
+     *
+     * @param rule the sampling rule
+     * @param callSite the stack trace element of the call site
+     */
+    Sampler(Rule rule, StackTraceElement callSite) {
+        this.rule = rule;
+        this.callSite = callSite;
+        state = new AtomicLong(rule.kind() == Kind.RATE ? Long.MIN_VALUE : 0L);
+    }
+
+    /**
+     * Returns the stack trace element of the call site.
+     *
+     * @return the stack trace element of the call site
+     */
+    StackTraceElement callSite() {
+        return callSite;
+    }
+
+    /**
+     * Returns true if the log is output, otherwise counts the suppressed log.
+     *
+     * @param nanoTime the current time of System.nanoTime()
+     * @return true if the log is output; false if suppressed
+     */
+    boolean sample(long nanoTime) {
+        boolean output;
+        if (rule.kind() == Kind.EVERY)
+            output = state.getAndIncrement() % rule.count() == 0;
+        else if (rule.kind() == Kind.FIRST)
+            // Does not count up after the first logs, so that it does not overflow
+            output = state.get() < rule.count() && state.getAndIncrement() < rule.count();
+        else
+            output = acquire(nanoTime);
+
+        if (!output)
+            suppressedCount.incrementAndGet();
+        return output;
+    }
+
+    /**
+     * Takes a token from the bucket.<br>
+     * The bucket holds up to the count tokens and a token is added every period / count.
+     * The time when the bucket becomes full is held instead of the tokens,
+     * so that it is updated with a compare-and-set.
+     *
+     * @param nanoTime the current time of System.nanoTime()
+     * @return true if a token is taken; false if the bucket is empty
+     */
+    private boolean acquire(long nanoTime) {
+        var interval = Math.max(rule.period() / rule.count(), 1L);
+        while (true) {
+            var fullTime = state.get();
+            var startTime = fullTime == Long.MIN_VALUE || fullTime - nanoTime < 0 ? nanoTime : fullTime;
+            if (startTime + interval - nanoTime > rule.period())
+                return false; // Empty
+            if (state.compareAndSet(fullTime, startTime + interval))
+                return true;
+        }
+    }
+
+    /**
+     * Returns the number of the suppressed logs and resets it.
+     *
+     * @return the number of the suppressed logs since the last call
+     */
+    long takeSuppressedCount() {
+        return suppressedCount.getAndSet(0L);
+    }
+}
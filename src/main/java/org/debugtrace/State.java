@@ -3,8 +3,9 @@
 
 package org.debugtrace;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Have a trace state for a thread
@@ -13,11 +14,22 @@ import java.util.Deque;
  * @author Masato Kokubo
  */
 class State {
+    // The initial capacity of the stack of the times (since 4.2.0)
+    private static final int INITIAL_TIMES_CAPACITY = 16;
+
+    // The empty stack of the times shared until the first upNest (since 4.2.0)
+    private static final long[] EMPTY_TIMES = {};
+
     private long threadId;
     private int nestLevel;
     private int previousNestLevel;
     private int previousLineCount;
-    private final Deque<Long> times = new ArrayDeque<>();
+    private long[] times = EMPTY_TIMES; // since 4.2.0 Deque<Long> -> long[]
+    private int timeCount; // since 4.2.0
+    private final List<Object> reflectedObjects = new ArrayList<>(); // since 4.2.0
+    private byte[] lobBytes = {}; // since 4.2.0
+    private char[] lobChars = {}; // since 4.2.0
+    private boolean lazyConversion; // since 4.2.0
 
     /**
      * Constructs a State.
@@ -74,6 +86,76 @@ class State {
         this.previousLineCount = previousLineCount;
     }
 
+    /**
+     * Returns the list of objects being output by reflection.
+     *
+     * @return the list of objects being output by reflection
+     * @since 4.2.0
+     */
+    public List<Object> reflectedObjects() {
+        return reflectedObjects;
+    }
+
+    /**
+     * Returns the buffer to read the bytes of a Blob.
+     *
+     * @return the buffer to read the bytes of a Blob
+     * @since 4.2.0
+     */
+    public byte[] lobBytes() {
+        return lobBytes;
+    }
+
+    /**
+     * Sets the buffer to read the bytes of a Blob.
+     *
+     * @param lobBytes the buffer to read the bytes of a Blob
+     * @since 4.2.0
+     */
+    public void setLobBytes(byte[] lobBytes) {
+        this.lobBytes = lobBytes;
+    }
+
+    /**
+     * Returns the buffer to read the characters of a Clob.
+     *
+     * @return the buffer to read the characters of a Clob
+     * @since 4.2.0
+     */
+    public char[] lobChars() {
+        return lobChars;
+    }
+
+    /**
+     * Sets the buffer to read the characters of a Clob.
+     *
+     * @param lobChars the buffer to read the characters of a Clob
+     * @since 4.2.0
+     */
+    public void setLobChars(char[] lobChars) {
+        this.lobChars = lobChars;
+    }
+
+    /**
+     * Returns true if the elements of the containers are converted while laid out.
+     *
+     * @return true if the elements of the containers are converted while laid out
+     * @since 4.2.0
+     */
+    public boolean lazyConversion() {
+        return lazyConversion;
+    }
+
+    /**
+     * Sets whether the elements of the containers are converted while laid out.
+     *
+     * @param lazyConversion true if the elements of the containers are converted while laid out
+     * @since 4.2.0
+     */
+    public void setLazyConversion(boolean lazyConversion) {
+        this.lazyConversion = lazyConversion;
+    }
+
     /**
      * Resets this instance.
      */
@@ -81,7 +163,9 @@ class State {
         nestLevel = 0;
         previousNestLevel = 0;
         previousLineCount = 0;
-        times.clear();
+        times = EMPTY_TIMES;
+        timeCount = 0;
+        reflectedObjects.clear();
     }
 
     /**
@@ -96,20 +180,49 @@ class State {
             + ", nestLevel: " + nestLevel
             + ", previousNestLevel: " + previousNestLevel
             + ", previousLineCount: " + previousLineCount
-            + ", times: " + times
+            + ", times: " + timesString()
             + "]";
     }
 
+    /**
+     * Returns a String representation of the times from the last one.
+     *
+     * @return a String representation of the times
+     * @since 4.2.0
+     */
+    private String timesString() {
+        var builder = new StringBuilder("[");
+        for (var index = timeCount - 1; index >= 0; --index) {
+            builder.append(times[index]);
+            if (index > 0)
+                builder.append(", ");
+        }
+        return builder.append(']').toString();
+    }
+
     /**
      * Ups the nest level.
      */
     public void upNest() {
         previousNestLevel = nestLevel;
-        if (nestLevel >= 0)
-            times.push(System.nanoTime());
+        if (nestLevel >= 0) {
+            if (timeCount == times.length)
+                times = Arrays.copyOf(times, Math.max(times.length * 2, INITIAL_TIMES_CAPACITY));
+            times[timeCount++] = System.nanoTime();
+        }
         ++nestLevel;
     }
 
+    /**
+     * Returns the time when the last upNest method was invoked.
+     *
+     * @return the time when the last upNest method was invoked (the current time if not invoked)
+     * @since 4.2.0
+     */
+    public long enterTime() {
+        return timeCount > 0 ? times[timeCount - 1] : System.nanoTime();
+    }
+
     /**
      * Downs the nest level.
      *
@@ -118,6 +231,15 @@ class State {
     public long downNest() {
         previousNestLevel = nestLevel;
         --nestLevel;
-        return times.size() > 0 ? times.pop() : System.nanoTime();
+        if (timeCount == 0)
+            return System.nanoTime();
+
+        var time = times[--timeCount];
+
+        // Shrinks the stack after a deep nest (since 4.2.0)
+        if (times.length > INITIAL_TIMES_CAPACITY && timeCount <= times.length / 4)
+            times = Arrays.copyOf(times, times.length / 2);
+
+        return time;
     }
 }
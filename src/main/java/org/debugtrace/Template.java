@@ -0,0 +1,362 @@
+// Template.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+import java.text.DecimalFormatSymbols;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A format string (e.g. <code>enterFormat</code>) compiled in advance.<br>
+ * Appends the arguments to a StringBuilder without boxing them or creating a Formatter,
+ * and the result is the same as {@link String#format(String, Object...)}.
+ * The following format specifiers are compiled,
+ * and a format string containing any other specifier is formatted by String.format.
+ * <ul>
+ *   <li><code>%s</code>, <code>%d</code>
+ *     and <code>%t</code> followed by <code>H</code>, <code>M</code>, <code>S</code>, <code>L</code>,
+ *     <code>N</code>, <code>R</code> or <code>T</code>
+ *     with an argument index (<code>n$</code> or <code>&lt;</code>), the <code>-</code> flag and a width</li>
+ *   <li><code>%n</code> and <code>%%</code></li>
+ * </ul>
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class Template {
+    /**
+     * The types of the arguments.
+     */
+    enum Type {
+        /** A String */
+        STRING,
+        /** An int (passed as a long) */
+        INT,
+        /** A long */
+        LONG,
+        /** A time span in nanoseconds formatted as a UTC date-time (passed as a long, NO_TIME if null) */
+        TIME
+    }
+
+    /** The TIME argument meaning null */
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    // The pattern of a format specifier (the same as java.util.Formatter)
+    private static final Pattern specifierPattern = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+
+    // The locale of String.format and whether it uses the ASCII digits
+    private record Digits(Locale locale, boolean ascii) {}
+    private static Digits digits = new Digits(Locale.US, true);
+
+    /**
+     * A literal or a format specifier of an argument.
+     *
+     * @param literal the literal (null if a format specifier)
+     * @param index the argument index (0 origin)
+     * @param conversion 's', 'd' or the suffix of 't' (e.g. 'T')
+     * @param width the minimum width (-1 if not specified)
+     * @param leftJustified true if the '-' flag is specified
+     */
+    private record Part(String literal, int index, char conversion, int width, boolean leftJustified) {}
+
+    private final String format;
+    private final Type[] types;
+    private final Part[] parts; // null if formatted by String.format
+    private final boolean hasDigits; // true if any part outputs localized digits
+
+    private Template(String format, Type[] types, Part[] parts) {
+        this.format = format;
+        this.types = types;
+        this.parts = parts;
+        hasDigits = parts != null && Arrays.stream(parts).anyMatch(part -> part.literal() == null && part.conversion() != 's');
+    }
+
+    /**
+     * Compiles the format string.
+     *
+     * @param format the format string
+     * @param types the types of the arguments
+     * @return a Template
+     */
+    static Template compile(String format, Type... types) {
+        var parts = new ArrayList<Part>();
+        var literal = new StringBuilder();
+        var matcher = specifierPattern.matcher(format);
+        var lastIndex = -1; // the argument index of the last specifier
+        var ordinaryIndex = -1; // the argument index of the last specifier without the index
+        var start = 0;
+        while (true) {
+            var percentIndex = format.indexOf('%', start);
+            if (percentIndex < 0) {
+                literal.append(format, start, format.length());
+                break;
+            }
+            literal.append(format, start, percentIndex);
+            matcher.region(percentIndex, format.length());
+            if (!matcher.lookingAt())
+                return new Template(format, types, null);
+            start = matcher.end();
+
+            var indexString = matcher.group(1);
+            var flags = matcher.group(2) == null ? "" : matcher.group(2);
+            var widthString = matcher.group(3);
+            var time = matcher.group(5);
+            var conversion = matcher.group(6).charAt(0);
+            if (matcher.group(4) != null || "T".equals(time)
+                || !flags.matches("-?<?|<-") || flags.contains("-") && widthString == null)
+                return new Template(format, types, null);
+
+            var width = -1;
+            try {
+                if (widthString != null)
+                    width = Integer.parseInt(widthString);
+            }
+            catch (NumberFormatException e) {
+                return new Template(format, types, null);
+            }
+            var leftJustified = flags.contains("-");
+
+            if (time == null && (conversion == 'n' || conversion == '%')) {
+                // %n or %%
+                if (indexString != null || flags.contains("<") || conversion == 'n' && width >= 0)
+                    return new Template(format, types, null);
+                var text = conversion == 'n' ? System.lineSeparator() : "%";
+                var padding = " ".repeat(Math.max(width - text.length(), 0));
+                literal.append(leftJustified ? text + padding : padding + text);
+                continue;
+            }
+
+            // Resolves the argument index in the same way as java.util.Formatter
+            var index = -1;
+            if (flags.contains("<")) {
+                index = lastIndex;
+            } else if (indexString != null) {
+                try {
+                    index = Integer.parseInt(indexString, 0, indexString.length() - 1, 10) - 1;
+                }
+                catch (NumberFormatException e) {
+                    return new Template(format, types, null);
+                }
+            } else {
+                index = ++ordinaryIndex;
+            }
+            if (index < 0 || index >= types.length)
+                return new Template(format, types, null);
+            lastIndex = index;
+
+            var type = types[index];
+            if (time != null) {
+                if (type != Type.TIME || "HMSLNRT".indexOf(conversion) < 0)
+                    return new Template(format, types, null);
+            } else if (conversion == 's') {
+                if (type == Type.TIME)
+                    return new Template(format, types, null);
+            } else if (conversion == 'd') {
+                if (type != Type.INT && type != Type.LONG)
+                    return new Template(format, types, null);
+            } else {
+                return new Template(format, types, null);
+            }
+
+            if (literal.length() > 0) {
+                parts.add(new Part(literal.toString(), -1, '\0', -1, false));
+                literal.setLength(0);
+            }
+            parts.add(new Part(null, index, conversion, width, leftJustified));
+        }
+        if (literal.length() > 0)
+            parts.add(new Part(literal.toString(), -1, '\0', -1, false));
+
+        return new Template(format, types, parts.toArray(new Part[parts.size()]));
+    }
+
+    /**
+     * Appends the formatted string of an argument.
+     *
+     * @param builder the StringBuilder to append
+     * @param arg1 the argument of STRING
+     */
+    void appendTo(StringBuilder builder, String arg1) {
+        append(builder, arg1, 0L, null, 0L, null, 0L, null, 0L, null, 0L, null, 0L, null, 0L);
+    }
+
+    /**
+     * Appends the formatted string of an argument.
+     *
+     * @param builder the StringBuilder to append
+     * @param arg1 the argument of INT, LONG or TIME
+     */
+    void appendTo(StringBuilder builder, long arg1) {
+        append(builder, null, arg1, null, 0L, null, 0L, null, 0L, null, 0L, null, 0L, null, 0L);
+    }
+
+    /**
+     * Appends the formatted string of two arguments.
+     *
+     * @param builder the StringBuilder to append
+     * @param arg1 the argument of STRING
+     * @param arg2 the argument of INT, LONG or TIME
+     */
+    void appendTo(StringBuilder builder, String arg1, long arg2) {
+        append(builder, arg1, 0L, null, arg2, null, 0L, null, 0L, null, 0L, null, 0L, null, 0L);
+    }
+
+    /**
+     * Appends the formatted string of the arguments of a call site.
+     *
+     * @param builder the StringBuilder to append
+     * @param arg1 the argument of STRING
+     * @param arg2 the argument of STRING
+     * @param arg3 the argument of STRING
+     * @param arg4 the argument of INT, LONG or TIME
+     * @param arg5 the argument of INT, LONG or TIME
+     * @param arg6 the argument of STRING
+     * @param arg7 the argument of INT, LONG or TIME
+     */
+    void appendTo(StringBuilder builder, String arg1, String arg2, String arg3, long arg4, long arg5, String arg6, long arg7) {
+        append(builder, arg1, 0L, arg2, 0L, arg3, 0L, null, arg4, null, arg5, arg6, 0L, null, arg7);
+    }
+
+    /**
+     * Appends the formatted string of the arguments.<br>
+     * Each argument is passed as the String or the long according to the type.
+     */
+    private void append(StringBuilder builder,
+            String string1, long number1, String string2, long number2, String string3, long number3,
+            String string4, long number4, String string5, long number5, String string6, long number6,
+            String string7, long number7) {
+        if (parts == null || hasDigits && !asciiDigits()) {
+            var args = new Object[types.length];
+            for (var index = 0; index < args.length; ++index) {
+                switch (index) {
+                case 0 : args[index] = box(index, string1, number1); break;
+                case 1 : args[index] = box(index, string2, number2); break;
+                case 2 : args[index] = box(index, string3, number3); break;
+                case 3 : args[index] = box(index, string4, number4); break;
+                case 4 : args[index] = box(index, string5, number5); break;
+                case 5 : args[index] = box(index, string6, number6); break;
+                default: args[index] = box(index, string7, number7); break;
+                }
+            }
+            builder.append(String.format(format, args));
+            return;
+        }
+
+        for (var part : parts) {
+            if (part.literal() != null) {
+                builder.append(part.literal());
+                continue;
+            }
+            var start = builder.length();
+            switch (part.index()) {
+            case 0 : appendArgument(builder, part, string1, number1); break;
+            case 1 : appendArgument(builder, part, string2, number2); break;
+            case 2 : appendArgument(builder, part, string3, number3); break;
+            case 3 : appendArgument(builder, part, string4, number4); break;
+            case 4 : appendArgument(builder, part, string5, number5); break;
+            case 5 : appendArgument(builder, part, string6, number6); break;
+            default: appendArgument(builder, part, string7, number7); break;
+            }
+            var padding = part.width() - (builder.length() - start);
+            if (padding > 0) {
+                if (part.leftJustified())
+                    builder.append(" ".repeat(padding));
+                else
+                    builder.insert(start, " ".repeat(padding));
+            }
+        }
+    }
+
+    /**
+     * Appends an argument.
+     */
+    private void appendArgument(StringBuilder builder, Part part, String string, long number) {
+        if (types[part.index()] == Type.STRING)
+            builder.append(string);
+        else if (part.conversion() == 's' || part.conversion() == 'd')
+            builder.append(number);
+        else
+            appendTime(builder, part.conversion(), number);
+    }
+
+    /**
+     * Appends a field of the UTC date-time of the time span.
+     */
+    private static void appendTime(StringBuilder builder, char conversion, long nanos) {
+        if (nanos == NO_TIME) {
+            builder.append("null");
+            return;
+        }
+        var secondOfDay = (int)Math.floorMod(Math.floorDiv(nanos, 1000_000_000L), 86400L);
+        var nanoOfSecond = (int)Math.floorMod(nanos, 1000_000_000L);
+        switch (conversion) {
+        case 'H': appendDigits(builder, secondOfDay / 3600, 2); break;
+        case 'M': appendDigits(builder, secondOfDay / 60 % 60, 2); break;
+        case 'S': appendDigits(builder, secondOfDay % 60, 2); break;
+        case 'L': appendDigits(builder, nanoOfSecond / 1000_000, 3); break;
+        case 'N': appendDigits(builder, nanoOfSecond, 9); break;
+        case 'R':
+            appendDigits(builder, secondOfDay / 3600, 2);
+            builder.append(':');
+            appendDigits(builder, secondOfDay / 60 % 60, 2);
+            break;
+        default: // 'T'
+            appendDigits(builder, secondOfDay / 3600, 2);
+            builder.append(':');
+            appendDigits(builder, secondOfDay / 60 % 60, 2);
+            builder.append(':');
+            appendDigits(builder, secondOfDay % 60, 2);
+        }
+    }
+
+    /**
+     * Appends a non-negative value padded with zeros.
+     */
+    private static void appendDigits(StringBuilder builder, int value, int width) {
+        for (var divisor = (int)Math.pow(10, width - 1); divisor > 1 && value < divisor; divisor /= 10)
+            builder.append('0');
+        builder.append(value);
+    }
+
+    /**
+     * Returns an argument as an Object for String.format.
+     */
+    private Object box(int index, String string, long number) {
+        switch (types[index]) {
+        case STRING: return string;
+        case INT   : return (int)number;
+        case LONG  : return number;
+        default    : return number == NO_TIME ? null
+            : OffsetDateTime.ofInstant(Instant.ofEpochSecond(number / 1000_000_000, number % 1000_000_000), ZoneOffset.UTC);
+        }
+    }
+
+    /**
+     * Returns whether String.format outputs the ASCII digits in the current default locale.
+     */
+    private static boolean asciiDigits() {
+        var locale = Locale.getDefault(Locale.Category.FORMAT);
+        var digits = Template.digits;
+        if (digits.locale() != locale) {
+            digits = new Digits(locale, locale.equals(Locale.US) || DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0');
+            Template.digits = digits;
+        }
+        return digits.ascii();
+    }
+
+    /**
+     * Returns the format string.
+     *
+     * @return the format string
+     */
+    @Override
+    public String toString() {
+        return format;
+    }
+}
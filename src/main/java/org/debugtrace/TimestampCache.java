@@ -0,0 +1,131 @@
+// TimestampCache.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats the timestamps of the log lines reusing the last formatted string.<br>
+ * The string is formatted with the DateTimeFormatter once per second,
+ * and within the second only the digits of the fraction of the second (e.g. <code>SSS</code>) are replaced.
+ * If the string of the same second and fraction was formatted last, it is returned as it is.
+ * If the format has another field that changes within a second (e.g. <code>n</code> or <code>A</code>),
+ * every timestamp is formatted with the DateTimeFormatter.<br>
+ * This class is thread-safe.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class TimestampCache {
+    // Nanoseconds to be examined to find the fraction digits
+    private static final int[] PROBE_NANOS = {0, 123_456_789, 987_654_321};
+
+    // Powers of 10
+    private static final int[] POWERS = {1, 10, 100, 1000, 10_000, 100_000, 1000_000, 10_000_000, 100_000_000, 1000_000_000};
+
+    /**
+     * The formatted string of a second.
+     *
+     * @param epochSecond the epoch second
+     * @param prefix the string before the fraction digits (null if every timestamp is formatted)
+     * @param digits the number of the fraction digits
+     * @param suffix the string after the fraction digits
+     * @param fraction the fraction of the last timestamp
+     * @param timestamp the last timestamp
+     */
+    private record Entry(long epochSecond, String prefix, int digits, String suffix, int fraction, String timestamp) {}
+
+    private final DateTimeFormatter formatter;
+    private final ZoneId zoneId;
+
+    // Immutable and replaced as a whole, so it is consistent in any thread
+    private volatile Entry entry;
+
+    /**
+     * Constructs a TimestampCache.
+     *
+     * @param formatter the DateTimeFormatter of the timestamp
+     * @param zoneId the time-zone of the timestamp
+     */
+    TimestampCache(DateTimeFormatter formatter, ZoneId zoneId) {
+        this.formatter = formatter;
+        this.zoneId = zoneId;
+    }
+
+    /**
+     * Returns the timestamp string of the instant.
+     *
+     * @param instant the instant
+     * @return the timestamp string
+     */
+    String format(Instant instant) {
+        var epochSecond = instant.getEpochSecond();
+        var entry = this.entry;
+        if (entry == null || entry.epochSecond() != epochSecond) {
+            entry = createEntry(epochSecond);
+            this.entry = entry;
+        }
+
+        if (entry.prefix() == null)
+            return instant.atZone(zoneId).format(formatter);
+
+        var fraction = instant.getNano() / POWERS[9 - entry.digits()];
+        if (fraction == entry.fraction())
+            return entry.timestamp();
+
+        var builder = new StringBuilder(entry.prefix().length() + entry.digits() + entry.suffix().length());
+        builder.append(entry.prefix());
+        var fractionString = Integer.toString(fraction);
+        for (var index = fractionString.length(); index < entry.digits(); ++index)
+            builder.append('0');
+        builder.append(fractionString).append(entry.suffix());
+        var timestamp = builder.toString();
+
+        this.entry = new Entry(epochSecond, entry.prefix(), entry.digits(), entry.suffix(), fraction, timestamp);
+        return timestamp;
+    }
+
+    /**
+     * Formats the second and finds the fraction digits.
+     *
+     * @param epochSecond the epoch second
+     * @return the Entry of the second
+     */
+    private Entry createEntry(long epochSecond) {
+        var strings = new String[PROBE_NANOS.length];
+        for (var index = 0; index < strings.length; ++index)
+            strings[index] = Instant.ofEpochSecond(epochSecond, PROBE_NANOS[index]).atZone(zoneId).format(formatter);
+
+        var first = strings[0];
+        if (strings[1].equals(first) && strings[2].equals(first))
+            return new Entry(epochSecond, first, 0, "", 0, first); // No fraction digits
+
+        // The range where the strings differ
+        var second = strings[1];
+        var start = 0;
+        while (start < first.length() && start < second.length() && first.charAt(start) == second.charAt(start))
+            ++start;
+        var end = first.length();
+        var secondEnd = second.length();
+        while (end > start && secondEnd > start && first.charAt(end - 1) == second.charAt(secondEnd - 1)) {
+            --end;
+            --secondEnd;
+        }
+
+        var digits = end - start;
+        if (digits < 1 || digits > 9)
+            return new Entry(epochSecond, null, 0, null, 0, null);
+
+        var prefix = first.substring(0, start);
+        var suffix = first.substring(end);
+        for (var index = 0; index < strings.length; ++index) {
+            var fraction = String.format("%09d", PROBE_NANOS[index]).substring(0, digits);
+            if (!strings[index].equals(prefix + fraction + suffix))
+                return new Entry(epochSecond, null, 0, null, 0, null); // Another field changes within the second
+        }
+        return new Entry(epochSecond, prefix, digits, suffix, 0, first);
+    }
+}
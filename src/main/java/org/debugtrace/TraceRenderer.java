@@ -0,0 +1,358 @@
+// TraceRenderer.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+import static org.debugtrace.TraceWriter.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.debugtrace.logger.Logger;
+
+/**
+ * Renders a binary trace file output by DebugTrace (the <code>binaryTraceFile</code> property) into the log lines.<br>
+ * The lines are laid out with the properties of DebugTrace when rendering (e.g. <code>maximumDataOutputWidth</code>),
+ * and each line has the timestamp of the event.
+ *
+ * <pre>
+ * java -cp debugtrace.jar org.debugtrace.TraceRenderer &lt;binary trace file&gt; [&lt;output file&gt;]
+ * </pre>
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public class TraceRenderer {
+    private TraceRenderer() {}
+
+    /**
+     * Renders the binary trace file into the output file or the standard output.
+     *
+     * @param args the binary trace file and the output file (optional)
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java org.debugtrace.TraceRenderer <binary trace file> [<output file>]");
+            System.exit(2);
+        }
+        try (var writer = args.length > 1
+                ? Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()))) {
+            render(new java.io.File(args[0]), writer);
+        }
+        catch (IOException e) {
+            System.err.println("DebugTrace: " + e.toString());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Renders the binary trace file into the lines and writes them.<br>
+     * DebugTrace outputs to the writer instead of the logger until it is initialized again.
+     *
+     * @param traceFile the binary trace file
+     * @param writer the Writer to write the lines
+     * @throws IOException if an I/O error occurs or the file is not a binary trace file
+     */
+    public static void render(java.io.File traceFile, Writer writer) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(traceFile.toPath())))) {
+            var magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC))
+                throw new IOException(traceFile.getPath() + " is not a binary trace file.");
+            var version = in.readByte();
+            if (version != VERSION)
+                throw new IOException(traceFile.getPath() + ": version " + version + " is not supported.");
+            var baseInstant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+
+            var output = new Output(writer);
+            DebugTrace.startRendering(output);
+
+            var decoders = new HashMap<Long, Decoder>();
+            var states = new HashMap<Long, State>();
+            try {
+                for (var tag = in.read(); tag >= 0; tag = in.read()) {
+                    var threadId = Decoder.readSignedVar(in);
+                    var decoder = decoders.computeIfAbsent(threadId, id -> new Decoder(in));
+                    var state = states.computeIfAbsent(threadId, State::new);
+                    var threadName = decoder.readStringRef();
+                    output.time = baseInstant.plusNanos(Decoder.readSignedVar(in));
+                    var callSite = decoder.readCallSite();
+
+                    switch (tag) {
+                    case ENTER:
+                        DebugTrace.logEnter(state, threadId, threadName, callSite);
+                        break;
+                    case LEAVE:
+                        DebugTrace.logLeave(state, threadId, threadName, callSite, Decoder.readSignedVar(in));
+                        break;
+                    case MESSAGE:
+                        DebugTrace.logMessage(state, threadId, threadName, callSite, decoder.readString());
+                        break;
+                    case PRINT:
+                        var name = decoder.readStringRef();
+                        DebugTrace.logPrint(state, threadId, threadName, callSite, name, decoder.readNode());
+                        break;
+                    default:
+                        throw new IOException(traceFile.getPath() + ": invalid event tag " + tag);
+                    }
+                }
+            }
+            catch (EOFException e) {
+                // The process was killed while writing
+                System.err.println("DebugTrace: " + traceFile.getPath() + ": the last event is incomplete.");
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * A logger that writes the rendered lines with the time of the event.
+     */
+    private static class Output implements Logger {
+        private final Writer writer;
+        private final String lineSeparator = System.lineSeparator();
+        private Instant time;
+
+        private Output(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void log(String message) {
+            try {
+                writer.write(DebugTrace.appendTimestamp(message, time));
+                writer.write(lineSeparator);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Decodes events of a thread.
+     */
+    private static class Decoder {
+        private final DataInputStream in;
+
+        // The defined strings and call sites
+        private final List<String> strings = new ArrayList<>();
+        private final List<List<StackTraceElement>> callSites = new ArrayList<>();
+
+        private Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        static int readByte(InputStream in) throws IOException {
+            var value = in.read();
+            if (value < 0)
+                throw new EOFException();
+            return value;
+        }
+
+        static long readVar(InputStream in) throws IOException {
+            var value = 0L;
+            for (var shift = 0; shift < 64; shift += 7) {
+                var b = readByte(in);
+                value |= (long)(b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("invalid variable-length integer");
+        }
+
+        static long readSignedVar(InputStream in) throws IOException {
+            var value = readVar(in);
+            return value >>> 1 ^ -(value & 1);
+        }
+
+        boolean readBoolean() throws IOException {
+            return readByte(in) != 0;
+        }
+
+        int readCount() throws IOException {
+            var count = readVar(in);
+            if (count > Integer.MAX_VALUE)
+                throw new IOException("invalid count " + count);
+            return (int)count;
+        }
+
+        String readString() throws IOException {
+            var length = readCount();
+            var chars = new char[length];
+            for (var index = 0; index < length; ++index) {
+                var b = readByte(in);
+                if (b < 0x80)
+                    chars[index] = (char)b;
+                else if (b < 0xE0)
+                    chars[index] = (char)((b & 0x1F) << 6 | readByte(in) & 0x3F);
+                else
+                    chars[index] = (char)((b & 0x0F) << 12 | (readByte(in) & 0x3F) << 6 | readByte(in) & 0x3F);
+            }
+            return new String(chars);
+        }
+
+        String readStringRef() throws IOException {
+            var ref = readVar(in);
+            if (ref == REF_NULL)
+                return null;
+            if (ref >= REF_ID)
+                return strings.get((int)(ref - REF_ID));
+            var string = readString();
+            if (ref == REF_DEFINE)
+                strings.add(string);
+            return string;
+        }
+
+        List<StackTraceElement> readCallSite() throws IOException {
+            var ref = readVar(in);
+            if (ref >= REF_ID)
+                return callSites.get((int)(ref - REF_ID));
+            var size = readCount();
+            var callSite = new ArrayList<StackTraceElement>(size);
+            for (var index = 0; index < size; ++index) {
+                var className = readStringRef();
+                var methodName = readStringRef();
+                var fileName = readStringRef();
+                callSite.add(new StackTraceElement(className, methodName, fileName, (int)readSignedVar(in)));
+            }
+            if (ref == REF_DEFINE)
+                callSites.add(callSite);
+            return callSite;
+        }
+
+        Node readNode() throws IOException {
+            var tag = readByte(in);
+            switch (tag) {
+            case NO_NODE:
+                return null;
+
+            case TEXT:
+                return new Node.Text(readStringRef(), readString(), readBoolean());
+
+            case STR:
+                return new Node.Str(readStringRef(), readString(), readBoolean());
+
+            case BYTES: {
+                var prefix = readStringRef();
+                var typeName = readStringRef();
+                var bytes = new byte[readCount()];
+                in.readFully(bytes);
+                return new Node.Bytes(prefix, typeName, ByteBuffer.wrap(bytes), readBoolean(), readBoolean());
+            }
+
+            case PRIMITIVES: {
+                var typeName = readStringRef();
+                var componentType = readByte(in);
+                var length = readCount();
+                Object array;
+                switch (componentType) {
+                case 'Z': {
+                    var booleans = new boolean[length];
+                    for (var index = 0; index < length; ++index) booleans[index] = readBoolean();
+                    array = booleans;
+                    break;
+                }
+                case 'S': {
+                    var shorts = new short[length];
+                    for (var index = 0; index < length; ++index) shorts[index] = (short)readSignedVar(in);
+                    array = shorts;
+                    break;
+                }
+                case 'I': {
+                    var ints = new int[length];
+                    for (var index = 0; index < length; ++index) ints[index] = (int)readSignedVar(in);
+                    array = ints;
+                    break;
+                }
+                case 'J': {
+                    var longs = new long[length];
+                    for (var index = 0; index < length; ++index) longs[index] = readSignedVar(in);
+                    array = longs;
+                    break;
+                }
+                case 'F': {
+                    var floats = new float[length];
+                    for (var index = 0; index < length; ++index) floats[index] = Float.intBitsToFloat((int)readVar(in));
+                    array = floats;
+                    break;
+                }
+                case 'D': {
+                    var doubles = new double[length];
+                    for (var index = 0; index < length; ++index) doubles[index] = Double.longBitsToDouble(readVar(in));
+                    array = doubles;
+                    break;
+                }
+                default:
+                    throw new IOException("invalid component type " + componentType);
+                }
+                return new Node.Primitives(typeName, array, readBoolean());
+            }
+
+            case PRESENT:
+                return new Node.Present(readStringRef(), readNode());
+
+            case CONTAINER: {
+                var typeName = readStringRef();
+                var size = readCount();
+                var elements = new ArrayList<Node>(size);
+                for (var index = 0; index < size; ++index)
+                    elements.add(readNode());
+                return new Node.Container(typeName, elements, readBoolean());
+            }
+
+            case ENTRY:
+                return new Node.Entry(readNode(), readNode());
+
+            case REFLECTION: {
+                var typeName = readStringRef();
+                var extended = readBoolean();
+                var classCount = readCount();
+                var classes = new ArrayList<Node.ClassFields>(classCount);
+                for (var classIndex = 0; classIndex < classCount; ++classIndex) {
+                    var className = readStringRef();
+                    var fieldCount = readCount();
+                    var fields = new ArrayList<Node.Field>(fieldCount);
+                    for (var fieldIndex = 0; fieldIndex < fieldCount; ++fieldIndex)
+                        fields.add(new Node.Field(readStringRef(), readNode()));
+                    classes.add(new Node.ClassFields(className, fields));
+                }
+                return new Node.Reflection(typeName, extended, classes);
+            }
+
+            case CYCLIC:
+                return new Node.Cyclic(readString());
+
+            case LIMIT:
+                return new Node.Limit();
+
+            case SKIPPED:
+                return new Node.Skipped(readVar(in));
+
+            default:
+                throw new IOException("invalid node tag " + tag);
+            }
+        }
+    }
+}
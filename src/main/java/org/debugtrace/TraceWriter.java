@@ -0,0 +1,474 @@
+// TraceWriter.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes trace events to a binary trace file.<br>
+ * An event holds the Node of the value instead of the formatted lines,
+ * and the strings and call sites that appear repeatedly are written only once for each thread and then referred by id.
+ * The file is created when the first event is written, and is rendered into the lines by {@link TraceRenderer}.
+ *
+ * <pre>
+ * file      = "DTRC" version:byte epochSecond:long nanoOfSecond:int event*
+ * event     = tag:byte threadId:svar threadName:stringRef time:svar callSite:callSiteRef body
+ * body      = (ENTER) | (LEAVE) timeSpan:svar | (MESSAGE) message:string | (PRINT) name:stringRef node
+ * stringRef = REF_NULL | REF_INLINE string | REF_DEFINE string | REF_ID + id
+ * string    = length:var char*  (each char in 1 to 3 bytes as in modified UTF-8)
+ * </pre>
+ * <code>var</code> is an unsigned LEB128 integer, <code>svar</code> is a zigzag encoded <code>var</code>
+ * and <code>time</code> is the nanoseconds from the time in the header.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class TraceWriter {
+    // The magic number at the head of the file
+    static final byte[] MAGIC = {'D', 'T', 'R', 'C'};
+
+    // The version of the format
+    static final int VERSION = 1;
+
+    // Event tags
+    static final int ENTER   = 1;
+    static final int LEAVE   = 2;
+    static final int MESSAGE = 3;
+    static final int PRINT   = 4;
+
+    // Node tags
+    static final int NO_NODE    = 0;
+    static final int TEXT       = 1;
+    static final int STR        = 2;
+    static final int BYTES      = 3;
+    static final int PRESENT    = 4;
+    static final int CONTAINER  = 5;
+    static final int ENTRY      = 6;
+    static final int REFLECTION = 7;
+    static final int CYCLIC     = 8;
+    static final int LIMIT      = 9;
+    static final int PRIMITIVES = 10;
+    static final int SKIPPED    = 11;
+
+    // References of strings and call sites
+    static final int REF_NULL   = 0; // null
+    static final int REF_INLINE = 1; // followed by the value without defining it
+    static final int REF_DEFINE = 2; // followed by the value defined with the next id
+    static final int REF_ID     = 3; // REF_ID + id refers to a defined value
+
+    // The maximum number of strings and call sites defined for each thread
+    static final int DICTIONARY_LIMIT = 16384;
+
+    // The size of the buffer
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final java.io.File file;
+    private final Object lock = new Object();
+
+    // The times when this object was created
+    private final Instant baseInstant = Instant.now();
+    private final long baseNanoTime = System.nanoTime();
+
+    // The encoder of each thread
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+
+    // The buffer of the encoded events
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // The channel opened when the first event is written (null until then)
+    private FileChannel channel;
+    private boolean closed;
+
+    private final Thread shutdownHook;
+
+    /**
+     * Constructs a TraceWriter.
+     *
+     * @param file the binary trace file
+     */
+    TraceWriter(java.io.File file) {
+        var parentFile = file.getParentFile();
+        if (parentFile == null || !parentFile.exists())
+            throw new RuntimeException(file.getPath() + ": the directory does not exist.");
+        if (file.exists() && !file.isFile())
+            throw new RuntimeException(file.getPath() + " is not a file.");
+        this.file = file;
+
+        // Writes the buffered events at shutdown
+        shutdownHook = new Thread(this::close, "DebugTrace-Trace-Close");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Writes an event of entering a method.
+     *
+     * @param thread the current thread
+     * @param callSite the stack trace elements of the method and its caller
+     */
+    void enter(Thread thread, List<StackTraceElement> callSite) {
+        write(start(ENTER, thread, callSite));
+    }
+
+    /**
+     * Writes an event of leaving a method.
+     *
+     * @param thread the current thread
+     * @param callSite the stack trace elements of the method and its caller
+     * @param timeSpan the time from method start to end in nanoseconds
+     */
+    void leave(Thread thread, List<StackTraceElement> callSite, long timeSpan) {
+        var encoder = start(LEAVE, thread, callSite);
+        encoder.writeSignedVar(timeSpan);
+        write(encoder);
+    }
+
+    /**
+     * Writes an event of a message.
+     *
+     * @param thread the current thread
+     * @param callSite the stack trace elements of the caller
+     * @param message the message
+     */
+    void message(Thread thread, List<StackTraceElement> callSite, String message) {
+        var encoder = start(MESSAGE, thread, callSite);
+        encoder.writeString(message);
+        write(encoder);
+    }
+
+    /**
+     * Writes an event of a name and a value.
+     *
+     * @param thread the current thread
+     * @param callSite the stack trace elements of the caller
+     * @param name the name of the value
+     * @param node the Node of the value
+     */
+    void print(Thread thread, List<StackTraceElement> callSite, String name, Node node) {
+        var encoder = start(PRINT, thread, callSite);
+        encoder.writeStringRef(name);
+        encoder.writeNode(node);
+        write(encoder);
+    }
+
+    /**
+     * Writes the buffered events and closes the file.
+     */
+    void close() {
+        synchronized (lock) {
+            if (closed)
+                return;
+            closed = true;
+            if (channel != null) {
+                try {
+                    flushBuffer();
+                    channel.close();
+                }
+                catch (IOException e) {
+                    System.err.println("DebugTrace: " + e.toString());
+                }
+                channel = null;
+            }
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException e) {
+            // in shutdown
+        }
+    }
+
+    /**
+     * Starts encoding an event in the encoder of the current thread.
+     *
+     * @param tag the event tag
+     * @param thread the current thread
+     * @param callSite the stack trace elements
+     * @return the encoder
+     */
+    private Encoder start(int tag, Thread thread, List<StackTraceElement> callSite) {
+        var encoder = encoders.get();
+        encoder.length = 0;
+        encoder.writeByte(tag);
+        encoder.writeSignedVar(thread.getId());
+        encoder.writeStringRef(thread.getName());
+        encoder.writeSignedVar(System.nanoTime() - baseNanoTime);
+        encoder.writeCallSite(callSite);
+        return encoder;
+    }
+
+    /**
+     * Writes the encoded event to the buffer.
+     *
+     * @param encoder the encoder holding the event
+     */
+    private void write(Encoder encoder) {
+        synchronized (lock) {
+            if (closed)
+                return;
+            try {
+                if (channel == null)
+                    open();
+                if (encoder.length > buffer.remaining())
+                    flushBuffer();
+                if (encoder.length > buffer.capacity()) {
+                    var bytes = ByteBuffer.wrap(encoder.bytes, 0, encoder.length);
+                    while (bytes.hasRemaining())
+                        channel.write(bytes);
+                } else {
+                    buffer.put(encoder.bytes, 0, encoder.length);
+                }
+            }
+            catch (IOException e) {
+                // Stops writing because the following events may refer to the lost definitions
+                System.err.println("DebugTrace: " + e.toString());
+                closed = true;
+            }
+        }
+    }
+
+    /**
+     * Creates the file and writes the header.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void open() throws IOException {
+        channel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING);
+        buffer.put(MAGIC)
+            .put((byte)VERSION)
+            .putLong(baseInstant.getEpochSecond())
+            .putInt(baseInstant.getNano());
+    }
+
+    /**
+     * Writes the buffered events to the file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+
+    /**
+     * Encodes events of a thread.
+     */
+    private static class Encoder {
+        private byte[] bytes = new byte[1024];
+        private int length;
+
+        // The ids of the defined strings and call sites
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<List<StackTraceElement>, Integer> callSites = new HashMap<>();
+
+        private void ensureCapacity(int size) {
+            if (length + size > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[length++] = (byte)value;
+        }
+
+        void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        void writeVar(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte)(value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte)value;
+        }
+
+        void writeSignedVar(long value) {
+            writeVar(value << 1 ^ value >> 63);
+        }
+
+        void writeString(String string) {
+            var stringLength = string.length();
+            writeVar(stringLength);
+            ensureCapacity(stringLength * 3);
+            for (var index = 0; index < stringLength; ++index) {
+                var ch = string.charAt(index);
+                if (ch >= 0x01 && ch <= 0x7F) {
+                    bytes[length++] = (byte)ch;
+                } else if (ch <= 0x7FF) {
+                    bytes[length++] = (byte)(0xC0 | ch >> 6);
+                    bytes[length++] = (byte)(0x80 | ch & 0x3F);
+                } else {
+                    bytes[length++] = (byte)(0xE0 | ch >> 12);
+                    bytes[length++] = (byte)(0x80 | ch >> 6 & 0x3F);
+                    bytes[length++] = (byte)(0x80 | ch & 0x3F);
+                }
+            }
+        }
+
+        void writeStringRef(String string) {
+            if (string == null) {
+                writeVar(REF_NULL);
+                return;
+            }
+            var id = strings.get(string);
+            if (id != null) {
+                writeVar(REF_ID + id);
+            } else if (strings.size() < DICTIONARY_LIMIT) {
+                strings.put(string, strings.size());
+                writeVar(REF_DEFINE);
+                writeString(string);
+            } else {
+                writeVar(REF_INLINE);
+                writeString(string);
+            }
+        }
+
+        void writeCallSite(List<StackTraceElement> callSite) {
+            var id = callSites.get(callSite);
+            if (id != null) {
+                writeVar(REF_ID + id);
+                return;
+            }
+            if (callSites.size() < DICTIONARY_LIMIT) {
+                callSites.put(callSite, callSites.size());
+                writeVar(REF_DEFINE);
+            } else {
+                writeVar(REF_INLINE);
+            }
+            writeVar(callSite.size());
+            for (var element : callSite) {
+                writeStringRef(element.getClassName());
+                writeStringRef(element.getMethodName());
+                writeStringRef(element.getFileName());
+                writeSignedVar(element.getLineNumber());
+            }
+        }
+
+        void writeNode(Node node) {
+            if (node instanceof Node.Text text) {
+                writeByte(TEXT);
+                writeStringRef(text.typeName());
+                writeString(text.text());
+                writeBoolean(text.breakable());
+
+            } else if (node instanceof Node.Str str) {
+                writeByte(STR);
+                writeStringRef(str.typeName());
+                writeString(str.string());
+                writeBoolean(str.truncated());
+
+            } else if (node instanceof Node.Bytes bytesNode) {
+                writeByte(BYTES);
+                writeStringRef(bytesNode.prefix());
+                writeStringRef(bytesNode.typeName());
+                var byteBuffer = bytesNode.bytes();
+                var byteCount = byteBuffer.remaining();
+                writeVar(byteCount);
+                ensureCapacity(byteCount);
+                byteBuffer.get(byteBuffer.position(), bytes, length, byteCount);
+                length += byteCount;
+                writeBoolean(bytesNode.truncated());
+                writeBoolean(bytesNode.multiLines());
+
+            } else if (node instanceof Node.Primitives primitives) {
+                // The components follow the descriptor of the component type
+                writeByte(PRIMITIVES);
+                writeStringRef(primitives.typeName());
+                var array = primitives.array();
+                if (array instanceof boolean[] booleans) {
+                    writeByte('Z');
+                    writeVar(booleans.length);
+                    for (var value : booleans) writeBoolean(value);
+                } else if (array instanceof short[] shorts) {
+                    writeByte('S');
+                    writeVar(shorts.length);
+                    for (var value : shorts) writeSignedVar(value);
+                } else if (array instanceof int[] ints) {
+                    writeByte('I');
+                    writeVar(ints.length);
+                    for (var value : ints) writeSignedVar(value);
+                } else if (array instanceof long[] longs) {
+                    writeByte('J');
+                    writeVar(longs.length);
+                    for (var value : longs) writeSignedVar(value);
+                } else if (array instanceof float[] floats) {
+                    writeByte('F');
+                    writeVar(floats.length);
+                    for (var value : floats) writeVar(Float.floatToRawIntBits(value) & 0xFFFF_FFFFL);
+                } else if (array instanceof double[] doubles) {
+                    writeByte('D');
+                    writeVar(doubles.length);
+                    for (var value : doubles) writeVar(Double.doubleToRawLongBits(value));
+                }
+                writeBoolean(primitives.truncated());
+
+            } else if (node instanceof Node.Present present) {
+                writeByte(PRESENT);
+                writeStringRef(present.typeName());
+                writeNode(present.value());
+
+            } else if (node instanceof Node.Container container) {
+                writeByte(CONTAINER);
+                writeStringRef(container.typeName());
+                writeVar(container.elements().size());
+                for (var element : container.elements())
+                    writeNode(element);
+                writeBoolean(container.truncated());
+
+            } else if (node instanceof Node.Entry entry) {
+                writeByte(ENTRY);
+                writeNode(entry.key());
+                writeNode(entry.value());
+
+            } else if (node instanceof Node.Reflection reflection) {
+                writeByte(REFLECTION);
+                writeStringRef(reflection.typeName());
+                writeBoolean(reflection.extended());
+                writeVar(reflection.classes().size());
+                for (var classFields : reflection.classes()) {
+                    writeStringRef(classFields.className());
+                    writeVar(classFields.fields().size());
+                    for (var field : classFields.fields()) {
+                        writeStringRef(field.name());
+                        if (field.value() == null)
+                            writeByte(NO_NODE);
+                        else
+                            writeNode(field.value());
+                    }
+                }
+
+            } else if (node instanceof Node.Cyclic cyclic) {
+                writeByte(CYCLIC);
+                writeString(cyclic.text());
+
+            } else if (node instanceof Node.Limit) {
+                writeByte(LIMIT);
+
+            } else if (node instanceof Node.Skipped skipped) {
+                writeByte(SKIPPED);
+                writeVar(skipped.count());
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+// ValueRenderer.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace;
+
+/**
+ * Interface of the renderers that output the values of a type as texts.<br>
+ * The renderers are found with <code>java.util.ServiceLoader</code>
+ * (<code>META-INF/services/org.debugtrace.ValueRenderer</code>)
+ * or are specified by the class names in the <code>valueRenderers</code> property,
+ * and must have a public constructor without parameters.<br>
+ * The values of the type and its subtypes are output by the renderer
+ * instead of the built-in conversion, the <code>toString</code> method or reflection.
+ * The type name is output before the text as the other values.
+ * If more than one renderer accepts a class, the first one is used
+ * (the renderers of the <code>valueRenderers</code> property precede the ones found with ServiceLoader).<br>
+ * The renderers are called by multiple threads.
+ *
+ * @param <T> the type of the values
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public interface ValueRenderer<T> {
+    /**
+     * Returns the type of the values to output.
+     *
+     * @return the type of the values
+     */
+    Class<T> type();
+
+    /**
+     * Appends the text of the value to the builder.
+     *
+     * @param builder the builder to which the text is appended
+     * @param value the value (not null)
+     */
+    void appendTo(StringBuilder builder, T value);
+}
@@ -195,6 +195,19 @@ public class Resource {
         return getValue(key, Integer::parseInt, defaultValue);
     }
 
+    /**
+     * Returns the boolean value of resource property.
+     *
+     * @param key the key of resource property
+     * @param defaultValue the default value
+     * @return the boolean value of resource property (or defaultValue if not found in properties file)
+     * @throws NullPointerException if <b>key</b> is null
+     * @since 4.2.0
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return getValue(key, string -> Boolean.parseBoolean(string.trim()), defaultValue);
+    }
+
     /**
      * Returns a list created from the resource property value if it is found,
      * an empty list otherwise.
@@ -336,4 +349,18 @@ public class Resource {
     public Map<String, String> getStringKeyMap(String key) {
         return getMap(key,  s -> s.toLowerCase(), stringConverter);
     }
+
+    /**
+     * Returns a map (key: String, value: String) created from the resource property value if it is found,
+     * an empty map otherwise.<br>
+     * Unlike getStringKeyMap, the keys are not converted to lower case.
+     *
+     * @param key the key of resource property
+     * @return a created map (or an empty map)
+     * @throws NullPointerException if <b>key</b> is null
+     * @since 4.2.0
+     */
+    public Map<String, String> getCaseSensitiveStringKeyMap(String key) {
+        return getMap(key, s -> s, stringConverter);
+    }
 }
@@ -0,0 +1,193 @@
+// Archiver.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rolls a log file according to a RollPolicy.<br>
+ * A rolled file is renamed to an archive file,
+ * and a background thread compresses it and deletes old archive files.
+ * If the file cannot be renamed, it is not rolled again for a while and the output is appended to it.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class Archiver {
+    // The format of the time appended to the archive file names
+    private static final DateTimeFormatter ARCHIVE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    // The suffix of compressed archive files
+    private static final String GZIP_SUFFIX = ".gz";
+
+    // The size of the buffer used for compression
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // The time to wait before rolling again after failing to roll
+    private static final long RETRY_INTERVAL = 60_000L; // 1 minute
+
+    private final java.io.File file;
+    private final RollPolicy rollPolicy;
+
+    // The time to roll the file next (Long.MAX_VALUE if not rolled by time)
+    private long nextRollTime = Long.MAX_VALUE;
+
+    // The time before which the file is not rolled after failing to roll
+    private long retryTime;
+
+    // The time appended to the last archive file name
+    private long lastArchiveTime;
+
+    // The executor that compresses and deletes archive files
+    private final ExecutorService executor;
+
+    /**
+     * Constructs an Archiver.
+     *
+     * @param file the log file
+     * @param rollPolicy the policy of when to roll the file and how many archives to keep
+     */
+    Archiver(java.io.File file, RollPolicy rollPolicy) {
+        this.file = file;
+        this.rollPolicy = rollPolicy;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "DebugTrace-File-Archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        started();
+    }
+
+    /**
+     * Returns whether the file should be rolled.
+     * The caller must call this method and {@link #roll(long)} under the lock of the logger.
+     *
+     * @param fileSize the current size of the file
+     * @return true if the file should be rolled; false otherwise
+     */
+    boolean shouldRoll(long fileSize) {
+        var now = System.currentTimeMillis();
+        return (rollPolicy.size() > 0 && fileSize >= rollPolicy.size() || now >= nextRollTime)
+            && now >= retryTime;
+    }
+
+    /**
+     * Renames the closed file to an archive file and compresses the archive file in the background.
+     * The caller must reopen the file after this method even if an exception is thrown.
+     * If the file cannot be renamed, {@link #shouldRoll(long)} returns false for a while
+     * so that the file is not closed and reopened for each line.
+     *
+     * @param fileSize the size of the file
+     * @throws IOException if an I/O error occurs
+     */
+    void roll(long fileSize) throws IOException {
+        var now = System.currentTimeMillis();
+        if (fileSize == 0) {
+            // Does not archive an empty file
+            started();
+            return;
+        }
+
+        // The time in the archive file name increases monotonically so that the names are sorted in order of rolling
+        var archiveTime = Math.max(now, lastArchiveTime + 1);
+        lastArchiveTime = archiveTime;
+        var archivePath = file.toPath().resolveSibling(file.getName() + '.'
+            + ARCHIVE_TIME_FORMATTER.format(Instant.ofEpochMilli(archiveTime).atZone(ZoneId.systemDefault())));
+        try {
+            Files.move(file.toPath(), archivePath);
+        }
+        catch (IOException e) {
+            failed();
+            throw e;
+        }
+        started();
+        executor.execute(() -> archive(archivePath));
+    }
+
+    /**
+     * Makes {@link #shouldRoll(long)} return false for a while after failing to roll.
+     */
+    void failed() {
+        retryTime = System.currentTimeMillis() + RETRY_INTERVAL;
+    }
+
+    /**
+     * Waits for the archive files to be compressed.
+     */
+    void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Computes the time to roll next when a file is started.
+     * The time is aligned to the interval in the local time (e.g. midnight if the interval is 1 day).
+     */
+    private void started() {
+        var interval = rollPolicy.interval();
+        if (interval > 0) {
+            var now = System.currentTimeMillis();
+            var offset = ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochMilli(now)).getTotalSeconds() * 1000L;
+            nextRollTime = Math.floorDiv(now + offset, interval) * interval + interval - offset;
+        }
+    }
+
+    /**
+     * Compresses the archive file and deletes old archive files.
+     * This method is called in the executor thread.
+     *
+     * @param archivePath the path of the archive file
+     */
+    private void archive(Path archivePath) {
+        var gzipPath = archivePath.resolveSibling(archivePath.getFileName() + GZIP_SUFFIX);
+        try (var in = Files.newInputStream(archivePath);
+             var out = new GZIPOutputStream(Files.newOutputStream(gzipPath), BUFFER_SIZE)) {
+            in.transferTo(out);
+        }
+        catch (IOException e) {
+            System.err.println("DebugTrace: " + e.toString());
+            return;
+        }
+        try {
+            Files.delete(archivePath);
+            if (rollPolicy.count() > 0)
+                deleteOldArchives();
+        }
+        catch (IOException e) {
+            System.err.println("DebugTrace: " + e.toString());
+        }
+    }
+
+    /**
+     * Deletes archive files exceeding the count of the roll policy in order from the oldest.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void deleteOldArchives() throws IOException {
+        var pattern = Pattern.compile(Pattern.quote(file.getName()) + "\\.\\d{8}-\\d{6}-\\d{3}" + Pattern.quote(GZIP_SUFFIX));
+        var archiveFiles = file.getAbsoluteFile().getParentFile().listFiles(
+            (dir, name) -> pattern.matcher(name).matches());
+        if (archiveFiles == null || archiveFiles.length <= rollPolicy.count())
+            return;
+        Arrays.sort(archiveFiles);
+        for (var index = 0; index < archiveFiles.length - rollPolicy.count(); ++index)
+            Files.deleteIfExists(archiveFiles[index].toPath());
+    }
+}
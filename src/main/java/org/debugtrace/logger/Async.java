@@ -0,0 +1,353 @@
+// Async.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.logger;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A logger that outputs to another logger asynchronously.<br>
+ * Messages are put into a bounded ring buffer that is allocated in advance with the time of logging,
+ * and a background thread outputs them to the logger in batches.
+ * The messages logged after closing are counted as dropped.
+ * If the background thread stops by an unexpected error, the logger is closed
+ * and the remaining messages are counted as dropped.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public class Async implements Logger {
+    /**
+     * The policy when the ring buffer is full.
+     */
+    public enum FullPolicy {
+        /** Waits until the ring buffer has space. */
+        WAIT,
+
+        /** Drops the message. */
+        DROP;
+
+        /**
+         * Returns the FullPolicy corresponding to the name (case insensitive).
+         *
+         * @param name the name of a FullPolicy
+         * @return the FullPolicy
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static FullPolicy parse(String name) {
+            for (var policy : values())
+                if (policy.name().equalsIgnoreCase(name.trim()))
+                    return policy;
+            throw new IllegalArgumentException("'" + name + "' is unknown.");
+        }
+    }
+
+    // The maximum size of the ring buffer
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // The maximum number of messages output in a batch
+    private static final int MAX_BATCH_SIZE = 256;
+
+    // The time to park the consumer thread when the ring buffer is empty
+    private static final long IDLE_PARK_NANOS = 1_000_000L; // 1ms
+
+    // The time to park a producer thread when the ring buffer is full
+    private static final long FULL_PARK_NANOS = 10_000L; // 10μs
+
+    private final Logger logger;
+    private final FullPolicy fullPolicy;
+    private final int capacity;
+    private final int mask;
+
+    // The ring buffer of messages, their times and the sequence number of each slot
+    // A slot is writable if its sequence equals the tail sequence and readable if it equals the head sequence + 1
+    private final String[] messages;
+    private final Instant[] instants;
+    private final AtomicLongArray sequences;
+
+    // The next sequence to write (shared by producer threads)
+    private final AtomicLong tail = new AtomicLong();
+
+    // The next sequence to read (accessed by the consumer thread only)
+    private long head;
+
+    // The messages and their times taken out of the ring buffer to output (accessed by the consumer thread only)
+    private final String[] batch;
+    private final Instant[] batchInstants;
+
+    // The number of producer threads in the log method
+    // The consumer thread does not finish until it becomes 0 after closing
+    private final AtomicInteger producerCount = new AtomicInteger();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private long reportedDroppedCount; // accessed by the consumer thread only
+
+    private volatile boolean closed;
+    private final Thread consumer;
+    private final Thread shutdownHook;
+
+    /**
+     * Constructs an Async.
+     *
+     * @param logger the logger to output
+     * @param bufferSize the size of the ring buffer (rounded up to a power of 2, 2^30 at most)
+     * @param fullPolicy the policy when the ring buffer is full
+     */
+    public Async(Logger logger, int bufferSize, FullPolicy fullPolicy) {
+        this.logger = logger;
+        this.fullPolicy = fullPolicy;
+        capacity = capacity(bufferSize);
+        mask = capacity - 1;
+        messages = new String[capacity];
+        instants = new Instant[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (var index = 0; index < capacity; ++index)
+            sequences.set(index, index);
+        batch = new String[Math.min(capacity, MAX_BATCH_SIZE)];
+        batchInstants = new Instant[batch.length];
+
+        consumer = new Thread(this::run, "DebugTrace-Async");
+        consumer.setDaemon(true);
+        consumer.start();
+
+        // Outputs the remaining messages at shutdown
+        shutdownHook = new Thread(this::close, "DebugTrace-Async-Shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Returns the size of the ring buffer rounded up to a power of 2.
+     *
+     * @param bufferSize the specified size of the ring buffer
+     * @return the size of the ring buffer (2 to MAX_CAPACITY)
+     */
+    private static int capacity(int bufferSize) {
+        return Integer.highestOneBit(Math.min(Math.max(bufferSize, 2), MAX_CAPACITY) * 2 - 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return logger.isEnabled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void log(String message) {
+        log(message, Instant.now());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void log(String message, Instant instant) {
+        producerCount.incrementAndGet();
+        try {
+            // The consumer thread has not finished if not closed here,
+            // because it waits for the producerCount to become 0 after closing.
+            if (closed) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+
+            while (!offer(message, instant)) {
+                // The ring buffer is full (does not wait after closing)
+                if (fullPolicy == FullPolicy.DROP || closed) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(consumer);
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            }
+        }
+        finally {
+            producerCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of messages dropped because the ring buffer was full or the logger was closed.
+     *
+     * @return the number of dropped messages
+     */
+    public long droppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Outputs the remaining messages and closes the logger to output.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException e) {
+            // in shutdown
+        }
+        logger.close();
+    }
+
+    /**
+     * Puts the message into the ring buffer.
+     *
+     * @param message a message
+     * @param instant the time of the message
+     * @return true if put; false if the ring buffer is full
+     */
+    private boolean offer(String message, Instant instant) {
+        var sequence = tail.get();
+        for (;;) {
+            var index = (int)sequence & mask;
+            var difference = sequences.get(index) - sequence;
+            if (difference == 0) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    messages[index] = message;
+                    instants[index] = instant;
+                    sequences.set(index, sequence + 1); // publishes the message
+                    return true;
+                }
+                sequence = tail.get();
+            } else if (difference < 0) {
+                return false; // full
+            } else {
+                sequence = tail.get(); // overtaken by another producer
+            }
+        }
+    }
+
+    /**
+     * Takes messages out of the ring buffer into the batch.
+     *
+     * @return the number of messages taken
+     */
+    private int take() {
+        var count = 0;
+        while (count < batch.length) {
+            var index = (int)head & mask;
+            if (sequences.get(index) != head + 1)
+                break; // empty or not yet published
+            batch[count] = messages[index];
+            batchInstants[count++] = instants[index];
+            messages[index] = null;
+            instants[index] = null;
+            sequences.set(index, head + capacity); // releases the slot
+            ++head;
+        }
+        return count;
+    }
+
+    /**
+     * The processing of the consumer thread.
+     */
+    private void run() {
+        try {
+            consume();
+        }
+        catch (Throwable e) {
+            // Closes so that the producer threads do not wait for the ring buffer
+            closed = true;
+            System.err.println("DebugTrace: " + e.toString());
+            discard();
+        }
+    }
+
+    /**
+     * Outputs the messages of the ring buffer until closed.
+     */
+    private void consume() {
+        for (;;) {
+            var count = take();
+            for (var index = 0; index < count; ++index) {
+                output(batch[index], batchInstants[index]);
+                batch[index] = null;
+                batchInstants[index] = null;
+            }
+            reportDropped();
+
+            if (count == 0) {
+                // Reads the producerCount before the tail so that the messages of the finished producers are taken
+                if (closed && producerCount.get() == 0 && head == tail.get())
+                    break;
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Counts the remaining messages of the ring buffer as dropped after the consumer thread failed.
+     */
+    private void discard() {
+        for (;;) {
+            var count = take();
+            for (var index = 0; index < count; ++index) {
+                batch[index] = null;
+                batchInstants[index] = null;
+            }
+            droppedCount.addAndGet(count);
+
+            if (count == 0) {
+                if (producerCount.get() == 0 && head == tail.get())
+                    break;
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Outputs the message to the logger.<br>
+     * Errors of the logger are also reported and the following messages are output.
+     *
+     * @param message a message
+     * @param instant the time of the message
+     */
+    private void output(String message, Instant instant) {
+        try {
+            logger.log(message, instant);
+        }
+        catch (Throwable e) {
+            System.err.println("DebugTrace: " + e.toString());
+        }
+    }
+
+    /**
+     * Outputs the number of dropped messages if it has increased.
+     */
+    private void reportDropped() {
+        var count = droppedCount.get();
+        if (count != reportedDroppedCount) {
+            output("DebugTrace: " + (count - reportedDroppedCount) + " lines were dropped. (total: " + count + ")", Instant.now());
+            reportedDroppedCount = count;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+            " (buffer size: " + capacity +
+            ", full policy: " + fullPolicy +
+            ", logger: " + logger + ")";
+    }
+}
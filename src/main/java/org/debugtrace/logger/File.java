@@ -3,9 +3,18 @@
 
 package org.debugtrace.logger;
 
-import java.io.FileWriter;
+import static java.nio.file.StandardOpenOption.*;
+
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.time.Instant;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import org.debugtrace.DebugTrace;
 import org.debugtrace.LineSeparator;
@@ -17,11 +26,35 @@ import org.debugtrace.LineSeparator;
  * @author Masato Kokubo
  */
 public class File implements Logger {
-    private static final Object lock = new Object();
+    // The default size of the buffer
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024; // since 4.2.0
+
+    // The maximum size of the buffer
+    private static final int MAX_BUFFER_SIZE = 64 * 1024 * 1024; // since 4.2.0
+
+    private final Object lock = new Object();
     private java.io.File file;
     private Charset charset;
     private boolean writeErrorReported;
     private LineSeparator lineSeparator;
+    private final FlushPolicy flushPolicy; // since 4.2.0
+    private final RollPolicy rollPolicy; // since 4.2.0
+
+    // The channel kept open until closing (null if closed)
+    private FileChannel channel; // since 4.2.0
+
+    // The encoder and the buffer reused for each line
+    private final CharsetEncoder encoder; // since 4.2.0
+    private final ByteBuffer buffer; // since 4.2.0
+
+    private final Timer flushTimer; // since 4.2.0
+    private final Thread shutdownHook; // since 4.2.0
+
+    // The number of bytes written to the current file
+    private long fileSize; // since 4.2.0
+
+    // Rolls the file (null if not rolled)
+    private final Archiver archiver; // since 4.2.0
 
     /**
      * Constructs a org.debugtrace.logger.File.
@@ -31,14 +64,70 @@ public class File implements Logger {
      * @param append Append output to the existing log file if true, initialize and output otherwise
      */
     public File(java.io.File file, Charset charset, LineSeparator lineSeparator, boolean append) {
+        this(file, charset, lineSeparator, append, FlushPolicy.LINE);
+    }
+
+    /**
+     * Constructs a org.debugtrace.logger.File.
+     * @param file the output destination java.io.File
+     * @param charset the charset
+     * @param lineSeparator the line separator
+     * @param append Append output to the existing log file if true, initialize and output otherwise
+     * @param flushPolicy the policy of when to write the buffered lines to the file
+     * @since 4.2.0
+     */
+    public File(java.io.File file, Charset charset, LineSeparator lineSeparator, boolean append, FlushPolicy flushPolicy) {
+        this(file, charset, lineSeparator, append, flushPolicy, RollPolicy.NONE);
+    }
+
+    /**
+     * Constructs a org.debugtrace.logger.File.
+     * @param file the output destination java.io.File
+     * @param charset the charset
+     * @param lineSeparator the line separator
+     * @param append Append output to the existing log file if true, initialize and output otherwise
+     * @param flushPolicy the policy of when to write the buffered lines to the file
+     * @param rollPolicy the policy of when to roll the file and how many archives to keep
+     * @since 4.2.0
+     */
+    public File(java.io.File file, Charset charset, LineSeparator lineSeparator, boolean append,
+            FlushPolicy flushPolicy, RollPolicy rollPolicy) {
         this.file = file;
         this.charset = charset;
         this.lineSeparator = lineSeparator;
+        this.flushPolicy = flushPolicy;
+        this.rollPolicy = rollPolicy;
+        encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        buffer = ByteBuffer.allocateDirect(flushPolicy.type() == FlushPolicy.Type.BYTES
+            ? (int)Math.min(Math.max(flushPolicy.value(), DEFAULT_BUFFER_SIZE), MAX_BUFFER_SIZE)
+            : DEFAULT_BUFFER_SIZE);
         try {
-            new FileWriter(file, append).close();
+            if (!append)
+                FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING).close();
+            openChannel();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+
+        archiver = rollPolicy.isEnabled() ? new Archiver(file, rollPolicy) : null;
+
+        if (flushPolicy.type() == FlushPolicy.Type.MILLIS) {
+            flushTimer = new Timer("DebugTrace-File-Flush", true);
+            flushTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, flushPolicy.value(), flushPolicy.value());
+        } else {
+            flushTimer = null;
+        }
+
+        // Writes the buffered lines at shutdown
+        shutdownHook = new Thread(this::close, "DebugTrace-File-Close");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
     }
 
     /**
@@ -46,18 +135,171 @@ public class File implements Logger {
      */
     @Override
     public void log(String message) {
+        output(DebugTrace.appendTimestamp(message));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 4.2.0
+     */
+    @Override
+    public void log(String message, Instant instant) {
+        output(DebugTrace.appendTimestamp(message, instant));
+    }
+
+    /**
+     * Outputs the line to the file.
+     *
+     * @param line the line with the timestamp
+     * @since 4.2.0
+     */
+    private void output(String line) {
         synchronized (lock) {
-            try (FileWriter writer = new FileWriter(file, charset, true)) {
-                writer.write(DebugTrace.appendTimestamp(message) + lineSeparator);
+            if (channel == null)
+                return; // closed
+            try {
+                if (archiver != null && archiver.shouldRoll(fileSize + buffer.position()))
+                    roll();
+                encode(line, lineSeparator.toString());
+                if (   flushPolicy.type() == FlushPolicy.Type.LINE
+                    || flushPolicy.type() == FlushPolicy.Type.BYTES && buffer.position() >= flushPolicy.value())
+                    writeBuffer();
             } catch (IOException e) {
-                if (!writeErrorReported) {
-                    System.err.println(e.toString());
-                    writeErrorReported = true;
-                }
+                reportWriteError(e);
             }
         }
     }
 
+    /**
+     * Writes the buffered lines to the file.
+     *
+     * @since 4.2.0
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (channel == null)
+                return; // closed
+            try {
+                writeBuffer();
+            } catch (IOException e) {
+                reportWriteError(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered lines and closes the file.
+     *
+     * @since 4.2.0
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (channel == null)
+                return; // already closed
+            if (flushTimer != null)
+                flushTimer.cancel();
+            try {
+                writeBuffer();
+                channel.close();
+            } catch (IOException e) {
+                reportWriteError(e);
+            }
+            channel = null;
+        }
+        if (archiver != null)
+            archiver.close();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException e) {
+            // in shutdown
+        }
+    }
+
+    /**
+     * Opens the channel of the file.
+     *
+     * @throws IOException if an I/O error occurs
+     * @since 4.2.0
+     */
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(file.toPath(), CREATE, WRITE, APPEND);
+        fileSize = channel.size();
+    }
+
+    /**
+     * Rolls the file and opens a new file.
+     *
+     * @throws IOException if an I/O error occurs
+     * @since 4.2.0
+     */
+    private void roll() throws IOException {
+        writeBuffer();
+        channel.close();
+        try {
+            archiver.roll(fileSize);
+        }
+        finally {
+            openChannel();
+        }
+    }
+
+    /**
+     * Encodes the message and the line separator into the buffer as a line.
+     *
+     * @param message a message
+     * @param lineSeparator the line separator
+     * @throws IOException if an I/O error occurs
+     * @since 4.2.0
+     */
+    private void encode(String message, String lineSeparator) throws IOException {
+        encoder.reset();
+        var chars = CharBuffer.wrap(message);
+        while (encoder.encode(chars, buffer, false).isOverflow())
+            writeBuffer();
+        if (chars.hasRemaining()) {
+            // a high surrogate at the end of the message
+            chars = CharBuffer.wrap(chars.toString() + lineSeparator);
+        } else {
+            chars = CharBuffer.wrap(lineSeparator);
+        }
+        while (encoder.encode(chars, buffer, true).isOverflow())
+            writeBuffer();
+        while (encoder.flush(buffer).isOverflow())
+            writeBuffer();
+    }
+
+    /**
+     * Writes the content of the buffer to the file.
+     *
+     * @throws IOException if an I/O error occurs
+     * @since 4.2.0
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining())
+                fileSize += channel.write(buffer);
+        }
+        finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reports the write error only once.
+     *
+     * @param e the exception
+     * @since 4.2.0
+     */
+    private void reportWriteError(IOException e) {
+        if (!writeErrorReported) {
+            System.err.println(e.toString());
+            writeErrorReported = true;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -66,6 +308,8 @@ public class File implements Logger {
         return getClass().getName() +
             " (character set: " + charset +
             ", line separator: " + lineSeparator.visible() +
+            ", flush: " + flushPolicy +
+            (rollPolicy.isEnabled() ? ", roll: (" + rollPolicy + ")" : "") +
             ", file: " + file.getPath() + ")";
     }
 }
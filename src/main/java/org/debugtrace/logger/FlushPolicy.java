@@ -0,0 +1,80 @@
+// FlushPolicy.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.logger;
+
+import java.util.Locale;
+
+/**
+ * The policy of when a logger writes the buffered lines to the file.
+ *
+ * @param type the type of the policy
+ * @param value the number of bytes (BYTES) or milliseconds (MILLIS), 0 otherwise
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public record FlushPolicy(FlushPolicy.Type type, long value) {
+    /**
+     * The type of FlushPolicy.
+     */
+    public enum Type {
+        /** Writes each line. */
+        LINE,
+
+        /** Writes when the buffered lines reach the number of bytes. */
+        BYTES,
+
+        /** Writes at intervals of the number of milliseconds. */
+        MILLIS,
+
+        /** Writes when the buffer is full or the logger is closed. */
+        CLOSE
+    }
+
+    /** Writes each line */
+    public static final FlushPolicy LINE = new FlushPolicy(Type.LINE, 0L);
+
+    /** Writes when the buffer is full or the logger is closed */
+    public static final FlushPolicy CLOSE = new FlushPolicy(Type.CLOSE, 0L);
+
+    /**
+     * Parses a string and returns a FlushPolicy.
+     *
+     * @param string <code>line</code>, <code>bytes:&lt;number of bytes&gt;</code>,
+     *     <code>millis:&lt;number of milliseconds&gt;</code> or <code>close</code> (case insensitive)
+     * @return a FlushPolicy
+     * @throws IllegalArgumentException if the string is invalid
+     */
+    public static FlushPolicy parse(String string) {
+        var colonIndex = string.indexOf(':');
+        var typeName = (colonIndex >= 0 ? string.substring(0, colonIndex) : string).trim();
+        for (var type : Type.values()) {
+            if (!type.name().equalsIgnoreCase(typeName))
+                continue;
+            if (type == Type.BYTES || type == Type.MILLIS) {
+                if (colonIndex >= 0) {
+                    try {
+                        var value = Long.parseLong(string.substring(colonIndex + 1).trim());
+                        if (value > 0)
+                            return new FlushPolicy(type, value);
+                    }
+                    catch (NumberFormatException e) {
+                    }
+                }
+            } else if (colonIndex < 0) {
+                return new FlushPolicy(type, 0L);
+            }
+            break;
+        }
+        throw new IllegalArgumentException("'" + string + "' is invalid.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        var name = type.name().toLowerCase(Locale.ROOT);
+        return type == Type.BYTES || type == Type.MILLIS ? name + ':' + value : name;
+    }
+}
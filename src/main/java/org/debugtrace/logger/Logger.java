@@ -3,6 +3,8 @@
 
 package org.debugtrace.logger;
 
+import java.time.Instant;
+
 /**
  * Interface of Logger classes.
  *
@@ -26,4 +28,27 @@ public interface Logger {
      * @param message a log message
      */
     void log(String message);
+
+    /**
+     * Output the message of the event that occurred at the instant to the log.<br>
+     * Loggers that append the timestamp by themselves use the instant instead of the current time,
+     * so that the timestamp is the time of the event even if the message is output later.
+     * The default implementation ignores the instant.
+     *
+     * @param message a log message
+     * @param instant the time of the event
+     * @since 4.2.0
+     */
+    default void log(String message, Instant instant) {
+        log(message);
+    }
+
+    /**
+     * Closes this logger and releases the resources.<br>
+     * DebugTrace calls this method when replacing the logger.
+     *
+     * @since 4.2.0
+     */
+    default void close() {
+    }
 }
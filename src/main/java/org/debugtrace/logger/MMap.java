@@ -0,0 +1,304 @@
+// MMap.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.logger;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.time.Instant;
+
+import org.debugtrace.DebugTrace;
+import org.debugtrace.LineSeparator;
+
+/**
+ * A logger that outputs to a memory-mapped file.<br>
+ * Lines are encoded directly into a mapped region of the file without write system calls.
+ * The file is extended in chunks of the specified size
+ * and truncated to the length of the output when closed or rolled.<br>
+ * If the process is killed before closing, the file ends with the zero bytes of the unused part of the last chunk.<br>
+ * A mapped region is released only when it is garbage collected,
+ * and some platforms (e.g. Windows) do not allow truncating or renaming a file while it is mapped.
+ * If the file cannot be truncated when rolled, the output continues in the mapped region
+ * and the file is rolled again after a while.
+ * If the file cannot be reopened after truncated, the logger stops output.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public class MMap implements Logger {
+    /** The default size of the chunks */
+    public static final long DEFAULT_CHUNK_SIZE = 16L * 1024 * 1024;
+
+    private final Object lock = new Object();
+    private final java.io.File file;
+    private final Charset charset;
+    private final LineSeparator lineSeparator;
+    private final long chunkSize;
+    private final RollPolicy rollPolicy;
+    private boolean writeErrorReported;
+
+    // The encoder reused for each line
+    private final CharsetEncoder encoder;
+
+    // The channel kept open until closing (null if closed or failed to reopen)
+    private FileChannel channel;
+
+    // The mapped region and its position in the file (not null if the channel is not null)
+    private MappedByteBuffer region;
+    private long regionPosition;
+
+    // Rolls the file (null if not rolled)
+    private final Archiver archiver;
+
+    private final Thread shutdownHook;
+
+    /**
+     * Constructs a org.debugtrace.logger.MMap.
+     *
+     * @param file the output destination java.io.File
+     * @param charset the charset
+     * @param lineSeparator the line separator
+     * @param append Append output to the existing log file if true, initialize and output otherwise
+     */
+    public MMap(java.io.File file, Charset charset, LineSeparator lineSeparator, boolean append) {
+        this(file, charset, lineSeparator, append, DEFAULT_CHUNK_SIZE, RollPolicy.NONE);
+    }
+
+    /**
+     * Constructs a org.debugtrace.logger.MMap.
+     *
+     * @param file the output destination java.io.File
+     * @param charset the charset
+     * @param lineSeparator the line separator
+     * @param append Append output to the existing log file if true, initialize and output otherwise
+     * @param chunkSize the size of the chunks to extend the file
+     * @param rollPolicy the policy of when to roll the file and how many archives to keep
+     */
+    public MMap(java.io.File file, Charset charset, LineSeparator lineSeparator, boolean append,
+            long chunkSize, RollPolicy rollPolicy) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        this.file = file;
+        this.charset = charset;
+        this.lineSeparator = lineSeparator;
+        this.chunkSize = chunkSize;
+        this.rollPolicy = rollPolicy;
+        encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try {
+            open(append);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        archiver = rollPolicy.isEnabled() ? new Archiver(file, rollPolicy) : null;
+
+        // Truncates the file at shutdown
+        shutdownHook = new Thread(this::close, "DebugTrace-MMap-Close");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void log(String message) {
+        output(DebugTrace.appendTimestamp(message));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void log(String message, Instant instant) {
+        output(DebugTrace.appendTimestamp(message, instant));
+    }
+
+    /**
+     * Outputs the line to the file.
+     *
+     * @param line the line with the timestamp
+     */
+    private void output(String line) {
+        synchronized (lock) {
+            if (channel == null)
+                return; // closed
+            try {
+                if (archiver != null && archiver.shouldRoll(length()))
+                    roll();
+                encode(line, lineSeparator.toString());
+            } catch (IOException e) {
+                reportWriteError(e);
+            }
+        }
+    }
+
+    /**
+     * Truncates the file to the length of the output and closes it.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (channel == null)
+                return; // already closed or failed to reopen
+            try {
+                channel.truncate(length());
+            } catch (IOException e) {
+                reportWriteError(e);
+            }
+            region = null;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                reportWriteError(e);
+            }
+            channel = null;
+        }
+        if (archiver != null)
+            archiver.close();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException e) {
+            // in shutdown
+        }
+    }
+
+    /**
+     * Opens the file and maps the first region.<br>
+     * If an exception is thrown, the channel and the region are null.
+     *
+     * @param append Append output to the existing file if true, initialize the file otherwise
+     * @throws IOException if an I/O error occurs
+     */
+    private void open(boolean append) throws IOException {
+        channel = null;
+        region = null;
+        var newChannel = append
+            ? FileChannel.open(file.toPath(), CREATE, READ, WRITE)
+            : FileChannel.open(file.toPath(), CREATE, READ, WRITE, TRUNCATE_EXISTING);
+        try {
+            map(newChannel, newChannel.size());
+        } catch (IOException | RuntimeException e) {
+            newChannel.close();
+            throw e;
+        }
+        channel = newChannel;
+    }
+
+    /**
+     * Maps a chunk from the position (The file is extended if necessary).<br>
+     * If an exception is thrown, the current region is not changed.
+     *
+     * @param position the position in the file
+     * @throws IOException if an I/O error occurs
+     */
+    private void map(long position) throws IOException {
+        map(channel, position);
+    }
+
+    /**
+     * Maps a chunk of the channel from the position (The file is extended if necessary).
+     *
+     * @param channel the channel of the file
+     * @param position the position in the file
+     * @throws IOException if an I/O error occurs
+     */
+    private void map(FileChannel channel, long position) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_WRITE, position, chunkSize);
+        regionPosition = position;
+    }
+
+    /**
+     * Returns the length of the output.
+     *
+     * @return the length of the output
+     */
+    private long length() {
+        return regionPosition + region.position();
+    }
+
+    /**
+     * Encodes the message and the line separator into the mapped region as a line.
+     *
+     * @param message a message
+     * @param lineSeparator the line separator
+     * @throws IOException if an I/O error occurs
+     */
+    private void encode(String message, String lineSeparator) throws IOException {
+        encoder.reset();
+        var chars = CharBuffer.wrap(message);
+        while (encoder.encode(chars, region, false).isOverflow())
+            map(length());
+        if (chars.hasRemaining()) {
+            // a high surrogate at the end of the message
+            chars = CharBuffer.wrap(chars.toString() + lineSeparator);
+        } else {
+            chars = CharBuffer.wrap(lineSeparator);
+        }
+        while (encoder.encode(chars, region, true).isOverflow())
+            map(length());
+        while (encoder.flush(region).isOverflow())
+            map(length());
+    }
+
+    /**
+     * Rolls the file and opens a new file.<br>
+     * If the file cannot be truncated, the output continues in the current region.
+     * If the file cannot be reopened, the channel and the region become null.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void roll() throws IOException {
+        var length = length();
+        try {
+            channel.truncate(length); // fails on some platforms while the region is mapped
+        }
+        catch (IOException e) {
+            archiver.failed();
+            throw e;
+        }
+
+        // The region must not be written after truncating the file
+        region = null;
+        try {
+            channel.close();
+            archiver.roll(length);
+        }
+        finally {
+            open(true); // appends from the length if the file could not be renamed
+        }
+    }
+
+    /**
+     * Reports the write error only once.
+     *
+     * @param e the exception
+     */
+    private void reportWriteError(IOException e) {
+        if (!writeErrorReported) {
+            System.err.println(e.toString());
+            writeErrorReported = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+            " (character set: " + charset +
+            ", line separator: " + lineSeparator.visible() +
+            ", chunk size: " + chunkSize +
+            (rollPolicy.isEnabled() ? ", roll: (" + rollPolicy + ")" : "") +
+            ", file: " + file.getPath() + ")";
+    }
+}
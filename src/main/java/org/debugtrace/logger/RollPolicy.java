@@ -0,0 +1,97 @@
+// RollPolicy.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.logger;
+
+import java.util.Locale;
+
+/**
+ * The policy of when a logger rolls the file and how many archives it keeps.
+ *
+ * @param size the file size in bytes to roll (0 if not rolled by size)
+ * @param interval the interval in milliseconds to roll (0 if not rolled by time)
+ * @param count the maximum number of archives to keep (0 if unlimited)
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public record RollPolicy(long size, long interval, int count) {
+    /** Does not roll */
+    public static final RollPolicy NONE = new RollPolicy(0L, 0L, 0);
+
+    /**
+     * Returns whether the file is rolled.
+     *
+     * @return true if rolled by size or time; false otherwise
+     */
+    public boolean isEnabled() {
+        return size > 0 || interval > 0;
+    }
+
+    /**
+     * Parses a size string.
+     *
+     * @param string a number of bytes with an optional unit <code>K</code>, <code>M</code> or <code>G</code>
+     *     (case insensitive, e.g. <code>100M</code>), or null
+     * @return the number of bytes (0 if the string is null or empty)
+     * @throws IllegalArgumentException if the string is invalid
+     */
+    public static long parseSize(String string) {
+        return parse(string, new String[] {"K", "M", "G"}, new long[] {1024L, 1024L * 1024L, 1024L * 1024L * 1024L});
+    }
+
+    /**
+     * Parses an interval string.
+     *
+     * @param string a number with a unit <code>ms</code>, <code>s</code>, <code>m</code>, <code>h</code> or <code>d</code>
+     *     (case insensitive, e.g. <code>1d</code>), or null
+     * @return the number of milliseconds (0 if the string is null or empty)
+     * @throws IllegalArgumentException if the string is invalid
+     */
+    public static long parseInterval(String string) {
+        // "MS" is checked before "M" and "S"
+        var interval = parse(string, new String[] {"MS", "S", "M", "H", "D"},
+            new long[] {1L, 1000L, 60_000L, 3_600_000L, 86_400_000L});
+        if (interval > 0 && string.trim().chars().allMatch(Character::isDigit))
+            throw new IllegalArgumentException("'" + string + "' is invalid.");
+        return interval;
+    }
+
+    /**
+     * Parses a number with an optional unit.
+     *
+     * @param string the string to parse
+     * @param units the units in upper case (the first matching unit at the end is used)
+     * @param multipliers the multiplier of each unit
+     * @return the parsed value
+     */
+    private static long parse(String string, String[] units, long[] multipliers) {
+        if (string == null || string.isBlank())
+            return 0L;
+        var trimmed = string.trim();
+        var upperCase = trimmed.toUpperCase(Locale.ROOT);
+        var multiplier = 1L;
+        for (var index = 0; index < units.length; ++index) {
+            if (upperCase.endsWith(units[index])) {
+                multiplier = multipliers[index];
+                trimmed = trimmed.substring(0, trimmed.length() - units[index].length()).trim();
+                break;
+            }
+        }
+        try {
+            var value = Long.parseLong(trimmed);
+            if (value > 0)
+                return Math.multiplyExact(value, multiplier);
+        }
+        catch (ArithmeticException | NumberFormatException e) {
+        }
+        throw new IllegalArgumentException("'" + string + "' is invalid.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "size: " + size + " bytes, interval: " + interval + " ms, count: " + count;
+    }
+}
@@ -3,6 +3,8 @@
 
 package org.debugtrace.logger;
 
+import java.time.Instant;
+
 import org.debugtrace.DebugTrace;
 
 /**
@@ -23,6 +25,15 @@ public abstract class Std implements Logger {
         public void log(String message) {
             System.out.println(DebugTrace.appendTimestamp(message));
         }
+
+        /**
+         * {@inheritDoc}
+         * @since 4.2.0
+         */
+        @Override
+        public void log(String message, Instant instant) {
+            System.out.println(DebugTrace.appendTimestamp(message, instant));
+        }
     }
 
     /**
@@ -36,6 +47,15 @@ public abstract class Std implements Logger {
         public void log(String message) {
             System.err.println(DebugTrace.appendTimestamp(message));
         }
+
+        /**
+         * {@inheritDoc}
+         * @since 4.2.0
+         */
+        @Override
+        public void log(String message, Instant instant) {
+            System.err.println(DebugTrace.appendTimestamp(message, instant));
+        }
     }
 
     /**
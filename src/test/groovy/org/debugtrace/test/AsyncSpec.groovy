@@ -0,0 +1,183 @@
+// AsyncSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.time.Instant
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import org.debugtrace.DebugTrace
+import org.debugtrace.logger.Async
+import org.debugtrace.logger.Logger
+import spock.lang.*
+
+/**
+ * Async Logger Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class AsyncSpec extends Specification {
+    def cleanupSpec() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    def "outputs all messages in order of each thread"() {
+        setup:
+        def logs = new CopyOnWriteArrayList<String>()
+        def async = new Async({message -> logs << message} as Logger, 16, Async.FullPolicy.WAIT)
+
+        when:
+        (0..<4).collect {threadIndex ->
+            Thread.start {
+                (0..<1000).each {async.log("$threadIndex:$it".toString())}
+            }
+        }*.join()
+        async.close()
+
+        then:
+        logs.size() == 4000
+        (0..<4).every {threadIndex ->
+            logs.findAll {it.startsWith("$threadIndex:")} == (0..<1000).collect {"$threadIndex:$it".toString()}
+        }
+        async.droppedCount() == 0
+    }
+
+    def "drops messages when the buffer is full"() {
+        setup:
+        def logs = new CopyOnWriteArrayList<String>()
+        def latch = new CountDownLatch(1)
+        def async = new Async({message -> latch.await(); logs << message} as Logger, 8, Async.FullPolicy.DROP)
+
+        when:
+        (0..<100).each {async.log("$it".toString())}
+        latch.countDown()
+        async.close()
+
+        then:
+        async.droppedCount() > 0
+        logs.count {!it.startsWith('DebugTrace: ')} == 100 - async.droppedCount()
+        logs.findAll {it.startsWith('DebugTrace: ')}.last().endsWith(" lines were dropped. (total: ${async.droppedCount()})")
+    }
+
+    def "drops messages logged after closing"() {
+        setup:
+        def logs = new CopyOnWriteArrayList<String>()
+        def async = new Async({message -> logs << message} as Logger, 8, Async.FullPolicy.WAIT)
+
+        when:
+        async.log('before')
+        async.close()
+        async.log('after')
+
+        then:
+        logs == ['before']
+        async.droppedCount() == 1
+    }
+
+    def "outputs or drops every message logged while closing"() {
+        setup:
+        def logs = new CopyOnWriteArrayList<String>()
+        def async = new Async({message -> logs << message} as Logger, 64, Async.FullPolicy.WAIT)
+        def start = new CountDownLatch(1)
+        def threads = (0..<4).collect {threadIndex ->
+            Thread.start {
+                start.await()
+                (0..<1000).each {async.log("$threadIndex:$it".toString())}
+            }
+        }
+
+        when:
+        start.countDown()
+        async.close()
+        threads*.join()
+
+        then:
+        logs.count {!it.startsWith('DebugTrace: ')} + async.droppedCount() == 4000
+    }
+
+    def "continues to output after the logger throws an Error"() {
+        setup:
+        def logs = new CopyOnWriteArrayList<String>()
+        def async = new Async({message ->
+            if (message == 'error')
+                throw new StackOverflowError()
+            logs << message
+        } as Logger, 2, Async.FullPolicy.WAIT)
+
+        when:
+        async.log('before')
+        async.log('error')
+        (0..<100).each {async.log("$it".toString())}
+        async.close()
+
+        then:
+        logs == ['before'] + (0..<100).collect {"$it".toString()}
+        async.droppedCount() == 0
+    }
+
+    def "passes the time of logging to the logger"() {
+        setup:
+        def latch = new CountDownLatch(1)
+        def logger = new InstantLogger(latch)
+        def async = new Async(logger, 8, Async.FullPolicy.WAIT)
+
+        when:
+        def before = Instant.now()
+        async.log('message')
+        def after = Instant.now()
+        Thread.sleep(100)
+        latch.countDown()
+        async.close()
+
+        then:
+        logger.instants.size() == 1
+        !logger.instants[0].isBefore(before)
+        !logger.instants[0].isAfter(after)
+    }
+
+    def "rounds up the size of the ring buffer to a power of 2 up to 2^30"() {
+        expect:
+        Async.capacity(bufferSize) == capacity
+
+        where:
+        bufferSize        | capacity
+        0                 | 2
+        2                 | 2
+        1000              | 1024
+        1024              | 1024
+        1 << 30           | 1 << 30
+        (1 << 30) + 1     | 1 << 30
+        Integer.MAX_VALUE | 1 << 30
+    }
+
+    def "asyncLogging property"() {
+        when:
+        DebugTrace.initClass('DebugTrace_Async')
+
+        then:
+        DebugTrace.logger instanceof Async
+        DebugTrace.logger.toString() == 'org.debugtrace.logger.Async (buffer size: 1024, full policy: DROP, logger: org.debugtrace.logger.Std$Out)'
+    }
+
+    // A logger that waits for the latch and records the times of the messages
+    static class InstantLogger implements Logger {
+        final CountDownLatch latch
+        final List<Instant> instants = new CopyOnWriteArrayList<>()
+
+        InstantLogger(CountDownLatch latch) {
+            this.latch = latch
+        }
+
+        @Override
+        void log(String message) {
+            log(message, Instant.now())
+        }
+
+        @Override
+        void log(String message, Instant instant) {
+            latch.await()
+            instants << instant
+        }
+    }
+}
@@ -0,0 +1,111 @@
+// BinaryTraceSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.nio.file.Files
+import java.nio.file.Paths
+
+import org.debugtrace.DebugTrace
+import org.debugtrace.LogOptions
+import org.debugtrace.TraceRenderer
+import spock.lang.*
+
+/**
+ * Binary trace file Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class BinaryTraceSpec extends Specification {
+    static final String tracePath = 'logs/BinaryTrace.dtrc'
+
+    def cleanupSpec() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    static class Contact {
+        String firstName
+        String lastName
+        int[] phoneNumbers
+    }
+
+    // Outputs the values and returns the last logs (meaningful only when not output to a binary trace file)
+    static List<String> trace() {
+        def lastLogs = []
+        DebugTrace.enter()
+        [
+            null,
+            'A\tB"C\u0000',
+            1234567L,
+            new BigDecimal('12345678901234567890.123456789'),
+            [1, 2, 3],
+            [a: 1, b: [2, 3], c: null],
+            (0..39).collect {it as byte} as byte[],
+            Optional.of('optional'),
+            new Contact(firstName: 'Akane', lastName: 'Apple', phoneNumbers: [123, 456] as int[]),
+            'x' * 300,
+        ].each {
+            DebugTrace.print('value', it)
+            lastLogs << DebugTrace.lastLog
+        }
+        def logOptions = new LogOptions()
+        logOptions.collectionLimit = 3
+        logOptions.collectionTailLimit = 2
+        DebugTrace.print('value', (0..<20).toList(), logOptions)
+        lastLogs << DebugTrace.lastLog
+        DebugTrace.print('message')
+        lastLogs << DebugTrace.lastLog
+        DebugTrace.leave()
+        return lastLogs
+    }
+
+    def "The binary trace file is rendered into the same lines as the logger"() {
+        setup:
+        DebugTrace.initClass('DebugTrace')
+        def expectedLogs = trace()
+
+        when:
+        DebugTrace.initClass('DebugTrace_BinaryTrace')
+        trace()
+        DebugTrace.initClass('DebugTrace') // closes the binary trace file
+        def writer = new StringWriter()
+        TraceRenderer.render(new File(tracePath), writer)
+        def lines = writer.toString().readLines().collect {it.replaceFirst(/^\S+ \S+ /, '')}
+        def rendered = lines.join('\n') + '\n'
+
+        then:
+        lines.any {it.startsWith('Enter ')}
+        lines.any {it.startsWith('Leave ')}
+        expectedLogs.every {rendered.contains(it)}
+    }
+
+    def "The binary trace file is created when the first event is output"() {
+        setup:
+        Files.deleteIfExists(Paths.get(tracePath))
+
+        when:
+        DebugTrace.initClass('DebugTrace_BinaryTrace')
+        def existsBefore = Files.exists(Paths.get(tracePath))
+        DebugTrace.print('value', 1)
+        def existsAfter = Files.exists(Paths.get(tracePath))
+        DebugTrace.initClass('DebugTrace')
+
+        then:
+        !existsBefore
+        existsAfter
+    }
+
+    def "TraceRenderer rejects a file other than a binary trace file"() {
+        setup:
+        def path = Paths.get('logs/BinaryTrace.txt')
+        Files.writeString(path, 'not a binary trace file')
+
+        when:
+        TraceRenderer.render(path.toFile(), new StringWriter())
+
+        then:
+        thrown(IOException)
+    }
+}
@@ -0,0 +1,82 @@
+// ClassInfoSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.lang.ref.WeakReference
+
+import groovy.transform.CompileStatic
+import org.debugtrace.DebugTrace
+import spock.lang.*
+
+/**
+ * ClassInfo Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class ClassInfoSpec extends Specification {
+    def cleanupSpec() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    // Prints an object of a class loaded by a new class loader and returns the class loader
+    @CompileStatic
+    private static WeakReference<ClassLoader> printInNewClassLoader() {
+        def location = A.protectionDomain.codeSource.location
+        def classLoader = new URLClassLoader([location] as URL[], (ClassLoader)null)
+        def object = classLoader.loadClass(A.name).getConstructor().newInstance()
+        DebugTrace.print('object', object)
+        assert DebugTrace.lastLog.contains('{v: 1}')
+        classLoader.close()
+        return new WeakReference<ClassLoader>(classLoader)
+    }
+
+    def "does not retain the class loaders of the output classes"() {
+        when:
+        def classLoaderRef = printInNewClassLoader()
+        for (def count = 0; count < 50 && classLoaderRef.get() != null; ++count) {
+            System.gc()
+            Thread.sleep(20)
+        }
+
+        then:
+        classLoaderRef.get() == null
+    }
+
+    def "decides again after initClass"() {
+        setup:
+        DebugTrace.initClass('DebugTrace_PropertySpec')
+
+        when:
+        DebugTrace.print('value', new PropertySpec.Point3(1, 2, 3))
+
+        then:
+        DebugTrace.lastLog.contains('x:: 1, y:: 2, z:: 3')
+
+        when:
+        DebugTrace.initClass('DebugTrace')
+        DebugTrace.print('value', new PropertySpec.Point3(1, 2, 3))
+
+        then:
+        DebugTrace.lastLog.contains('(1, 2, 3)')
+    }
+
+    def "replaces the default package of the type names after initClass"() {
+        setup:
+        DebugTrace.initClass('DebugTrace_PropertySpec')
+
+        when:
+        DebugTrace.print('value', [new C()] as C[])
+
+        then:
+        DebugTrace.lastLog.contains('(~~~.C[1])[(~~~.C){v:: 1}]')
+
+        when:
+        DebugTrace.initClass('DebugTrace')
+        DebugTrace.print('value', [new C()] as C[])
+
+        then:
+        DebugTrace.lastLog.contains('(....C[1])[(....C){v: 1}]')
+    }
+}
@@ -0,0 +1,81 @@
+// CollectionTailSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import org.debugtrace.DebugTrace
+import org.debugtrace.LogOptions
+import spock.lang.*
+
+/**
+ * Test of the head and tail elements of array, collection and map.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class CollectionTailSpec extends Specification {
+    // A RandomAccess list that counts the elements read by index
+    static class CountingList extends AbstractList<Integer> implements RandomAccess {
+        int size
+        List<Integer> indexes = []
+        CountingList(int size) {this.size = size}
+        Integer get(int index) {indexes << index; return index}
+        int size() {size}
+        Iterator<Integer> iterator() {throw new UnsupportedOperationException()}
+    }
+
+    def logOptions(int collectionTailLimit) {
+        def logOptions = new LogOptions()
+        logOptions.collectionLimit = 3
+        logOptions.collectionTailLimit = collectionTailLimit
+        return logOptions
+    }
+
+    def "outputs the head and tail elements: #description"() {
+        when:
+        DebugTrace.print('value', value, logOptions(2))
+
+        then:
+        DebugTrace.lastLog.contains(log)
+
+        where:
+        description   | value                                          | log
+        'ArrayList'   | (0..<10).toList()                              | '[0, 1, 2, ...(skipped:5)..., 8, 9]'
+        'LinkedList'  | new LinkedList((0..<10))                       | '[0, 1, 2, ...(skipped:5)..., 8, 9]'
+        'TreeSet'     | new TreeSet((0..<10))                          | '[0, 1, 2, ...(skipped:5)..., 8, 9]'
+        'Map'         | (0..<10).collectEntries {[it, it * 10]}        | '[0: 0, 1: 10, 2: 20, ...(skipped:5)..., 8: 80, 9: 90]'
+        'Integer[]'   | (0..<10) as Integer[]                          | '[0, 1, 2, ...(skipped:5)..., 8, 9]'
+        'int[]'       | (0..<10) as int[]                              | '[0, 1, 2, ...(skipped:5)..., 8, 9]'
+        'just fit'    | (0..<5).toList()                               | '[0, 1, 2, 3, 4]'
+        'just fit 2'  | new LinkedList((0..<5))                        | '[0, 1, 2, 3, 4]'
+        'just fit 3'  | (0..<5) as int[]                               | '[0, 1, 2, 3, 4]'
+        'one skipped' | new LinkedList((0..<6))                        | '[0, 1, 2, ...(skipped:1)..., 4, 5]'
+    }
+
+    def "outputs only the head elements if collectionTailLimit is 0: #description"() {
+        when:
+        DebugTrace.print('value', value, logOptions(0))
+
+        then:
+        DebugTrace.lastLog.contains('[0, 1, 2, ...]')
+
+        where:
+        description  | value
+        'ArrayList'  | (0..<10).toList()
+        'LinkedList' | new LinkedList((0..<10))
+        'int[]'      | (0..<10) as int[]
+    }
+
+    def "reads only the head and tail elements of a RandomAccess list by index"() {
+        setup:
+        def list = new CountingList(1_000_000)
+
+        when:
+        DebugTrace.print('value', list, logOptions(2))
+
+        then:
+        DebugTrace.lastLog.contains('[0, 1, 2, ...(skipped:999995)..., 999998, 999999]')
+        list.indexes == [0, 1, 2, 999_998, 999_999]
+    }
+}
@@ -3,6 +3,7 @@
 
 package org.debugtrace.test
 
+import java.nio.ByteBuffer
 import java.sql.Time
 import java.sql.Date
 import java.sql.Timestamp
@@ -850,4 +851,121 @@ class DebugTraceSpec extends Specification {
         cleanup:
         DebugTrace.leave()
     }
+
+    static class Getters {
+        public int a = 1
+        private int b = 2
+        private String c = 'c'
+        private String d = 'd'
+        int getB() {return b * 10}
+        String getC() {throw new IllegalStateException('c')}
+    }
+
+    // 4.2.0
+    def "reads the fields through the getter methods"() {
+        setup:
+        DebugTrace.enter()
+
+        when:
+        def logs = (0..<2).collect {
+            DebugTrace.print('getters', new Getters())
+            DebugTrace.lastLog
+        }
+
+        then:
+        logs.every {
+            it.contains('a: 1, b: 20, c: "<java.lang.reflect.InvocationTargetException>"') &&
+            it.contains('d: "d", metaClass: ***')
+        }
+
+        cleanup:
+        DebugTrace.leave()
+    }
+
+    // 4.2.0
+    def "outputs the arrays of primitive types as the arrays of the wrapper types"() {
+        setup:
+        DebugTrace.enter()
+        def logOptions = new LogOptions()
+        logOptions.collectionLimit = limit
+
+        when:
+        def logs = [values.asType(primitiveType), values.asType(wrapperType)].collect {
+            DebugTrace.print('v', it, logOptions)
+            DebugTrace.lastLog
+        }
+
+        then:
+        logs[0] == logs[1].replace(
+            wrapperType.componentType.simpleName + '[', primitiveType.componentType.simpleName + '[')
+
+        cleanup:
+        DebugTrace.leave()
+
+        where:
+        primitiveType | wrapperType | values                                          | limit
+        boolean[]     | Boolean[]   | (0..<120).collect {it % 3 == 0}                 | 512
+        short[]       | Short[]     | (0..<120).collect {(it - 60) * 517}             | 512
+        int[]         | Integer[]   | (0..<120).collect {(it - 60) * 12345679}        | 512
+        int[]         | Integer[]   | (0..<120).collect {(it - 60) * 12345679}        | 50
+        long[]        | Long[]      | (0..<120).collect {(it - 60) * 1234567890123L}  | 512
+        float[]       | Float[]     | (0..<120).collect {(it - 60) / 7}               | 512
+        double[]      | Double[]    | (0..<120).collect {(it - 60) / 7}               | 512
+        double[]      | Double[]    | (0..<120).collect {(it - 60) / 7}               | 0
+    }
+
+    // 4.2.0
+    def "outputs the remaining bytes of ByteBuffer"() {
+        setup:
+        DebugTrace.enter()
+        def bytes = 'Hello, ByteBuffer!'.bytes
+        def heapBuffer = ByteBuffer.wrap(bytes).position(7)
+        def directBuffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().position(7)
+
+        when:
+        DebugTrace.print('heapBuffer', heapBuffer)
+        then:
+        DebugTrace.lastLog.contains('heapBuffer = (java.nio.HeapByteBuffer)(byte[11])[42 79 74 65 42 75 66 66 65 72 21  ByteBuffer!]')
+        heapBuffer.position() == 7
+
+        when:
+        DebugTrace.print('directBuffer', directBuffer)
+        then:
+        DebugTrace.lastLog.contains('directBuffer = (java.nio.DirectByteBuffer)(byte[11])[42 79 74 65 42 75 66 66 65 72 21  ByteBuffer!]')
+        directBuffer.position() == 7
+
+        when:
+        DebugTrace.print('bytes', ByteBuffer.wrap(new byte[20]))
+        then:
+        DebugTrace.lastLog.contains('bytes = (java.nio.HeapByteBuffer)(byte[20])[')
+        DebugTrace.lastLog.contains('0000 00 00 00 00 00 00 00 00 00 00 00 00 00 00 00 00  ................')
+        DebugTrace.lastLog.contains('0010 00 00 00 00                                      ....')
+
+        cleanup:
+        DebugTrace.leave()
+    }
+
+    // 4.2.0
+    def "escapes the characters of the strings truncated at the limit"() {
+        setup:
+        DebugTrace.enter()
+        def logOptions = new LogOptions()
+        logOptions.stringLimit = 6
+
+        when:
+        DebugTrace.print('v', value, logOptions)
+
+        then:
+        DebugTrace.lastLog.contains(expected)
+
+        cleanup:
+        DebugTrace.leave()
+
+        where:
+        value                                             | expected
+        'ab\t"cd\u0001ef'                                 | 'v = "ab\\t\\"cd..."'
+        new StringBuilder('\\\u007F\u3042\u3042xyz')      | 'v = (StringBuilder)"\\\\\\u007F\u3042\u3042xy..."'
+        'ab\nc\'d\u001Fe'.toCharArray()                   | 'v = (char[8])"ab\\nc\'d..."'
+        'abc\r\n'                                         | 'v = "abc\\r\\n"'
+    }
 }
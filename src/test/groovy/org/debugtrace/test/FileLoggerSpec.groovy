@@ -0,0 +1,323 @@
+// FileLoggerSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Paths
+import java.util.zip.GZIPInputStream
+
+import org.debugtrace.DebugTrace
+import org.debugtrace.LineSeparator
+import org.debugtrace.logger.Archiver
+import org.debugtrace.logger.File
+import org.debugtrace.logger.FlushPolicy
+import org.debugtrace.logger.MMap
+import org.debugtrace.logger.RollPolicy
+import spock.lang.*
+
+/**
+ * File logger Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class FileLoggerSpec extends Specification {
+    def cleanupSpec() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    static String read(String path) {
+        return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8)
+    }
+
+    // Returns the lines of the file without timestamps
+    static List<String> readLines(String path) {
+        return read(path).readLines().collect {it.replaceFirst(/^.* (?=line )/, '')}
+    }
+
+    def "FlushPolicy.parse '#string'"(String string, String expected) {
+        expect:
+        FlushPolicy.parse(string).toString() == expected
+
+        where:
+        string        |expected
+        'line'        |'line'
+        'LINE'        |'line'
+        ' close '     |'close'
+        'bytes:65536' |'bytes:65536'
+        'Millis: 100' |'millis:100'
+    }
+
+    def "FlushPolicy.parse invalid '#string'"(String string) {
+        when:
+        FlushPolicy.parse(string)
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        string << ['', 'bytes', 'bytes:0', 'millis:-1', 'millis:x', 'line:1', 'unknown']
+    }
+
+    def "flush policy #flushPolicy"(String flushPolicy, boolean writtenBeforeClose) {
+        setup:
+        def logPath = "logs/FileLogger-${flushPolicy.replace(':', '_')}.log"
+        def logger = new File(new java.io.File(logPath), StandardCharsets.UTF_8, LineSeparator.LF, false,
+            FlushPolicy.parse(flushPolicy))
+
+        when:
+        (1..3).each {logger.log("line $it".toString())}
+        def contentBeforeClose = read(logPath)
+        logger.close()
+        def contentAfterClose = read(logPath)
+
+        then:
+        (contentBeforeClose == contentAfterClose) == writtenBeforeClose
+        readLines(logPath) == ['line 1', 'line 2', 'line 3']
+
+        where:
+        flushPolicy  |writtenBeforeClose
+        'line'       |true
+        'bytes:1'    |true
+        'bytes:65536'|false
+        'millis:1000'|false
+        'close'      |false
+    }
+
+    def "flush at intervals of milliseconds"() {
+        setup:
+        def logPath = 'logs/FileLogger-millis.log'
+        def logger = new File(new java.io.File(logPath), StandardCharsets.UTF_8, LineSeparator.LF, false,
+            FlushPolicy.parse('millis:10'))
+
+        when:
+        logger.log('line 1')
+        for (def count = 0; count < 100 && read(logPath).isEmpty(); ++count)
+            Thread.sleep(10)
+        def lines = readLines(logPath)
+        logger.close()
+
+        then:
+        lines == ['line 1']
+    }
+
+    def "append #append"(boolean append, List<String> expected) {
+        setup:
+        def logPath = 'logs/FileLogger-append.log'
+        def file = new java.io.File(logPath)
+        def logger = new File(file, StandardCharsets.UTF_8, LineSeparator.LF, false)
+        logger.log('line 1')
+        logger.close()
+
+        when:
+        logger = new File(file, StandardCharsets.UTF_8, LineSeparator.LF, append)
+        logger.log('line 2')
+        logger.close()
+
+        then:
+        readLines(logPath) == expected
+
+        where:
+        append|expected
+        false |['line 2']
+        true  |['line 1', 'line 2']
+    }
+
+    def "log after close"() {
+        setup:
+        def logPath = 'logs/FileLogger-closed.log'
+        def logger = new File(new java.io.File(logPath), StandardCharsets.UTF_8, LineSeparator.LF, false)
+
+        when:
+        logger.log('line 1')
+        logger.close()
+        logger.close()
+        logger.log('line 2')
+
+        then:
+        readLines(logPath) == ['line 1']
+    }
+
+    def "fileFlush property"() {
+        when:
+        DebugTrace.initClass('DebugTrace_File-Flush')
+
+        then:
+        DebugTrace.logger.toString().contains('flush: bytes:4096')
+    }
+
+    def "RollPolicy.parseSize '#string'"(String string, long expected) {
+        expect:
+        RollPolicy.parseSize(string) == expected
+
+        where:
+        string |expected
+        null   |0L
+        '1000' |1000L
+        '64k'  |64L * 1024
+        '100M' |100L * 1024 * 1024
+        ' 2G ' |2L * 1024 * 1024 * 1024
+    }
+
+    def "RollPolicy.parseInterval '#string'"(String string, long expected) {
+        expect:
+        RollPolicy.parseInterval(string) == expected
+
+        where:
+        string |expected
+        null    |0L
+        '500ms' |500L
+        ' 5 MS '|5L
+        '30s'   |30_000L
+        '15m'   |15 * 60_000L
+        '1H'    |3_600_000L
+        '1d'    |86_400_000L
+    }
+
+    def "RollPolicy invalid '#string'"(String string) {
+        when:
+        RollPolicy.parseSize(string)
+        RollPolicy.parseInterval(string)
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        string << ['0', '-1', 'x', '10X', '100', 'ms', '0ms']
+    }
+
+    def "roll by size"() {
+        setup:
+        def directory = new java.io.File('logs/FileLogger-roll')
+        directory.deleteDir()
+        directory.mkdirs()
+        def logger = new File(new java.io.File(directory, 'roll.log'), StandardCharsets.UTF_8, LineSeparator.LF, false,
+            FlushPolicy.LINE, new RollPolicy(1000L, 0L, 3))
+
+        when:
+        (1..100).each {logger.log("line $it ".padRight(100, '-'))}
+        logger.close()
+        def archiveNames = directory.list().findAll {it != 'roll.log'}.sort()
+        def lines = archiveNames.collect {
+            new GZIPInputStream(new FileInputStream(new java.io.File(directory, it))).getText('UTF-8').readLines()
+        }.flatten() + new java.io.File(directory, 'roll.log').readLines('UTF-8')
+
+        then:
+        archiveNames.size() == 3
+        archiveNames.every {it ==~ /roll\.log\.\d{8}-\d{6}-\d{3}\.gz/}
+        lines.collect {it.replaceFirst(/^.* (?=line )/, '').trim()} ==
+            (100 - lines.size() + 1..100).collect {"line $it ".padRight(100, '-').trim()}
+    }
+
+    def "roll by time"() {
+        setup:
+        def directory = new java.io.File('logs/FileLogger-roll-time')
+        directory.deleteDir()
+        directory.mkdirs()
+        def logger = new File(new java.io.File(directory, 'roll.log'), StandardCharsets.UTF_8, LineSeparator.LF, false,
+            FlushPolicy.LINE, new RollPolicy(0L, 1000L, 0))
+
+        when:
+        logger.log('line 1')
+        Thread.sleep(1100)
+        logger.log('line 2')
+        logger.close()
+
+        then:
+        directory.list().findAll {it.endsWith('.gz')}.size() == 1
+        readLines("${directory.path}/roll.log") == ['line 2']
+    }
+
+    def "does not roll again for a while after failing to roll"() {
+        setup:
+        def directory = new java.io.File('logs/FileLogger-roll-failure')
+        directory.deleteDir()
+        directory.mkdirs()
+        def archiver = new Archiver(new java.io.File(directory, 'missing.log'), new RollPolicy(1000L, 0L, 0))
+
+        when:
+        def shouldRollBefore = archiver.shouldRoll(2000L)
+        archiver.roll(2000L)
+
+        then:
+        shouldRollBefore
+        thrown(NoSuchFileException)
+        !archiver.shouldRoll(2000L)
+
+        cleanup:
+        archiver.close()
+    }
+
+    def "fileRoll properties"() {
+        when:
+        DebugTrace.initClass('DebugTrace_File-Roll')
+
+        then:
+        DebugTrace.logger.toString().contains('roll: (size: 1048576 bytes, interval: 86400000 ms, count: 5)')
+    }
+
+    def "MMap logger #append"(boolean append, List<String> expected) {
+        setup:
+        def logPath = 'logs/MMapLogger.log'
+        def file = new java.io.File(logPath)
+        def logger = new MMap(file, StandardCharsets.UTF_8, LineSeparator.LF, false, 16L, RollPolicy.NONE)
+        logger.log('line 1')
+        logger.close()
+
+        when:
+        logger = new MMap(file, StandardCharsets.UTF_8, LineSeparator.LF, append, 16L, RollPolicy.NONE)
+        logger.log('line 2')
+        logger.close()
+
+        then:
+        readLines(logPath) == expected
+        file.length() == read(logPath).getBytes(StandardCharsets.UTF_8).length
+        !read(logPath).contains('\u0000')
+
+        where:
+        append|expected
+        false |['line 2']
+        true  |['line 1', 'line 2']
+    }
+
+    def "MMap logger roll by size"() {
+        setup:
+        def directory = new java.io.File('logs/MMapLogger-roll')
+        directory.deleteDir()
+        directory.mkdirs()
+        def logger = new MMap(new java.io.File(directory, 'roll.log'), StandardCharsets.UTF_8, LineSeparator.LF, false,
+            256L, new RollPolicy(1000L, 0L, 2))
+
+        when:
+        (1..100).each {logger.log("line $it ".padRight(100, '-'))}
+        logger.close()
+
+        then:
+        directory.list().findAll {it.endsWith('.gz')}.size() == 2
+        readLines("${directory.path}/roll.log").last() == 'line 100 '.padRight(100, '-')
+    }
+
+    @IgnoreIf({os.windows}) // cannot delete the mapped file
+    def "MMap logger stops output without an exception if the file cannot be reopened"() {
+        setup:
+        def directory = new java.io.File('logs/MMapLogger-reopen')
+        directory.deleteDir()
+        directory.mkdirs()
+        def logger = new MMap(new java.io.File(directory, 'roll.log'), StandardCharsets.UTF_8, LineSeparator.LF, false,
+            256L, new RollPolicy(2000L, 0L, 0))
+        (1..10).each {logger.log("line $it ".padRight(100, '-'))}
+
+        when:
+        directory.deleteDir() // The file is rolled in the following lines and cannot be reopened
+        (11..30).each {logger.log("line $it ".padRight(100, '-'))}
+        logger.close()
+
+        then:
+        noExceptionThrown()
+        !directory.exists()
+    }
+}
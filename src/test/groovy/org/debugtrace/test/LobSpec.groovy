@@ -0,0 +1,149 @@
+// LobSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.sql.Blob
+import java.sql.Clob
+import org.debugtrace.DebugTrace
+import org.debugtrace.LogOptions
+import spock.lang.*
+
+/**
+ * Clob and Blob Output Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class LobSpec extends Specification {
+    static class CountingReader extends StringReader {
+        int readCount
+        CountingReader(String string) {super(string)}
+        int read(char[] chars, int offset, int length) {
+            def count = super.read(chars, offset, length)
+            if (count > 0) readCount += count
+            return count
+        }
+    }
+
+    static class CountingInputStream extends ByteArrayInputStream {
+        int readCount
+        CountingInputStream(byte[] bytes) {super(bytes)}
+        int read(byte[] bytes, int offset, int length) {
+            def count = super.read(bytes, offset, length)
+            if (count > 0) readCount += count
+            return count
+        }
+    }
+
+    def calls = [:].withDefault {0}
+    CountingReader reader
+    CountingInputStream stream
+
+    def clob(String string) {
+        return [
+            length            : {-> ++calls.length; (long)string.length()},
+            getCharacterStream: {-> ++calls.getCharacterStream; reader = new CountingReader(string)},
+            getSubString      : {long pos, int length -> ++calls.getSubString; string.substring((int)pos - 1, (int)pos - 1 + length)},
+        ] as Clob
+    }
+
+    def blob(byte[] bytes) {
+        return [
+            length         : {-> ++calls.length; (long)bytes.length},
+            getBinaryStream: {-> ++calls.getBinaryStream; stream = new CountingInputStream(bytes)},
+            getBytes       : {long pos, int length -> ++calls.getBytes; Arrays.copyOfRange(bytes, (int)pos - 1, (int)pos - 1 + length)},
+        ] as Blob
+    }
+
+    def logOptions() {
+        def logOptions = new LogOptions()
+        logOptions.minimumOutputLength = 0
+        logOptions.stringLimit = 10
+        logOptions.byteArrayLimit = 8
+        return logOptions
+    }
+
+    def cleanup() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    def "reads only the characters to be output from Clob: #length chars"() {
+        when:
+        DebugTrace.print('clob', clob('a' * length), logOptions())
+
+        then:
+        DebugTrace.lastLog.contains(log)
+        calls.length == 1
+        calls.getCharacterStream == 1
+        calls.getSubString == 0
+        reader.readCount == readCount
+
+        where:
+        length | readCount | log
+        0      | 0         | 'length:0'
+        10     | 10        | 'length:10'
+        11     | 11        | 'length:11'
+        100000 | 11        | 'length:100000'
+    }
+
+    def "reads only the bytes to be output from Blob: #length bytes"() {
+        when:
+        DebugTrace.print('blob', blob(new byte[length]), logOptions())
+
+        then:
+        DebugTrace.lastLog.contains(log)
+        calls.length == 1
+        calls.getBinaryStream == 1
+        calls.getBytes == 0
+        stream.readCount == readCount
+
+        where:
+        length | readCount | log
+        0      | 0         | 'length:0'
+        8      | 8         | 'length:8'
+        9      | 9         | 'length:9'
+        100000 | 9         | 'length:100000'
+    }
+
+    def "does not get the length of Clob and Blob if the length is not output"() {
+        setup:
+        def logOptions = new LogOptions()
+        logOptions.stringLimit = 10
+        logOptions.byteArrayLimit = 8
+
+        when:
+        DebugTrace.print('clob', clob('a' * 100), logOptions)
+        def clobLog = DebugTrace.lastLog
+        DebugTrace.print('blob', blob(new byte[100]), logOptions)
+        def blobLog = DebugTrace.lastLog
+
+        then:
+        !clobLog.contains('length:')
+        clobLog.contains('"aaaaaaaaaa..."')
+        !blobLog.contains('length:')
+        blobLog.contains('00 00 00 00 00 00 00 00 ...')
+        calls.length == 0
+    }
+
+    def "does not get the length of Clob and Blob if lobLengthOutput is false"() {
+        setup:
+        DebugTrace.lobLengthOutput = false
+
+        when:
+        DebugTrace.print('clob', clob('a' * 100), logOptions())
+        def clobLog = DebugTrace.lastLog
+        DebugTrace.print('blob', blob(new byte[100]), logOptions())
+        def blobLog = DebugTrace.lastLog
+
+        then:
+        !clobLog.contains('length:')
+        clobLog.contains('"aaaaaaaaaa..."')
+        !blobLog.contains('length:')
+        blobLog.contains('00 00 00 00 00 00 00 00 ...')
+        calls.length == 0
+        reader.readCount == 11
+        stream.readCount == 9
+    }
+}
@@ -0,0 +1,83 @@
+// LogBufferSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import org.debugtrace.LogBuffer
+import spock.lang.*
+
+/**
+ * LogBuffer Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class LogBufferSpec extends Specification {
+    static List<String> lines(LogBuffer buff) {
+        return (0..<buff.lineCount()).collect {"" + buff.dataNestLevel(it) + ':' + buff.appendLineTo(new StringBuilder(), it)}
+    }
+
+    def "appending a LogBuffer keeps the data indentation levels of its lines"() {
+        setup:
+        def child = new LogBuffer()
+        child.append('a')
+        child.lineFeed()
+        child.upNest()
+        child.append('b')
+        child.lineFeed()
+        child.downNest()
+        child.append('c')
+        def parent = new LogBuffer()
+
+        when:
+        parent.append('x')
+        parent.upNest()
+        parent.append(', ', child)
+        parent.downNest()
+        parent.noBreakAppend(']')
+
+        then:
+        lines(parent) == ['1:x, a', '2:b', '0:c]']
+    }
+
+    def "the trailing spaces of a broken line are removed even if the line is continued"() {
+        setup:
+        def child = new LogBuffer()
+        child.append('a  ')
+        child.lineFeed()
+        def parent = new LogBuffer()
+
+        when:
+        parent.append(null, child).append('b')
+
+        then:
+        lines(parent) == ['0:ab']
+    }
+
+    def "deeply nested LogBuffers"() {
+        setup:
+        def buff = new LogBuffer()
+        buff.append('0')
+
+        when:
+        999.times {
+            def outer = new LogBuffer()
+            outer.append('[').lineFeed()
+            outer.upNest()
+            outer.append(null, buff)
+            outer.lineFeed()
+            outer.downNest()
+            outer.append(']')
+            buff = outer
+        }
+        def lines = lines(buff)
+
+        then:
+        lines.size() == 1999
+        lines[0] == '0:['
+        lines[998] == '998:['
+        lines[999] == '999:0'
+        lines[1000] == '998:]'
+        lines[1998] == '0:]'
+    }
+}
@@ -66,5 +66,6 @@ class LoggersSpec extends Specification {
         'File-UTF-8-LF'  |'UTF-8'    |'\n' 
         'File-UTF-8-CR'  |'UTF-8'    |'\r' 
         'File-UTF-8-CRLF'|'UTF-8'    |'\r\n'
+        'MMap'           |'UTF-8'    |systemSeparator // since 4.2.0
     }
 }
@@ -0,0 +1,101 @@
+// MultiThreadSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.lang.ref.WeakReference
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import org.debugtrace.DebugTrace
+import org.debugtrace.logger.Logger
+import spock.lang.*
+
+/**
+ * Multi-thread Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class MultiThreadSpec extends Specification {
+    @Shared Logger savedLogger
+
+    def setupSpec() {
+        savedLogger = DebugTrace.logger
+    }
+
+    def cleanupSpec() {
+        DebugTrace.logger = savedLogger
+    }
+
+    def "nest levels are confined to each thread"() {
+        setup:
+        def nestLevels = new ConcurrentHashMap<Integer, Integer>()
+
+        when:
+        (0..<8).collect {index ->
+            Thread.start {
+                (0..index).each {DebugTrace.enter()}
+                nestLevels[index] = DebugTrace.currentState.nestLevel()
+                DebugTrace.print('index', index)
+                (0..index).each {DebugTrace.leave()}
+            }
+        }*.join()
+
+        then:
+        nestLevels == (0..<8).collectEntries {[it, it + 1]}
+    }
+
+    def "the state of a terminated thread is released"() {
+        setup:
+        WeakReference<Object> stateRef = null
+
+        when:
+        Thread.start {
+            DebugTrace.enter()
+            stateRef = new WeakReference<Object>(DebugTrace.currentState)
+            DebugTrace.leave()
+        }.join()
+
+        for (def count = 0; count < 10 && stateRef.get() != null; ++count) {
+            System.gc()
+            Thread.sleep(100)
+        }
+
+        then:
+        stateRef.get() == null
+    }
+
+    def "lines of a value are output without interleaving"() {
+        setup:
+        def logs = new CopyOnWriteArrayList<String>()
+        DebugTrace.logger = {message -> logs << message} as Logger
+        def list = (0..<100).collect {"element $it".toString()}
+
+        when:
+        (0..<4).collect {index ->
+            Thread.start {
+                10.times {DebugTrace.print("list$index".toString(), list)}
+            }
+        }*.join()
+
+        def headerCount = 0
+        def inValue = false
+        def interleaved = false
+        logs.each {log ->
+            if (log ==~ /list\d = .*/) {
+                ++headerCount
+                interleaved |= inValue
+                inValue = true
+            } else if (log.startsWith('] ')) {
+                interleaved |= !inValue
+                inValue = false
+            } else if (inValue && !log.startsWith('  "element ')) {
+                interleaved = true
+            }
+        }
+
+        then:
+        headerCount == 40
+        !interleaved
+    }
+}
@@ -0,0 +1,181 @@
+// SamplingSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+import org.debugtrace.DebugTrace
+import org.debugtrace.helper.IntSupplier
+import org.debugtrace.helper.Supplier
+import org.debugtrace.logger.Logger
+import org.debugtrace.test.foo.bar.SamplingPrinter
+import spock.lang.*
+
+/**
+ * Sampling Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class SamplingSpec extends Specification {
+    // Counts the conversions of the value
+    static class Counter {
+        int count
+        String toString() {++count; return 'counter'}
+    }
+
+    // Specified by the class name in DebugTrace_Sampling.properties
+    static class Worker {
+        static void work1(int value) {DebugTrace.print('work1', value)}
+        static void work2(int value) {DebugTrace.print('work2', value)}
+    }
+
+    // Also added by the thread of the report timer
+    List<String> lines = new CopyOnWriteArrayList<String>()
+
+    def setup() {
+        DebugTrace.initClass('DebugTrace_Sampling')
+        DebugTrace.logger = {lines << it} as Logger
+    }
+
+    def cleanup() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    def every3(int value) {DebugTrace.print('every3', value)}
+    def first2(Object value) {DebugTrace.print('first2', value)}
+    def rate2(int value) {DebugTrace.print('rate2', value)}
+    def First2(int value) {DebugTrace.print('First2', value)}
+    def inPackage(int value) {DebugTrace.print('inPackage', value)}
+
+    def suppliedFirst2(Counter counter) {
+        DebugTrace.print('suppliedFirst2', {++counter.count} as IntSupplier)
+        DebugTrace.print({"message ${++counter.count}".toString()} as Supplier<String>)
+    }
+
+    // The logs of the name without the call site
+    def logs(String name) {
+        return lines.findAll {it.startsWith(name + ' = ')}.collect {it.replaceFirst(/ \(.*$/, '')}
+    }
+
+    def "outputs 1 in every N logs of the call site"() {
+        when:
+        (0..<10).each {every3(it)}
+
+        then:
+        logs('every3') == ['every3 = 0', 'every3 = 3', 'every3 = 6', 'every3 = 9']
+    }
+
+    def "outputs only the first N logs of the call site without converting the values of the others"() {
+        setup:
+        def counter = new Counter()
+
+        when:
+        5.times {first2(counter)}
+
+        then:
+        logs('first2').size() == 2
+        counter.count == 2
+    }
+
+    def "does not get the values of the suppressed logs from the suppliers"() {
+        setup:
+        def counter = new Counter()
+
+        when:
+        5.times {suppliedFirst2(counter)}
+
+        then:
+        logs('suppliedFirst2').size() == 2
+        lines.count {it.startsWith('message ')} == 2
+        counter.count == 4
+    }
+
+    def "outputs N logs per period at most"() {
+        when:
+        (0..<10).each {rate2(it)}
+
+        then:
+        logs('rate2') == ['rate2 = 0', 'rate2 = 1']
+    }
+
+    def "decides for each call site with the rule of the class"() {
+        when:
+        (0..<3).each {
+            Worker.work1(it)
+            Worker.work2(it)
+        }
+
+        then:
+        logs('work1') == ['work1 = 0']
+        logs('work2') == ['work2 = 0']
+    }
+
+    def "applies the rule of the package if no rule of the method or class"() {
+        when:
+        (0..<4).each {inPackage(it)}
+
+        then:
+        logs('inPackage') == ['inPackage = 0', 'inPackage = 2']
+    }
+
+    def "matches the patterns case-sensitively"() {
+        when:
+        (0..<4).each {First2(it)}
+
+        then:
+        // The rule of the package instead of the method first2
+        logs('First2') == ['First2 = 0', 'First2 = 2']
+    }
+
+    def "applies the rule of the parent package"() {
+        when:
+        (0..<4).each {SamplingPrinter.printInSubPackage(it)}
+
+        then:
+        logs('inSubPackage') == ['inSubPackage = 0', 'inSubPackage = 2']
+    }
+
+    def "applies the rule of the enclosing class to a nested class"() {
+        when:
+        (0..<4).each {SamplingPrinter.Outer.Inner.print(it)}
+
+        then:
+        logs('inNestedClass') == ['inNestedClass = 0', 'inNestedClass = 1']
+    }
+
+    def "applies the rule of the method to the lambda expressions in it"() {
+        when:
+        (0..<4).each {SamplingPrinter.printInLambda(it)}
+
+        then:
+        logs('inLambda') == ['inLambda = 0']
+    }
+
+    def "reports the number of the suppressed logs periodically without any later log"() {
+        when:
+        DebugTrace.enter()
+        (0..<10).each {every3(it)}
+        for (int time = 0; time < 3000 && !lines.any {it.contains('logs suppressed')}; time += 100)
+            Thread.sleep(100)
+        DebugTrace.leave()
+
+        then:
+        // Not indented with the nest level of the traced thread
+        lines.findAll {it.contains('logs suppressed')}.collect {it.replaceFirst(/:\d+\)$/, ')')} ==
+            ['(6 logs suppressed) (SamplingSpec.groovy)']
+    }
+
+    def "reports the suppressed logs not reported yet before the logger is closed"() {
+        setup:
+        (0..<10).each {every3(it)}
+
+        when:
+        DebugTrace.initClass('DebugTrace_Sampling')
+
+        then:
+        lines.findAll {it.contains('logs suppressed')}.collect {it.replaceFirst(/:\d+\)$/, ')')} ==
+            ['(6 logs suppressed) (SamplingSpec.groovy)']
+    }
+}
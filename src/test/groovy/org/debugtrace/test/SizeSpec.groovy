@@ -0,0 +1,134 @@
+// SizeSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.util.concurrent.ConcurrentLinkedDeque
+import java.util.concurrent.ConcurrentLinkedQueue
+import org.debugtrace.DebugTrace
+import org.debugtrace.LogOptions
+import spock.lang.*
+
+/**
+ * Test of the size of collection and map.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class SizeSpec extends Specification {
+    // Counts the calls of the size method
+    static class CountingList extends ArrayList<Integer> {
+        int sizeCount
+        CountingList(Collection<Integer> elements) {super(elements)}
+        int size() {++sizeCount; return super.size()}
+    }
+
+    static class CountingQueue extends ConcurrentLinkedQueue<Integer> {
+        int sizeCount
+        CountingQueue(Collection<Integer> elements) {super(elements)}
+        int size() {++sizeCount; return super.size()}
+    }
+
+    static class CountingMap extends HashMap<Integer, Integer> {
+        int sizeCount
+        CountingMap(Map<Integer, Integer> map) {super(map)}
+        int size() {++sizeCount; return super.size()}
+    }
+
+    // Specified in DebugTrace_Size.properties
+    static class LazyList extends CountingList {
+        LazyList(Collection<Integer> elements) {super(elements)}
+    }
+
+    def cleanup() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    def logOptions(int minimumOutputSize) {
+        def logOptions = new LogOptions()
+        logOptions.minimumOutputSize = minimumOutputSize
+        logOptions.collectionLimit = 3
+        return logOptions
+    }
+
+    def "does not call size if the size is not output: #value.class.simpleName"() {
+        when:
+        DebugTrace.print('value', value, logOptions(Integer.MAX_VALUE))
+
+        then:
+        !DebugTrace.lastLog.contains('size:')
+        value.sizeCount == 0
+
+        where:
+        value << [
+            new CountingList(0..<10),
+            new CountingQueue(0..<10),
+            new CountingMap((0..<10).collectEntries {[it, it]}),
+        ]
+    }
+
+    def "outputs the number of the elements counted while rendering: #value.class.simpleName"() {
+        when:
+        DebugTrace.print('value', value, logOptions(0))
+
+        then:
+        DebugTrace.lastLog.contains('size:3)')
+        value.sizeCount == 0
+
+        where:
+        value << [
+            new CountingList(0..<3),
+            new CountingQueue(0..<3),
+            new CountingMap((0..<3).collectEntries {[it, it]}),
+        ]
+    }
+
+    def "calls size if the elements are truncated: #value.class.simpleName"() {
+        when:
+        DebugTrace.print('value', value, logOptions(0))
+
+        then:
+        DebugTrace.lastLog.contains('size:10)')
+        value.sizeCount == 1
+
+        where:
+        value << [
+            new CountingList(0..<10),
+            new CountingMap((0..<10).collectEntries {[it, it]}),
+        ]
+    }
+
+    def "outputs the minimum size instead of calling size of #description"() {
+        setup:
+        DebugTrace.initClass('DebugTrace_Size')
+
+        when:
+        DebugTrace.print('value', value, logOptions(0))
+
+        then:
+        DebugTrace.lastLog.contains('size:>=4)[0, 1, 2, ...]')
+        value instanceof ConcurrentLinkedDeque || value.sizeCount == 0
+
+        where:
+        description                  | value
+        'ConcurrentLinkedQueue'      | new CountingQueue(0..<10)
+        'ConcurrentLinkedDeque'      | new ConcurrentLinkedDeque(0..<10)
+        'expensiveSizeClasses'       | new LazyList(0..<10)
+    }
+
+    def "outputs the number of the elements read as the minimum size: #size elements"() {
+        when:
+        DebugTrace.print('value', new ConcurrentLinkedQueue(0..<size), logOptions(0))
+
+        then:
+        // Reads one more element than collectionLimit (3) to know if truncated
+        DebugTrace.lastLog.startsWith(text + ' (SizeSpec.groovy:')
+
+        where:
+        size | text
+        3    | 'value = (ConcurrentLinkedQueue size:3)[0, 1, 2]'
+        4    | 'value = (ConcurrentLinkedQueue size:>=4)[0, 1, 2, ...]'
+        10   | 'value = (ConcurrentLinkedQueue size:>=4)[0, 1, 2, ...]'
+    }
+}
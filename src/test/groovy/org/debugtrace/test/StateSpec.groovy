@@ -0,0 +1,53 @@
+// StateSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import org.debugtrace.State
+import spock.lang.*
+
+/**
+ * State Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class StateSpec extends Specification {
+    def "downNest returns the time of the corresponding upNest"() {
+        setup:
+        def state = new State(1L)
+        def times = []
+
+        when:
+        3.times {
+            state.upNest()
+            times << state.enterTime()
+        }
+
+        then:
+        state.downNest() == times[2]
+        state.downNest() == times[1]
+        state.enterTime() == times[0]
+        state.downNest() == times[0]
+        state.nestLevel() == 0
+    }
+
+    def "the stack of the times shrinks after a nest of #depth"() {
+        setup:
+        def state = new State(1L)
+
+        when:
+        depth.times {state.upNest()}
+        def deepCapacity = state.@times.length
+        depth.times {state.downNest()}
+
+        then:
+        deepCapacity >= depth
+        state.@times.length == 16
+        state.nestLevel() == 0
+
+        where:
+        depth << [1, 17, 10_000]
+    }
+}
@@ -0,0 +1,170 @@
+// StreamingSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import org.debugtrace.DebugTrace
+import org.debugtrace.LogOptions
+import org.debugtrace.logger.Logger
+import spock.lang.*
+
+/**
+ * Streaming Output Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class StreamingSpec extends Specification {
+    static class Point {
+        int x
+        int y
+        Point(int x, int y) {this.x = x; this.y = y}
+    }
+
+    static class Contact {
+        String name
+        List<Point> points
+        Map<String, Integer> scores
+        Contact(String name, List<Point> points, Map<String, Integer> scores) {
+            this.name = name; this.points = points; this.scores = scores
+        }
+    }
+
+    static class Tree {
+        String name
+        List<Tree> children = []
+        Tree(String name) {this.name = name}
+    }
+
+    def cleanup() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    def printLines(boolean streamingOutput, Object value) {
+        def logOptions = new LogOptions()
+        logOptions.minimumOutputSize = Integer.MAX_VALUE
+        logOptions.minimumOutputLength = Integer.MAX_VALUE
+        return printLines(streamingOutput, value, logOptions)
+    }
+
+    def printLines(boolean streamingOutput, Object value, LogOptions logOptions) {
+        def lines = []
+        DebugTrace.logger = {lines << it} as Logger
+        DebugTrace.streamingOutput = streamingOutput
+        DebugTrace.print('start', 0) // a single line regardless of the previous test
+        lines.clear()
+        DebugTrace.print('value', value, logOptions)
+        DebugTrace.print('end')
+        return lines
+    }
+
+    def "the same lines as the buffered output: #description"() {
+        expect:
+        printLines(true, value) == printLines(false, value)
+
+        where:
+        description      | value
+        'single line'    | [1, 2, 3]
+        'list'           | (0..<100).collect {it * 1_000_003}
+        'nested list'    | (0..<10).collect {i -> (0..<(i * 3)).collect {"$i-$it".toString()}}
+        'map'            | (0..<30).collectEntries {["key$it".toString(), 'value' * (it % 5)]}
+        'object'         | new Contact('Akane Apple', (0..<20).collect {new Point(it, it * it)}, [math: 80, music: 90])
+        'nested objects' | (0..<5).collect {new Contact("name$it", (0..<it * 4).collect {i -> new Point(i, i)}, [:])}
+        'bytes'          | (0..<200).collect {it as byte} as byte[]
+        'cyclic'         | cyclicTree()
+        'linked list'    | new LinkedList((0..<50).collect {"element $it".toString()})
+        'tree set'       | new TreeSet((0..<50).collect {it * 7})
+        'map of lists'   | (0..<10).collectEntries {["key$it".toString(), (0..<it * 3).collect {i -> [i] * i}]}
+        'optional list'  | Optional.of((0..<40).collect {"$it".padLeft(6, '0')})
+    }
+
+    static Tree cyclicTree() {
+        def root = new Tree('root')
+        (0..<3).each {
+            def child = new Tree("child$it")
+            child.children << root << child
+            root.children << child
+        }
+        return root
+    }
+
+    def "the same lines as the buffered output with the limits: #description"() {
+        setup:
+        def logOptions = new LogOptions()
+        logOptions.minimumOutputSize = 0
+        logOptions.collectionLimit = 5
+        logOptions.collectionTailLimit = collectionTailLimit
+
+        expect:
+        printLines(true, value, logOptions) == printLines(false, value, logOptions)
+
+        where:
+        description                   | collectionTailLimit | value
+        'array'                       | 0                   | (0..<20).toArray()
+        'array with tail'             | 3                   | (0..<20).toArray()
+        'list'                        | 0                   | (0..<20).collect()
+        'list with tail'              | 3                   | (0..<20).collect()
+        'linked list'                 | 0                   | new LinkedList((0..<20))
+        'linked list with tail'       | 3                   | new LinkedList((0..<20))
+        'linked list within limits'   | 3                   | new LinkedList((0..<7))
+        'concurrent queue'            | 0                   | new ConcurrentLinkedQueue((0..<20))
+        'concurrent queue with tail'  | 3                   | new ConcurrentLinkedQueue((0..<20))
+        'map'                         | 0                   | (0..<20).collectEntries {[it, [it] * 10]}
+        'map with tail'               | 3                   | (0..<20).collectEntries {[it, [it] * 10]}
+    }
+
+    def "does not hold the lock of the log while laying out a value"() {
+        setup:
+        def lines = Collections.synchronizedList([])
+        DebugTrace.logger = {lines << it} as Logger
+        DebugTrace.streamingOutput = true
+        def printed = new CountDownLatch(1)
+        def awaited = []
+        def element = new Object() {
+            @Override
+            String toString() {
+                // Another thread prints while this element is converted
+                Thread.start {
+                    DebugTrace.print('other thread')
+                    printed.countDown()
+                }
+                awaited << printed.await(10, TimeUnit.SECONDS)
+                return 'element'
+            }
+        }
+
+        when:
+        DebugTrace.print('value', (0..<30).collect {it == 10 ? element : "element $it".toString()})
+        def valueLines = lines.findIndexValues {it.contains('element')}
+
+        then:
+        awaited == [true]
+        valueLines == (valueLines.first()..valueLines.last()).collect() // not interrupted
+        lines.findIndexOf {it.contains('other thread')} > valueLines.last()
+    }
+
+    def "prints a large collection with a small heap"() {
+        setup:
+        def command = [
+            "${System.getProperty('java.home')}/bin/java".toString(),
+            '-Xmx128m',
+            '-cp', System.getProperty('java.class.path'),
+            LargeCollectionPrint.name,
+        ]
+
+        when:
+        def process = command.execute()
+        def output = process.inputStream.text
+        def error = process.errorStream.text
+
+        then:
+        process.waitFor() == 0
+        error == ''
+        output.contains('2999999')
+    }
+}
@@ -0,0 +1,89 @@
+// TemplateSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import static org.debugtrace.Template.Type.*
+
+import java.time.Instant
+import java.time.OffsetDateTime
+import java.time.ZoneOffset
+
+import org.debugtrace.Template
+import spock.lang.*
+
+/**
+ * Template (compiled format string) Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class TemplateSpec extends Specification {
+    static OffsetDateTime toDateTime(long timeSpan) {
+        return timeSpan == Template.NO_TIME ? null
+            : OffsetDateTime.ofInstant(Instant.ofEpochSecond(timeSpan.intdiv(1000_000_000), timeSpan % 1000_000_000), ZoneOffset.UTC)
+    }
+
+    def "compile: '#format' with #timeSpan"() {
+        setup:
+        def template = Template.compile(format, STRING, STRING, STRING, INT, TIME, STRING, INT)
+        def builder = new StringBuilder()
+
+        when:
+        template.appendTo(builder, 'org.Foo', 'bar', null, 42, timeSpan, 'Bar.java', -7)
+
+        then:
+        builder.toString() == String.format(format, 'org.Foo', 'bar', null, 42, toDateTime(timeSpan), 'Bar.java', -7)
+
+        where:
+        format                                               | timeSpan
+        'Enter %1$s.%2$s (%3$s:%4$d) <- (%6$s:%7$d)'         | Template.NO_TIME
+        'Leave %1$s.%2$s (%3$s:%4$d) duration: %5$tT.%5$tL'  | 3_723_004_005_006L
+        'Leave %1$s.%2$s (%3$s:%4$d) duration: %5$tT.%5$tN'  | 90_000_000_000_001L
+        ' (%3$s:%4$d)'                                       | Template.NO_TIME
+        '%5$tH:%5$tM:%5$tS %5$tR'                            | -1_500_000_000L
+        '%5$tT'                                              | Template.NO_TIME
+        '%s %<s %s %d %7$d %s'                               | 0L
+        '|%-10s|%10s|%4d|%-6d|%5$12tL|'                      | 1_234_567_890L
+        '100%% %-3%|%n'                                      | 0L
+        '%4$x %5$tF %S %.2s %05d %+d'                        | 1_234_567_890L
+    }
+
+    def "compile: '#format' with a #type argument"() {
+        setup:
+        def template = Template.compile(format, type)
+        def builder = new StringBuilder()
+
+        when:
+        template.appendTo(builder, 123456L)
+
+        then:
+        builder.toString() == String.format(format, type == INT ? 123456 : 123456L)
+
+        where:
+        format        | type
+        'size:%1d'    | INT
+        'length:%1d'  | LONG
+        '%-8d|%<8s|'  | LONG
+        '%x'          | INT
+        '%x'          | LONG
+    }
+
+    def "compile: unsupported conversions throw the same exception as String.format"() {
+        setup:
+        def template = Template.compile(format, STRING)
+
+        when:
+        template.appendTo(new StringBuilder(), 'A')
+
+        then:
+        thrown(exception)
+
+        where:
+        format | exception
+        '%d'   | IllegalFormatConversionException
+        '%2$s' | MissingFormatArgumentException
+        '%q'   | UnknownFormatConversionException
+    }
+}
@@ -0,0 +1,47 @@
+// TimestampCacheSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import java.time.Instant
+import java.time.ZoneId
+import java.time.format.DateTimeFormatter
+
+import org.debugtrace.TimestampCache
+import spock.lang.*
+
+/**
+ * TimestampCache Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+@Unroll
+class TimestampCacheSpec extends Specification {
+    def "format: '#pattern' in #zone"() {
+        setup:
+        def formatter = DateTimeFormatter.ofPattern(pattern)
+        def zoneId = ZoneId.of(zone)
+        def cache = new TimestampCache(formatter, zoneId)
+        def instants = [
+            '2024-03-10T06:59:58.999999999Z',
+            '2024-03-10T06:59:59.000000001Z',
+            '2024-03-10T06:59:59.000000002Z', // the same millisecond
+            '2024-03-10T06:59:59.123456789Z',
+            '2024-03-10T07:00:00.5Z', // the next second, changing the offset in New York
+            '2024-03-10T06:59:59.9Z', // back to the previous second
+        ].collect {Instant.parse(it)}
+
+        expect:
+        instants.every {cache.format(it) == it.atZone(zoneId).format(formatter)}
+
+        where:
+        pattern                              | zone
+        'yyyy-MM-dd HH:mm:ss.SSSxxx'         | 'America/New_York'
+        'yyyy-MM-dd HH:mm:ss.SSSSSSSSSxxx'   | 'Asia/Tokyo'
+        'HH:mm:ss'                           | 'America/New_York'
+        'ss.S ss.SS'                         | 'UTC'
+        'n HH:mm:ss.SSS'                     | 'UTC'
+        "'0'SSS'9' A"                        | 'UTC'
+    }
+}
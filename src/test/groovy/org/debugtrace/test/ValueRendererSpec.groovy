@@ -0,0 +1,82 @@
+// ValueRendererSpec.groovy
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test
+
+import org.debugtrace.DebugTrace
+import org.debugtrace.ValueRenderer
+import spock.lang.*
+
+/**
+ * ValueRenderer Test.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+class ValueRendererSpec extends Specification {
+    static class Temperature {
+        double celsius
+        Temperature(double celsius) {this.celsius = celsius}
+    }
+
+    // Found with ServiceLoader (META-INF/services/org.debugtrace.ValueRenderer)
+    static class TemperatureRenderer implements ValueRenderer<Temperature> {
+        Class<Temperature> type() {Temperature}
+        void appendTo(StringBuilder builder, Temperature value) {builder.append(value.celsius).append(' degrees')}
+    }
+
+    // Specified in DebugTrace_ValueRenderer.properties
+    static class PointRenderer implements ValueRenderer<Point> {
+        Class<Point> type() {Point}
+        void appendTo(StringBuilder builder, Point value) {builder.append('<').append(value.x()).append(' ').append(value.y()).append('>')}
+    }
+
+    // Specified in DebugTrace_ValueRenderer.properties
+    static class NameRenderer implements ValueRenderer<Name> {
+        Class<Name> type() {Name}
+        void appendTo(StringBuilder builder, Name value) {throw new IllegalStateException(value.first())}
+    }
+
+    def cleanup() {
+        DebugTrace.initClass('DebugTrace')
+    }
+
+    def "renderer found with ServiceLoader"() {
+        when:
+        DebugTrace.print('value', [new Temperature(21.5)])
+
+        then:
+        DebugTrace.lastLog.contains('.Temperature)21.5 degrees]')
+    }
+
+    def "renderers of valueRenderers property"() {
+        setup:
+        DebugTrace.initClass('DebugTrace_ValueRenderer')
+
+        when:
+        DebugTrace.print('value', [new Point(1, 2), new Name('Akane', 'Apple')] as Object[])
+
+        then:
+        DebugTrace.lastLog.contains('(record org.debugtrace.test.Point)<1 2>,')
+        DebugTrace.lastLog.contains('(record org.debugtrace.test.Name)java.lang.IllegalStateException: Akane')
+
+        when:
+        DebugTrace.print('value', new Temperature(-3.0))
+
+        then:
+        DebugTrace.lastLog.contains('-3.0 degrees')
+    }
+
+    def "the values are output using reflection after initClass without the renderers"() {
+        setup:
+        DebugTrace.initClass('DebugTrace_ValueRenderer')
+        DebugTrace.print('value', new Point(1, 2))
+        DebugTrace.initClass('DebugTrace')
+
+        when:
+        DebugTrace.print('value', new Point(1, 2))
+
+        then:
+        DebugTrace.lastLog.contains('(record ....Point){x: 1,')
+    }
+}
@@ -0,0 +1,82 @@
+// LargeCollectionPrint.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import org.debugtrace.DebugTrace;
+import org.debugtrace.LogOptions;
+import org.debugtrace.logger.Logger;
+
+/**
+ * Prints a large collection with <code>DebugTrace_Streaming.properties</code> and outputs the number of the lines
+ * and the last two lines.<br>
+ * Run by StreamingSpec with a small heap.
+ * The collection does not hold the elements,
+ * so the heap is not enough only if the Nodes of all the elements are held at the same time.
+ * <pre>
+ * usage: LargeCollectionPrint [element count (default: 3,000,000)]
+ * </pre>
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public class LargeCollectionPrint {
+    /**
+     * A logger that counts the lines and holds the last two lines.
+     */
+    public static class LineCounter implements Logger {
+        private static long lineCount;
+        private static String previousLine;
+        private static String lastLine;
+
+        @Override
+        public void log(String message) {
+            ++lineCount;
+            previousLine = lastLine;
+            lastLine = message;
+        }
+    }
+
+    /**
+     * A list that returns the index as the element without holding the elements.
+     */
+    private static class IndexList extends AbstractList<Integer> implements RandomAccess {
+        private final int size;
+
+        IndexList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Prints a large collection.
+     *
+     * @param args the element count
+     */
+    public static void main(String[] args) {
+        var count = args.length > 0 ? Integer.parseInt(args[0]) : 3_000_000;
+        DebugTrace.initClass("DebugTrace_Streaming");
+
+        var list = new IndexList(count);
+        var logOptions = new LogOptions();
+        logOptions.collectionLimit = count;
+        DebugTrace.print("list", list, logOptions);
+
+        System.out.println("lines: " + LineCounter.lineCount);
+        System.out.println("last lines: " + LineCounter.previousLine);
+        System.out.println("            " + LineCounter.lastLine);
+    }
+}
@@ -0,0 +1,52 @@
+// SamplingPrinter.java
+// (C) 2015 Masato Kokubo
+
+package org.debugtrace.test.foo.bar;
+
+import org.debugtrace.DebugTrace;
+
+/**
+ * Prints values in a sub-package, a lambda expression and a nested class for SamplingSpec.
+ *
+ * @since 4.2.0
+ * @author Masato Kokubo
+ */
+public class SamplingPrinter {
+    /**
+     * A class that has a nested class.
+     */
+    public static class Outer {
+        /**
+         * A nested class without a sampling rule.
+         */
+        public static class Inner {
+            /**
+             * Prints the value.
+             *
+             * @param value the value
+             */
+            public static void print(int value) {
+                DebugTrace.print("inNestedClass", value);
+            }
+        }
+    }
+
+    /**
+     * Prints the value.
+     *
+     * @param value the value
+     */
+    public static void printInSubPackage(int value) {
+        DebugTrace.print("inSubPackage", value);
+    }
+
+    /**
+     * Prints the value in a lambda expression.
+     *
+     * @param value the value
+     */
+    public static void printInLambda(int value) {
+        Runnable print = () -> DebugTrace.print("inLambda", value);
+        print.run();
+    }
+}